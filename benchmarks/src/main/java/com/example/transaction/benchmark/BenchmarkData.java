@@ -0,0 +1,53 @@
+package com.example.transaction.benchmark;
+
+import com.example.transaction.model.Transaction;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 基准测试共用的交易数据生成
+ */
+final class BenchmarkData {
+    private static final Transaction.TransactionType[] TYPES = Transaction.TransactionType.values();
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 与 HTTP 请求反序列化一致，每条交易的用户名、描述都是独立的 String 对象
+     */
+    static Transaction randomTransaction(long id, Random random, int users, long now) {
+        Transaction.TransactionType type = TYPES[random.nextInt(TYPES.length)];
+        String userName = new String("user" + random.nextInt(users));
+        return Transaction.builder()
+                .id(id)
+                .userName(userName)
+                .toUserName(type == Transaction.TransactionType.TRANSFER ? new String("user" + random.nextInt(users)) : null)
+                .amount(BigDecimal.valueOf(1 + random.nextInt(1_000_000), 2))
+                .type(type)
+                .description(new String("备注" + random.nextInt(1000)))
+                .createTimestamp(now + id)
+                .updateTimestamp(now + id)
+                .build();
+    }
+
+    /**
+     * 按 Zipf 分布(第 k 个用户的概率与 1/k^exponent 成正比)预先抽取 length 个用户下标；exponent 为 0 时即均匀分布
+     */
+    static int[] zipfianUsers(int users, int length, double exponent, Random random) {
+        double[] cumulative = new double[users];
+        double sum = 0;
+        for (int k = 0; k < users; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        int[] result = new int[length];
+        for (int i = 0; i < length; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            result[i] = Math.min(index < 0 ? -index - 1 : index, users - 1);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.transaction.benchmark;
+
+import com.example.transaction.dto.TransactionRequest;
+import com.example.transaction.model.Transaction;
+import com.example.transaction.repository.impl.InMemoryTransactionRepository;
+import com.example.transaction.service.idempotency.IdempotencyRegistry;
+import com.example.transaction.service.impl.TransactionServiceImpl;
+import com.example.transaction.service.lock.StripedUserLocks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单条新增的服务端路径(校验、去重、加锁、构造交易、写入 memory 仓库)每次调用分配的字节数。
+ * <p>
+ * 请求对象预先生成(对应 HTTP 反序列化，不计入)，每次调用的金额不同，不会被内容去重拦截；去重窗口设为 1ms，
+ * 避免窗口内的记录随运行时间增长。每轮迭代重建服务与仓库。配合 -prof gc 读取 gc.alloc.rate.norm(B/op)：
+ * <pre>
+ * mvn exec:exec -Dbenchmark.class=org.openjdk.jmh.Main -Dbenchmark.heap=2g \
+ *     -Dbenchmark.args="CreatePathBenchmark -prof gc -f 1 -wi 3 -i 5 -r 1s"
+ * </pre>
+ * 只用到新增接口，可以在改动前后的提交上分别 mvn install 后运行同一基准对比。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CreatePathBenchmark {
+    private static final int REQUESTS = 1 << 16;
+    private static final int USERS = 1024;
+
+    private final TransactionRequest[] requests = new TransactionRequest[REQUESTS];
+    private TransactionServiceImpl transactionService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        Random random = new Random(42);
+        for (int i = 0; i < REQUESTS; i++) {
+            TransactionRequest request = new TransactionRequest();
+            request.setUserName("user" + (i % USERS));
+            request.setAmount(BigDecimal.valueOf(1 + i, 2));
+            request.setType(Transaction.TransactionType.DEPOSIT);
+            request.setDescription("备注" + random.nextInt(1000));
+            requests[i] = request;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+        repository.setMaxSize(Integer.MAX_VALUE);
+        StripedUserLocks userLocks = new StripedUserLocks(4096);
+        transactionService = TransactionServiceImpl.builder()
+                .transactionRepository(repository)
+                .userLocks(userLocks)
+                .idempotencyRegistry(new IdempotencyRegistry(userLocks, 1, 1 << 20))
+                .build();
+    }
+
+    @Benchmark
+    public Transaction create() {
+        TransactionRequest request = requests[next];
+        next = (next + 1) & (REQUESTS - 1);
+        return transactionService.createTransaction(request);
+    }
+}
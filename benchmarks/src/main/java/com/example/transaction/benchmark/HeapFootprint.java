@@ -0,0 +1,69 @@
+package com.example.transaction.benchmark;
+
+import com.example.transaction.repository.TransactionRepository;
+import com.example.transaction.repository.impl.ColumnarTransactionRepository;
+import com.example.transaction.repository.impl.InMemoryTransactionRepository;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.Random;
+
+/**
+ * 对比不同 TransactionRepository 实现常驻堆内存的占用。
+ * <p>
+ * 每种实现、每个数据量单独启动一个 JVM，写入 count 条交易后 Full GC，用前后已用堆之差作为占用：
+ * <pre>
+ * mvn -f benchmarks/pom.xml exec:exec -Dbenchmark.args="columnar 9000000"
+ * </pre>
+ */
+public final class HeapFootprint {
+    private HeapFootprint() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String type = args.length > 0 ? args[0] : "memory";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int users = Math.max(1, count / 100);
+
+        long baseline = usedHeapAfterGc();
+        TransactionRepository repository = createRepository(type, count);
+
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        for (long id = 1; id <= count; id++) {
+            repository.save(BenchmarkData.randomTransaction(id, random, users, now));
+        }
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+
+        long used = usedHeapAfterGc() - baseline;
+        System.out.printf("repository=%s count=%d users=%d heapBytes=%d heapMiB=%.1f bytesPerTransaction=%.1f loadMillis=%d%n",
+                type, count, users, used, used / 1024.0 / 1024.0, (double) used / count, loadMillis);
+        Reference.reachabilityFence(repository);
+    }
+
+    private static TransactionRepository createRepository(String type, int count) {
+        switch (type) {
+            case "memory": {
+                InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+                repository.setMaxSize(count + 1);
+                return repository;
+            }
+            case "columnar": {
+                ColumnarTransactionRepository repository = new ColumnarTransactionRepository();
+                repository.setMaxSize(count + 1);
+                return repository;
+            }
+            default:
+                throw new IllegalArgumentException("未知的仓库类型: " + type);
+        }
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.transaction.benchmark;
+
+import com.example.transaction.model.Transaction;
+import com.example.transaction.repository.impl.InMemoryTransactionRepository;
+import com.example.transaction.repository.journal.FileTransactionJournal;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 测量预写日志在开启 fsync 时的写入吞吐。
+ * <p>
+ * threads 个线程各自写入 perThread 条交易，每次调用都要等到所在批次 fsync 完成才返回；
+ * maxBatchRecords 为 1 时退化为每条记录一次 fsync，用于对比组提交的效果：
+ * <pre>
+ * mvn exec:exec -Dbenchmark.class=com.example.transaction.benchmark.JournalThroughput \
+ *     -Dbenchmark.args="/tmp/journal 64 2000 512 0"
+ * </pre>
+ */
+public final class JournalThroughput {
+    private JournalThroughput() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Path.of(args.length > 0 ? args[0] : "target/journal");
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int perThread = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int maxBatchRecords = args.length > 3 ? Integer.parseInt(args[3]) : 512;
+        long maxDelayMicros = args.length > 4 ? Long.parseLong(args[4]) : 0;
+
+        deleteDirectory(directory);
+        FileTransactionJournal journal = new FileTransactionJournal(directory, 64L << 20, maxBatchRecords, maxDelayMicros, true);
+        journal.recover(new InMemoryTransactionRepository());
+
+        AtomicLong ids = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Thread.ofPlatform().start(() -> {
+                Random random = new Random();
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < perThread; i++) {
+                    Transaction transaction = BenchmarkData.randomTransaction(ids.incrementAndGet(), random, 1000, now);
+                    journal.logSave(transaction);
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        journal.close();
+
+        long total = (long) threads * perThread;
+        System.out.printf("threads=%d records=%d maxBatchRecords=%d maxDelayMicros=%d seconds=%.2f recordsPerSecond=%.0f%n",
+                threads, total, maxBatchRecords, maxDelayMicros, seconds, total / seconds);
+    }
+
+    private static void deleteDirectory(Path directory) throws Exception {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
\ No newline at end of file
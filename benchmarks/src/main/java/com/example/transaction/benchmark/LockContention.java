@@ -0,0 +1,106 @@
+package com.example.transaction.benchmark;
+
+import com.example.transaction.service.lock.StripedUserLocks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * 对比按用户取锁的两种方式：原来的 ConcurrentHashMap&lt;String, ReentrantReadWriteLock&gt;(永不回收)与固定分段锁。
+ * <p>
+ * threads 个线程在 users 个不同用户名中随机选取，按 writePercent 的比例加写锁，其余加读锁，
+ * 锁内只做一次计数；运行 seconds 秒后统计吞吐，以及 Full GC 后锁结构占用的堆：
+ * <pre>
+ * mvn exec:exec -Dbenchmark.class=com.example.transaction.benchmark.LockContention \
+ *     -Dbenchmark.args="map 8 2000000 10 10" -Dbenchmark.heap=2g
+ * </pre>
+ */
+public final class LockContention {
+    private LockContention() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String type = args.length > 0 ? args[0] : "striped";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int users = args.length > 2 ? Integer.parseInt(args[2]) : 2_000_000;
+        int writePercent = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+
+        String[] userNames = new String[users];
+        for (int i = 0; i < users; i++) {
+            userNames[i] = "user" + i;
+        }
+        long baseline = usedHeapAfterGc();
+
+        Function<String, ReadWriteLock> locks = createLocks(type);
+        LongAdder operations = new LongAdder();
+        long[] counters = new long[1024];
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        for (int t = 0; t < threads; t++) {
+            Thread.ofPlatform().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long local = 0;
+                while ((local & 1023) != 0 || System.nanoTime() < deadline) {
+                    String userName = userNames[random.nextInt(users)];
+                    ReadWriteLock lock = locks.apply(userName);
+                    if (random.nextInt(100) < writePercent) {
+                        lock.writeLock().lock();
+                        try {
+                            counters[userName.hashCode() & 1023]++;
+                        } finally {
+                            lock.writeLock().unlock();
+                        }
+                    } else {
+                        lock.readLock().lock();
+                        try {
+                            Reference.reachabilityFence(counters[userName.hashCode() & 1023]);
+                        } finally {
+                            lock.readLock().unlock();
+                        }
+                    }
+                    local++;
+                }
+                operations.add(local);
+                done.countDown();
+            });
+        }
+        done.await();
+
+        long used = usedHeapAfterGc() - baseline;
+        System.out.printf("locks=%s threads=%d users=%d writePercent=%d opsPerSecond=%.0f lockHeapMiB=%.1f%n",
+                type, threads, users, writePercent, operations.sum() / (double) seconds, used / 1024.0 / 1024.0);
+        Reference.reachabilityFence(locks);
+        Reference.reachabilityFence(userNames);
+    }
+
+    private static Function<String, ReadWriteLock> createLocks(String type) {
+        switch (type) {
+            case "map": {
+                ConcurrentHashMap<String, ReentrantReadWriteLock> lockMap = new ConcurrentHashMap<>();
+                return userName -> lockMap.computeIfAbsent(userName, k -> new ReentrantReadWriteLock());
+            }
+            case "striped": {
+                StripedUserLocks userLocks = new StripedUserLocks(4096);
+                return userName -> userLocks.get(userName).asReadWriteLock();
+            }
+            default:
+                throw new IllegalArgumentException("未知的锁类型: " + type);
+        }
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
\ No newline at end of file
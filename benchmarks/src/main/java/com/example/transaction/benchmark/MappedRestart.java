@@ -0,0 +1,58 @@
+package com.example.transaction.benchmark;
+
+import com.example.transaction.repository.impl.MappedTransactionRepository;
+import org.springframework.data.domain.PageRequest;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * 测量 MappedTransactionRepository 重启后恢复服务的时间。
+ * <p>
+ * 目录为空时先写入 count 条交易并关闭，然后重新打开同一目录，分别统计：
+ * 映射文件耗时、首次按Id点查耗时、按用户索引重建完成(首次分页查询)耗时，以及恢复后的已用堆。
+ * <pre>
+ * mvn -f benchmarks/pom.xml exec:exec -Dbenchmark.class=com.example.transaction.benchmark.MappedRestart \
+ *     -Dbenchmark.args="/tmp/mapped 9000000" -Dbenchmark.heap=1g
+ * </pre>
+ */
+public final class MappedRestart {
+    private MappedRestart() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Path.of(args.length > 0 ? args[0] : "target/mapped");
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int users = Math.max(1, count / 100);
+
+        if (!Files.exists(directory.resolve("transactions.idx"))) {
+            long start = System.nanoTime();
+            try (MappedTransactionRepository repository = new MappedTransactionRepository(directory, count + 1)) {
+                Random random = new Random(42);
+                long now = System.currentTimeMillis();
+                for (long id = 1; id <= count; id++) {
+                    repository.save(BenchmarkData.randomTransaction(id, random, users, now));
+                }
+            }
+            System.out.printf("loaded count=%d loadMillis=%d%n", count, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        long start = System.nanoTime();
+        try (MappedTransactionRepository repository = new MappedTransactionRepository(directory, count + 1)) {
+            long openMillis = (System.nanoTime() - start) / 1_000_000;
+
+            repository.findByUserNameAndId("user0", count / 2);
+            long pointReadMillis = (System.nanoTime() - start) / 1_000_000;
+
+            long total = repository.findAllByUserName("user0", PageRequest.of(0, 1)).getTotalElements();
+            long recoveredMillis = (System.nanoTime() - start) / 1_000_000;
+
+            System.gc();
+            long usedHeap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            System.out.printf("count=%d openMillis=%d firstPointReadMillis=%d recoveredMillis=%d user0Transactions=%d heapMiB=%.1f%n",
+                    count, openMillis, pointReadMillis, recoveredMillis, total, usedHeap / 1024.0 / 1024.0);
+        }
+    }
+}
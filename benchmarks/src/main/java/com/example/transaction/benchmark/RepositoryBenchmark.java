@@ -0,0 +1,156 @@
+package com.example.transaction.benchmark;
+
+import com.example.transaction.model.Transaction;
+import com.example.transaction.repository.impl.InMemoryTransactionRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InMemoryTransactionRepository 各操作的单线程耗时，不经过服务层的锁。
+ * <p>
+ * 读操作在 {@value #USERS} 个用户、每个用户 perUser 条交易的仓库上执行，分页查询按 offset 定位；
+ * 写入与删除会改变数据量，用 SingleShotTime 每批执行 {@value #BATCH} 次，每轮迭代前重建数据，分数为一批的耗时：
+ * <pre>
+ * mvn exec:exec -Dbenchmark.class=org.openjdk.jmh.Main -Dbenchmark.heap=2g \
+ *     -Dbenchmark.args="RepositoryBenchmark -f 1 -wi 3 -i 5 -r 1s -rf json -rff target/repository.json"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RepositoryBenchmark {
+    static final int BATCH = 100_000;
+    private static final int USERS = 100;
+
+    @Param({"10000"})
+    public int perUser;
+
+    private InMemoryTransactionRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = filledRepository(perUser);
+    }
+
+    @Benchmark
+    public Optional<Transaction> findByUserNameAndId() {
+        long id = ThreadLocalRandom.current().nextLong(1, (long) USERS * perUser + 1);
+        return repository.findByUserNameAndId(userName(id), id);
+    }
+
+    @Benchmark
+    public Object findAllByUserName(PageState state) {
+        return repository.findAllByUserName(userName(ThreadLocalRandom.current().nextInt(USERS)), state.page);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = BATCH)
+    @Measurement(iterations = 5, batchSize = BATCH)
+    public Transaction save(WriteState state) {
+        long id = state.nextId++;
+        Transaction transaction = state.transactions[(int) (id % state.transactions.length)];
+        transaction.setId(id);
+        return state.repository.save(transaction);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = BATCH)
+    @Measurement(iterations = 5, batchSize = BATCH)
+    public Optional<Transaction> deleteByUserNameAndId(DeleteState state) {
+        long id = state.nextId++;
+        return state.repository.deleteByUserNameAndId(userName(id), id);
+    }
+
+    // 交易Id按用户轮转分配，由Id即可算出所属用户
+    private static String userName(long id) {
+        return "user" + (id % USERS);
+    }
+
+    private static InMemoryTransactionRepository filledRepository(int count) {
+        InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+        repository.setMaxSize(Integer.MAX_VALUE);
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        for (long id = 1; id <= (long) USERS * count; id++) {
+            Transaction transaction = BenchmarkData.randomTransaction(id, random, 1, now);
+            transaction.setUserName(userName(id));
+            repository.save(transaction);
+        }
+        return repository;
+    }
+
+    /**
+     * 每轮迭代从一个已有 perUser 条交易的仓库开始，追加新Id的交易；交易对象预先生成，写入时只改Id
+     */
+    @State(Scope.Thread)
+    public static class WriteState {
+        InMemoryTransactionRepository repository;
+        Transaction[] transactions;
+        long nextId;
+
+        @Setup(Level.Iteration)
+        public void setUp(RepositoryBenchmark benchmark) {
+            repository = filledRepository(benchmark.perUser);
+            nextId = (long) USERS * benchmark.perUser + 1;
+            Random random = new Random(7);
+            long now = System.currentTimeMillis();
+            // 每批 BATCH 次写入，每个Id对应不同的交易对象；BATCH 是 USERS 的整数倍，下标与Id所属用户一致
+            transactions = new Transaction[BATCH];
+            for (int i = 0; i < BATCH; i++) {
+                transactions[i] = BenchmarkData.randomTransaction(i, random, 1, now);
+                transactions[i].setUserName(userName(i));
+            }
+        }
+    }
+
+    /**
+     * 分页查询的起始位置，每页 20 条
+     */
+    @State(Scope.Benchmark)
+    public static class PageState {
+        @Param({"0", "1000", "9900"})
+        public int offset;
+
+        Pageable page;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            page = PageRequest.of(offset / 20, 20);
+        }
+    }
+
+    /**
+     * 每轮迭代重建仓库，按Id顺序删除，一批 BATCH 次删除不会超过已有数据量
+     */
+    @State(Scope.Thread)
+    public static class DeleteState {
+        InMemoryTransactionRepository repository;
+        long nextId;
+
+        @Setup(Level.Iteration)
+        public void setUp(RepositoryBenchmark benchmark) {
+            repository = filledRepository(Math.max(benchmark.perUser, BATCH / USERS));
+            nextId = 1;
+        }
+    }
+}
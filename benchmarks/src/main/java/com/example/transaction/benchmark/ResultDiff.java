@@ -0,0 +1,80 @@
+package com.example.transaction.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 对比两次 JMH 运行的 JSON 结果(-rf json -rff ...)，按 基准 + 模式 + 参数 配对，输出两次的分数与变化百分比：
+ * <pre>
+ * mvn exec:exec -Dbenchmark.class=com.example.transaction.benchmark.ResultDiff \
+ *     -Dbenchmark.args="baseline/repository.json target/repository.json" -Dbenchmark.heap=256m
+ * </pre>
+ * 输出为制表符分隔的文本，只在一侧出现的基准也会列出。吞吐模式分数越大越好，其余模式越小越好。
+ */
+public final class ResultDiff {
+    private ResultDiff() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("用法: ResultDiff <基线结果.json> <本次结果.json>");
+        }
+        Map<String, JsonNode> baseline = load(Path.of(args[0]));
+        Map<String, JsonNode> current = load(Path.of(args[1]));
+
+        System.out.println("benchmark\tmode\tunit\tbaseline\tcurrent\tchange%");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.remove(entry.getKey());
+            print(entry.getKey(), before, entry.getValue());
+        }
+        for (Map.Entry<String, JsonNode> entry : baseline.entrySet()) {
+            print(entry.getKey(), entry.getValue(), null);
+        }
+    }
+
+    private static void print(String key, JsonNode before, JsonNode after) {
+        JsonNode any = after != null ? after : before;
+        String mode = any.path("mode").asText();
+        String unit = any.path("primaryMetric").path("scoreUnit").asText();
+        String change = "";
+        if (before != null && after != null) {
+            double base = score(before);
+            change = base == 0 ? "" : String.format("%+.1f", (score(after) - base) / base * 100);
+        }
+        System.out.printf("%s\t%s\t%s\t%s\t%s\t%s%n", key, mode, unit, format(before), format(after), change);
+    }
+
+    // 键为 基准名 + 模式 + 参数，同一基准不同参数分开对比
+    private static Map<String, JsonNode> load(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            key.append(':').append(result.path("mode").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static double score(JsonNode result) {
+        return result.path("primaryMetric").path("score").asDouble();
+    }
+
+    private static String format(JsonNode result) {
+        if (result == null) {
+            return "-";
+        }
+        JsonNode metric = result.path("primaryMetric");
+        return String.format("%.3f ± %.3f", metric.path("score").asDouble(), metric.path("scoreError").asDouble());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.transaction.benchmark;
+
+import com.example.transaction.dto.TransactionRequest;
+import com.example.transaction.model.Transaction;
+import com.example.transaction.repository.impl.InMemoryTransactionRepository;
+import com.example.transaction.service.id.SequentialIdGenerator;
+import com.example.transaction.service.id.SnowflakeIdGenerator;
+import com.example.transaction.service.idempotency.IdempotencyRegistry;
+import com.example.transaction.service.impl.TransactionServiceImpl;
+import com.example.transaction.service.lock.StripedUserLocks;
+import com.example.transaction.service.metrics.TransactionMetrics;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程调用 createTransaction 的吞吐：uniform 在全部用户中均匀选取，几乎没有同一用户的锁竞争；
+ * zipfian 按 Zipf(0.99) 选取，少数热点用户集中了大部分写入，线程在同一把用户写锁上排队。
+ * <p>
+ * memory 仓库、无预写日志、无缓存，每轮迭代重建服务；每个线程的请求预先生成且金额各不相同，不会被内容去重拦截。
+ * metrics=on 与 off 的吞吐之差即锁、仓库、去重检查等指标的开销，unsampled 为每次操作都计时(sample-rate=1)；ids=sequential 时所有线程竞争同一个Id计数器，
+ * snowflake 按用户分到 16 个计数器。线程数通过 -t 指定：
+ * <pre>
+ * mvn exec:exec -Dbenchmark.class=org.openjdk.jmh.Main -Dbenchmark.heap=2g \
+ *     -Dbenchmark.args="ServiceCreateBenchmark -t 8 -f 1 -wi 3 -i 5 -r 1s -rf json -rff target/service.json"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ServiceCreateBenchmark {
+    private static final int REQUESTS_PER_THREAD = 1 << 16;
+
+    @Param({"uniform", "zipfian"})
+    public String distribution;
+
+    @Param({"100000"})
+    public int users;
+
+    // off：不记录指标；on：与服务默认配置相同，Prometheus 注册表、每 16 次操作采样一次；unsampled：每次操作都计时
+    @Param({"off", "on", "unsampled"})
+    public String metrics;
+
+    @Param({"snowflake", "sequential"})
+    public String ids;
+
+    private TransactionServiceImpl transactionService;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+        repository.setMaxSize(Integer.MAX_VALUE);
+        StripedUserLocks userLocks = new StripedUserLocks(4096);
+        // 去重窗口 1ms：同一请求循环一轮远超过 1ms，窗口内的记录也不会随运行时间增长
+        transactionService = TransactionServiceImpl.builder()
+                .transactionRepository(repository)
+                .userLocks(userLocks)
+                .idempotencyRegistry(new IdempotencyRegistry(userLocks, 1, 1 << 20))
+                .metrics("off".equals(metrics)
+                        ? TransactionMetrics.disabled()
+                        : new TransactionMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT),
+                                "on".equals(metrics) ? 16 : 1))
+                .idGenerator("sequential".equals(ids)
+                        ? new SequentialIdGenerator()
+                        : new SnowflakeIdGenerator(userLocks, 0, 16))
+                .build();
+    }
+
+    @Benchmark
+    public Transaction create(Requests requests) {
+        TransactionRequest request = requests.requests[requests.next];
+        requests.next = (requests.next + 1) & (REQUESTS_PER_THREAD - 1);
+        return transactionService.createTransaction(request);
+    }
+
+    /**
+     * 每个线程一组请求，用户按分布预先抽取；金额按线程和下标编号，线程之间、同一线程内都不重复
+     */
+    @State(Scope.Thread)
+    public static class Requests {
+        TransactionRequest[] requests;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ServiceCreateBenchmark benchmark, ThreadParams threadParams) {
+            int thread = threadParams.getThreadIndex();
+            Random random = new Random(42 + thread);
+            double exponent = "zipfian".equals(benchmark.distribution) ? 0.99 : 0;
+            int[] userIndexes = BenchmarkData.zipfianUsers(benchmark.users, REQUESTS_PER_THREAD, exponent, random);
+            requests = new TransactionRequest[REQUESTS_PER_THREAD];
+            for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                TransactionRequest request = new TransactionRequest();
+                request.setUserName("user" + userIndexes[i]);
+                request.setAmount(BigDecimal.valueOf((long) thread * REQUESTS_PER_THREAD + i + 1, 2));
+                request.setType(Transaction.TransactionType.DEPOSIT);
+                request.setDescription("备注" + random.nextInt(1000));
+                requests[i] = request;
+            }
+        }
+    }
+}
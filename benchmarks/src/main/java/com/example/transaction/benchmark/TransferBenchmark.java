@@ -0,0 +1,94 @@
+package com.example.transaction.benchmark;
+
+import com.example.transaction.dto.TransactionRequest;
+import com.example.transaction.model.Transaction;
+import com.example.transaction.repository.impl.InMemoryTransactionRepository;
+import com.example.transaction.service.id.SnowflakeIdGenerator;
+import com.example.transaction.service.idempotency.IdempotencyRegistry;
+import com.example.transaction.service.impl.TransactionServiceImpl;
+import com.example.transaction.service.lock.StripedUserLocks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程交叉转账的吞吐：每笔转账按分段顺序同时持有转出方和接收方的写锁。
+ * users=2 时所有线程都在 A→B 与 B→A 之间来回转账，两把锁完全冲突，检验不会死锁、吞吐不会塌陷到远低于串行；
+ * users=16 为少数用户之间的高竞争；users=100000 几乎没有竞争，与 ServiceCreateBenchmark 的 uniform 对比即两把锁和两条记录的开销。
+ * <p>
+ * memory 仓库、无预写日志、无缓存，每轮迭代重建服务；请求预先生成，金额各不相同，不会被内容去重拦截。线程数通过 -t 指定：
+ * <pre>
+ * mvn exec:exec -Dbenchmark.class=org.openjdk.jmh.Main -Dbenchmark.heap=2g \
+ *     -Dbenchmark.args="TransferBenchmark -t 8 -f 1 -wi 3 -i 5 -r 1s -rf json -rff target/transfer.json"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransferBenchmark {
+    private static final int REQUESTS_PER_THREAD = 1 << 16;
+
+    @Param({"2", "16", "100000"})
+    public int users;
+
+    private TransactionServiceImpl transactionService;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+        repository.setMaxSize(Integer.MAX_VALUE);
+        StripedUserLocks userLocks = new StripedUserLocks(4096);
+        // 去重窗口 1ms，与 ServiceCreateBenchmark 相同
+        transactionService = TransactionServiceImpl.builder()
+                .transactionRepository(repository)
+                .userLocks(userLocks)
+                .idempotencyRegistry(new IdempotencyRegistry(userLocks, 1, 1 << 20))
+                .idGenerator(new SnowflakeIdGenerator(userLocks, 0, 16))
+                .build();
+    }
+
+    @Benchmark
+    public Transaction transfer(Requests requests) {
+        TransactionRequest request = requests.requests[requests.next];
+        requests.next = (requests.next + 1) & (REQUESTS_PER_THREAD - 1);
+        return transactionService.createTransaction(request);
+    }
+
+    /**
+     * 每个线程一组转账，转出方和接收方均匀选取且不相同，同一对用户两个方向的转账各占一半；金额按线程和下标编号
+     */
+    @State(Scope.Thread)
+    public static class Requests {
+        TransactionRequest[] requests;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(TransferBenchmark benchmark, ThreadParams threadParams) {
+            int thread = threadParams.getThreadIndex();
+            Random random = new Random(42 + thread);
+            requests = new TransactionRequest[REQUESTS_PER_THREAD];
+            for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                int from = random.nextInt(benchmark.users);
+                int to = (from + 1 + random.nextInt(benchmark.users - 1)) % benchmark.users;
+                TransactionRequest request = new TransactionRequest();
+                request.setUserName("user" + from);
+                request.setToUserName("user" + to);
+                request.setAmount(BigDecimal.valueOf((long) thread * REQUESTS_PER_THREAD + i + 1, 2));
+                request.setType(Transaction.TransactionType.TRANSFER);
+                request.setDescription("转账");
+                requests[i] = request;
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.transaction.benchmark;
+
+import com.example.transaction.model.Transaction;
+import com.example.transaction.repository.impl.InMemoryTransactionRepository;
+import com.example.transaction.service.lock.StripedUserLocks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * 热点用户上 N 个读线程对 1 个写线程：对比原来每次读都加 ReentrantReadWriteLock 读锁，与服务现在的 StampedLock 乐观读。
+ * <p>
+ * 两种模式访问同一个 InMemoryTransactionRepository，只有加锁方式不同；optimistic 与 TransactionServiceImpl.readUser
+ * 相同：先乐观读，校验失败再加读锁。写线程不断覆盖该用户的交易。读线程数通过 -tg 指定(读,写)：
+ * <pre>
+ * mvn exec:exec -Dbenchmark.class=org.openjdk.jmh.Main -Dbenchmark.heap=1g \
+ *     -Dbenchmark.args="UserReadBenchmark -tg 8,1 -f 1 -wi 3 -i 5 -r 2s"
+ * </pre>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserReadBenchmark {
+    private static final String HOT_USER = "hotUser";
+    private static final int TRANSACTIONS = 10_000;
+
+    @Param({"readLock", "optimistic"})
+    public String mode;
+
+    private InMemoryTransactionRepository repository;
+    private final ReentrantReadWriteLock legacyLock = new ReentrantReadWriteLock();
+    private final StampedLock stampedLock = new StripedUserLocks(4096).get(HOT_USER);
+    private final Pageable page = PageRequest.of(3, 20);
+    private boolean optimistic;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        optimistic = "optimistic".equals(mode);
+        repository = new InMemoryTransactionRepository();
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        for (long id = 1; id <= TRANSACTIONS; id++) {
+            repository.save(hotUserTransaction(id, random, now));
+        }
+    }
+
+    @Benchmark
+    @Group("pointRead")
+    @GroupThreads(1)
+    public Object pointRead() {
+        long id = ThreadLocalRandom.current().nextLong(1, TRANSACTIONS + 1);
+        return read(() -> repository.findByUserNameAndId(HOT_USER, id));
+    }
+
+    @Benchmark
+    @Group("pointRead")
+    @GroupThreads(1)
+    public Transaction pointReadWriter() {
+        return write();
+    }
+
+    @Benchmark
+    @Group("pageRead")
+    @GroupThreads(1)
+    public Object pageRead() {
+        return read(() -> repository.findAllByUserName(HOT_USER, page));
+    }
+
+    @Benchmark
+    @Group("pageRead")
+    @GroupThreads(1)
+    public Transaction pageReadWriter() {
+        return write();
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        if (!optimistic) {
+            legacyLock.readLock().lock();
+            try {
+                return reader.get();
+            } finally {
+                legacyLock.readLock().unlock();
+            }
+        }
+        long stamp = stampedLock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (stampedLock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (stampedLock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = stampedLock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            stampedLock.unlockRead(stamp);
+        }
+    }
+
+    private Transaction write() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Transaction transaction = hotUserTransaction(random.nextLong(1, TRANSACTIONS + 1), random, System.currentTimeMillis());
+        if (!optimistic) {
+            legacyLock.writeLock().lock();
+            try {
+                return repository.save(transaction);
+            } finally {
+                legacyLock.writeLock().unlock();
+            }
+        }
+        long stamp = stampedLock.writeLock();
+        try {
+            return repository.save(transaction);
+        } finally {
+            stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    private static Transaction hotUserTransaction(long id, Random random, long now) {
+        Transaction transaction = BenchmarkData.randomTransaction(id, random, 1, now);
+        transaction.setUserName(HOT_USER);
+        transaction.setAmount(BigDecimal.valueOf(random.nextInt(100_000), 2));
+        return transaction;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+#!/usr/bin/env bash
+# 平台线程池与虚拟线程对比压测
+# 依次以 platform、virtual 两种模式启动服务，先跑 testcase-create.jmx 写入数据，再跑 pageread.jmx，
+# 结果(jtl 与 HTML 报告)写入 jmeter/results/<模式>/，最后打印两种模式的吞吐和延迟分位数。
+#
+# 用法: jmeter/compare-threads.sh [压测线程数] [每个计划持续秒数]
+# 依赖: JDK 21、Maven、jmeter 在 PATH 中
+set -euo pipefail
+
+THREADS=${1:-200}
+DURATION=${2:-300}
+PORT=${PORT:-8080}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+RESULTS="$ROOT/jmeter/results"
+
+cd "$ROOT"
+mvn -B -q package -DskipTests
+JAR=$(ls target/bank-transaction-service-*-exec.jar | head -1)
+
+run_mode() {
+    local mode=$1 virtual=$2
+    local out="$RESULTS/$mode"
+    rm -rf "$out" && mkdir -p "$out"
+
+    java -Xms2g -Xmx2g -jar "$JAR" --server.port="$PORT" \
+        --spring.threads.virtual.enabled="$virtual" > "$out/server.log" 2>&1 &
+    local pid=$!
+    trap "kill $pid 2>/dev/null || true" EXIT
+    until curl -s -o /dev/null "http://localhost:$PORT/"; do
+        sleep 1
+    done
+
+    for plan in testcase-create pageread; do
+        jmeter -n -t "jmeter/$plan.jmx" -Jthreads="$THREADS" -Jduration="$DURATION" -Jport="$PORT" \
+            -l "$out/$plan.jtl" -e -o "$out/$plan-report" > "$out/$plan.log"
+    done
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    trap - EXIT
+}
+
+run_mode platform false
+run_mode virtual true
+
+# jtl 列: timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType,success,...
+printf "%-10s %-16s %10s %10s %6s %6s %6s %8s\n" mode plan samples tps p50 p99 p999 errors
+for mode in platform virtual; do
+    for plan in testcase-create pageread; do
+        jtl="$RESULTS/$mode/$plan.jtl"
+        tail -n +2 "$jtl" | cut -d, -f1,2,8 | sort -t, -k2,2n | awk -F, -v mode="$mode" -v plan="$plan" '
+            { n++; e[n] = $2; if ($3 != "true") err++
+              if (min == "" || $1 < min) min = $1; if ($1 > max) max = $1 }
+            END {
+                printf "%-10s %-16s %10d %10.0f %6d %6d %6d %7.3f%%\n", mode, plan, n, n * 1000 / (max - min),
+                    e[int(n * 0.5)], e[int(n * 0.99)], e[int(n * 0.999)], err * 100 / n
+            }'
+    done
+done
\ No newline at end of file
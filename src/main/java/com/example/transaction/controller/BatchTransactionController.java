@@ -0,0 +1,39 @@
+package com.example.transaction.controller;
+
+import com.example.transaction.dto.BatchResult;
+import com.example.transaction.dto.TransactionRequest;
+import com.example.transaction.service.TransactionService;
+import com.example.transaction.service.cluster.ClusterRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequiredArgsConstructor
+public class BatchTransactionController {
+
+    private final TransactionService transactionService;
+
+    // 只在开启集群时存在
+    private final ObjectProvider<ClusterRouter> clusterRouter;
+
+    // 一批交易可以属于多个用户，用户名取自每条请求；逐条校验，结果按条目返回，部分失败不影响其余条目。
+    // 开启集群时按用户所属节点拆分，其他节点的条目转发过去
+    @PostMapping("/api/v1/transactions:batch")
+    public CompletableFuture<ResponseEntity<BatchResult>> createTransactions(
+            @RequestHeader(value = ClusterRouter.FORWARDED_HEADER, required = false) String forwardedBy,
+            @RequestBody List<TransactionRequest> requests) {
+        ClusterRouter router = clusterRouter.getIfAvailable();
+        CompletableFuture<BatchResult> result = router == null
+                ? transactionService.createTransactionsAsync(requests)
+                : router.createTransactions(requests, forwardedBy != null, transactionService::createTransactionsAsync);
+        return result.thenApply(ResponseEntity::ok);
+    }
+}
@@ -1,15 +1,31 @@
 package com.example.transaction.controller;
 
+import com.example.transaction.dto.CursorPage;
 import com.example.transaction.dto.TransactionRequest;
+import com.example.transaction.model.Money;
 import com.example.transaction.model.Transaction;
+import com.example.transaction.model.TransactionFilter;
 import com.example.transaction.service.TransactionService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.math.BigDecimal;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/v1/users/{userName}/transactions")
@@ -18,29 +34,35 @@ public class TransactionController {
 
     private final TransactionService transactionService;
 
+    private final ObjectMapper objectMapper;
+
+    // 修改接口返回 CompletableFuture，分片执行模式下请求线程不等待修改完成
     @PostMapping
-    public ResponseEntity<Transaction> createTransaction(
+    public CompletableFuture<ResponseEntity<Transaction>> createTransaction(
             @PathVariable String userName,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody TransactionRequest request) {
         request.setUserName(userName);
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(transactionService.createTransaction(request));
+        request.setIdempotencyKey(idempotencyKey);
+        return transactionService.createTransactionAsync(request)
+                .thenApply(transaction -> ResponseEntity.status(HttpStatus.CREATED).body(transaction));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Transaction> updateTransaction(
+    public CompletableFuture<ResponseEntity<Transaction>> updateTransaction(
             @PathVariable String userName,
             @PathVariable String id,
             @Valid @RequestBody TransactionRequest request) {
-        return ResponseEntity.ok(transactionService.updateTransaction(userName, id, request));
+        return transactionService.updateTransactionAsync(userName, id, request)
+                .thenApply(ResponseEntity::ok);
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteTransaction(
+    public CompletableFuture<ResponseEntity<Void>> deleteTransaction(
             @PathVariable String userName,
             @PathVariable String id) {
-        transactionService.deleteTransaction(userName, id);
-        return ResponseEntity.noContent().build();
+        return transactionService.deleteTransactionAsync(userName, id)
+                .thenApply(ignored -> ResponseEntity.noContent().<Void>build());
     }
 
     @GetMapping("/{id}")
@@ -56,4 +78,68 @@ public class TransactionController {
             Pageable pageable) {
         return ResponseEntity.ok(transactionService.getAllTransactions(userName, pageable));
     }
-} 
\ No newline at end of file
+
+    // from/to 为创建时间(毫秒)，给出任一个时只返回该时间范围内的交易；
+    // type(可重复)、minAmount、maxAmount 按类型和金额(含两端)筛选，暂不能与时间范围同时使用
+    @GetMapping(params = "after")
+    public ResponseEntity<CursorPage<Transaction>> getTransactionsAfter(
+            @PathVariable String userName,
+            @RequestParam String after,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(required = false) Set<Transaction.TransactionType> type,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount) {
+        boolean filtered = (type != null && !type.isEmpty()) || minAmount != null || maxAmount != null;
+        if (filtered) {
+            if (from != null || to != null) {
+                throw new IllegalArgumentException("时间范围暂不能与类型、金额筛选同时使用");
+            }
+            Set<Transaction.TransactionType> types = EnumSet.noneOf(Transaction.TransactionType.class);
+            if (type != null) {
+                types.addAll(type);
+            }
+            TransactionFilter filter = new TransactionFilter(types,
+                    minAmount == null ? Long.MIN_VALUE : Money.boundCents(minAmount),
+                    maxAmount == null ? Long.MAX_VALUE : Money.boundCents(maxAmount));
+            return ResponseEntity.ok(transactionService.getTransactionsMatching(userName, filter, after, size));
+        }
+        if (from == null && to == null) {
+            return ResponseEntity.ok(transactionService.getTransactionsAfter(userName, after, size));
+        }
+        return ResponseEntity.ok(transactionService.getTransactionsBetween(userName,
+                from == null ? Long.MIN_VALUE : from, to == null ? Long.MAX_VALUE : to, after, size));
+    }
+
+    // 用户收到的转账(转出方的转账记录)，按游标分页，after 为空时从头开始
+    @GetMapping("/incoming")
+    public ResponseEntity<CursorPage<Transaction>> getIncomingTransfers(
+            @PathVariable String userName,
+            @RequestParam(defaultValue = "") String after,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(transactionService.getIncomingTransfersAfter(userName, after, size));
+    }
+
+    // 以 NDJSON 流式导出用户全部交易：每行一条，边遍历边写出，不构造分页对象
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(@PathVariable String userName) {
+        Stream<Transaction> transactions = transactionService.exportTransactions(userName);
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (transactions; JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                // 多个根值写入同一个生成器时 Jackson 默认用空格分隔，换行由这里自己写出
+                generator.setRootValueSeparator(null);
+                Iterator<Transaction> iterator = transactions.iterator();
+                while (iterator.hasNext()) {
+                    writer.writeValue(generator, iterator.next());
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
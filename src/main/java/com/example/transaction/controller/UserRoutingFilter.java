@@ -0,0 +1,147 @@
+package com.example.transaction.controller;
+
+import com.example.transaction.service.cluster.ClusterRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * /api/v1/users/{userName}/... 的请求在进入控制器之前按用户所属节点路由：本节点的用户照常处理，
+ * 其他节点的用户转发过去并原样返回状态码、响应头(逐跳头除外)和响应体(forward)，或返回 307 和所属节点的地址(redirect，307 保留方法和请求体)。
+ * 转发的响应体边读边写，导出接口的流式响应不会整体缓存在本节点。
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.cluster.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class UserRoutingFilter extends OncePerRequestFilter {
+    private static final String USERS_PATH = "/api/v1/users/";
+    // 421 Misdirected Request：转发过一次的请求仍不属于收到的节点
+    private static final int MISDIRECTED_REQUEST = 421;
+    // 随请求转发的请求头，Host、Content-Length 等由 HttpClient 生成
+    private static final List<String> FORWARDED_HEADERS =
+            List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.ACCEPT, "Idempotency-Key");
+    // 不复制到响应的逐跳头(RFC 9110 7.6.1)；Content-Length 由本节点的容器按实际写出的响应体生成
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of("connection", "keep-alive", "proxy-connection",
+            "proxy-authenticate", "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade",
+            "content-length");
+
+    private final ClusterRouter clusterRouter;
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + USERS_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String userName = userName(request);
+        if (userName.isEmpty() || clusterRouter.isLocal(userName)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String owner = clusterRouter.ownerOf(userName);
+        if (request.getHeader(ClusterRouter.FORWARDED_HEADER) != null) {
+            error(response, MISDIRECTED_REQUEST, "用户 " + userName + " 不属于本节点，各节点的集群配置不一致");
+            return;
+        }
+        String target = owner + request.getRequestURI()
+                + (request.getQueryString() == null ? "" : "?" + request.getQueryString());
+        if (clusterRouter.isRedirect()) {
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader(HttpHeaders.LOCATION, target);
+            return;
+        }
+        forward(request, response, owner, target);
+    }
+
+    private void forward(HttpServletRequest request, HttpServletResponse response, String owner, String target)
+            throws IOException {
+        HttpRequest.Builder builder = clusterRouter.newRequest(target);
+        for (String name : FORWARDED_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                builder.header(name, value);
+            }
+        }
+        byte[] body = request.getInputStream().readAllBytes();
+        builder.method(request.getMethod(), body.length == 0
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofByteArray(body));
+
+        HttpResponse<InputStream> forwarded;
+        try {
+            forwarded = clusterRouter.send(builder.build());
+        } catch (IOException e) {
+            error(response, HttpStatus.SERVICE_UNAVAILABLE.value(), "转发到节点 " + owner + " 失败: " + e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error(response, HttpStatus.SERVICE_UNAVAILABLE.value(), "转发到节点 " + owner + " 被中断");
+            return;
+        }
+        try (InputStream in = forwarded.body()) {
+            response.setStatus(forwarded.statusCode());
+            copyHeaders(forwarded.headers(), response);
+            in.transferTo(response.getOutputStream());
+        }
+    }
+
+    // 复制所属节点的响应头，跳过逐跳头以及 Connection 头中列出的头
+    private static void copyHeaders(java.net.http.HttpHeaders headers, HttpServletResponse response) {
+        Set<String> connectionOptions = new HashSet<>();
+        for (String value : headers.allValues(HttpHeaders.CONNECTION)) {
+            for (String option : value.split(",")) {
+                connectionOptions.add(option.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        headers.map().forEach((name, values) -> {
+            String lowerName = name.toLowerCase(Locale.ROOT);
+            if (lowerName.startsWith(":") || HOP_BY_HOP_HEADERS.contains(lowerName)
+                    || connectionOptions.contains(lowerName)) {
+                return;
+            }
+            for (String value : values) {
+                response.addHeader(name, value);
+            }
+        });
+    }
+
+    // 路径中的用户名段，按 UTF-8 解码，与控制器的 @PathVariable 一致
+    private static String userName(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length() + USERS_PATH.length());
+        int end = path.indexOf('/');
+        return UriUtils.decode(end < 0 ? path : path.substring(0, end), StandardCharsets.UTF_8);
+    }
+
+    // 与 GlobalExceptionHandler 相同的错误格式，过滤器中的错误不经过它
+    private void error(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", message));
+    }
+}
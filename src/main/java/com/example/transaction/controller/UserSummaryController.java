@@ -0,0 +1,22 @@
+package com.example.transaction.controller;
+
+import com.example.transaction.model.UserSummary;
+import com.example.transaction.service.TransactionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+public class UserSummaryController {
+
+    private final TransactionService transactionService;
+
+    // 余额与各类交易合计，由仓库随写入维护，不遍历交易
+    @GetMapping("/api/v1/users/{userName}/summary")
+    public ResponseEntity<UserSummary> getSummary(@PathVariable String userName) {
+        return ResponseEntity.ok(transactionService.getSummary(userName));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.transaction.dto;
+
+import com.example.transaction.model.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量请求中单条交易的处理结果，index 为该条在请求列表中的下标
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResult {
+    private int index;
+    private Status status;
+    private Transaction transaction;
+    private String error;
+
+    public static BatchItemResult created(int index, Transaction transaction) {
+        return new BatchItemResult(index, Status.CREATED, transaction, null);
+    }
+
+    public static BatchItemResult failed(int index, String error) {
+        return new BatchItemResult(index, Status.FAILED, null, error);
+    }
+
+    public enum Status {
+        CREATED, FAILED
+    }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.example.transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 批量新增结果，items 与请求列表一一对应
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResult {
+    private int succeeded;
+    private int failed;
+    private List<BatchItemResult> items;
+
+    public static BatchResult of(BatchItemResult[] items) {
+        int succeeded = (int) Arrays.stream(items)
+                .filter(item -> item.getStatus() == BatchItemResult.Status.CREATED)
+                .count();
+        return new BatchResult(succeeded, items.length - succeeded, Arrays.asList(items));
+    }
+}
\ No newline at end of file
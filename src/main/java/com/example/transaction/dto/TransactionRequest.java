@@ -1,6 +1,7 @@
 package com.example.transaction.dto;
 
 import com.example.transaction.model.Transaction.TransactionType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.*;
 import lombok.Data;
 
@@ -26,4 +27,8 @@ public class TransactionRequest {
 
     @Size(max = 20, message = "描述长度不能超过20")
     private String description;
+
+    // 来自请求头 Idempotency-Key，不从请求体读取
+    @JsonIgnore
+    private String idempotencyKey;
 } 
\ No newline at end of file
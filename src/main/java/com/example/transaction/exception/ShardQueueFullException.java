@@ -0,0 +1,7 @@
+package com.example.transaction.exception;
+
+public class ShardQueueFullException extends RuntimeException {
+    public ShardQueueFullException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
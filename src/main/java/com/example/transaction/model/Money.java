@@ -0,0 +1,117 @@
+package com.example.transaction.model;
+
+import java.math.BigDecimal;
+
+/**
+ * 金额以 long 分保存。校验与转换只读取 BigDecimal 的 scale/signum/precision 和紧凑表示的 double 值，
+ * 不创建中间 BigDecimal/BigInteger；文本金额直接逐字符解析为分。
+ */
+public final class Money {
+    // 整数部分最多 9 位，小数最多 2 位
+    public static final long MAX_CENTS = 999_999_999_99L;
+
+    private Money() {
+    }
+
+    /**
+     * 校验请求金额并转换为分：大于0、小数不超过2位、整数不超过9位
+     *
+     * @throws IllegalArgumentException 不满足上述条件
+     */
+    public static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            throw new IllegalArgumentException("交易金额不能为空");
+        }
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("交易金额必须大于0");
+        }
+        if (amount.scale() > 2) {
+            throw new IllegalArgumentException("交易金额小数位不能超过2位");
+        }
+        if (amount.precision() - amount.scale() > 9) {
+            throw new IllegalArgumentException("交易金额整数位不能超过9位");
+        }
+        return exactCents(amount);
+    }
+
+    /**
+     * 不做业务校验的转换，用于已经落库的数据；小数超过2位时抛出 ArithmeticException
+     */
+    public static long exactCents(BigDecimal amount) {
+        int scale = amount.scale();
+        // 不超过 2^52 的紧凑值 doubleValue 是一次整数除法，乘回 100 后四舍五入即为精确的分
+        if (scale >= 0 && scale <= 2 && amount.precision() <= 15) {
+            return Math.round(amount.doubleValue() * 100);
+        }
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    /**
+     * 筛选条件中的金额上下界转换为分：只要求小数不超过2位，允许0和负数；
+     * 整数超过9位时已超出任何交易金额，按正负返回 long 的最大或最小值
+     *
+     * @throws IllegalArgumentException 小数超过2位
+     */
+    public static long boundCents(BigDecimal amount) {
+        if (amount.scale() > 2) {
+            throw new IllegalArgumentException("金额筛选条件小数位不能超过2位");
+        }
+        if (amount.precision() - amount.scale() > 9) {
+            return amount.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+        return exactCents(amount);
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * 把 "123"、"123.4"、"123.45" 形式的文本直接解析为分，规则与 {@link #toCents(BigDecimal)} 相同
+     *
+     * @throws IllegalArgumentException 格式不合法或不满足金额规则
+     */
+    public static long parseCents(CharSequence text) {
+        int length = text.length();
+        if (length == 0) {
+            throw new IllegalArgumentException("交易金额不能为空");
+        }
+        long units = 0;
+        boolean sawInteger = false;
+        int integerDigits = 0;
+        int fractionDigits = -1;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && fractionDigits < 0 && sawInteger) {
+                fractionDigits = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("交易金额格式异常: " + text);
+            }
+            if (fractionDigits >= 0) {
+                if (++fractionDigits > 2) {
+                    throw new IllegalArgumentException("交易金额小数位不能超过2位");
+                }
+            } else {
+                sawInteger = true;
+                // 前导零不计入整数位
+                if ((units > 0 || c != '0') && ++integerDigits > 9) {
+                    throw new IllegalArgumentException("交易金额整数位不能超过9位");
+                }
+            }
+            units = units * 10 + (c - '0');
+        }
+        if (!sawInteger || fractionDigits == 0) {
+            throw new IllegalArgumentException("交易金额格式异常: " + text);
+        }
+        long cents = units;
+        for (int i = Math.max(fractionDigits, 0); i < 2; i++) {
+            cents *= 10;
+        }
+        if (cents <= 0) {
+            throw new IllegalArgumentException("交易金额必须大于0");
+        }
+        return cents;
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.transaction.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import jakarta.validation.constraints.*;
 import lombok.Data;
 import lombok.Builder;
@@ -12,6 +14,8 @@ import java.math.BigDecimal;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonPropertyOrder({"id", "userName", "toUserName", "amount", "type", "description",
+        "createTimestamp", "updateTimestamp"})
 public class Transaction {
     @NotNull
     private long id;
@@ -23,11 +27,11 @@ public class Transaction {
     @Size(min = 1, max = 20, message = "接收方用户名长度必须在1-20之间")
     private String toUserName;
 
-    @NotNull
+    // 金额按分保存，对外(JSON、BigDecimal 访问器)仍是两位小数的元
+    @JsonIgnore
     @Positive(message = "金额必须大于0")
-    @DecimalMax(value = "999999999.99", message = "金额不能超过999,999,999.99")
-    @Digits(integer = 9, fraction = 2, message = "金额整数部分不能超过9位，小数部分不能超过2位")
-    private BigDecimal amount;
+    @Max(value = Money.MAX_CENTS, message = "金额不能超过999,999,999.99")
+    private long amountCents;
 
     @NotNull
     private TransactionType type;
@@ -40,7 +44,24 @@ public class Transaction {
     @NotNull
     private long updateTimestamp;
 
+    public BigDecimal getAmount() {
+        return Money.toBigDecimal(amountCents);
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amountCents = amount == null ? 0 : Money.exactCents(amount);
+    }
+
     public enum TransactionType {
-        DEPOSIT, WITHDRAWAL, TRANSFER
+        DEPOSIT, WITHDRAWAL, TRANSFER,
+        // 转账在接收方一侧的记录，由转账同时写入，Id 为转出记录的Id + 1，toUserName 为转出方
+        TRANSFER_IN
+    }
+
+    public static class TransactionBuilder {
+        public TransactionBuilder amount(BigDecimal amount) {
+            this.amountCents = amount == null ? 0 : Money.exactCents(amount);
+            return this;
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,30 @@
+package com.example.transaction.model;
+
+import com.example.transaction.model.Transaction.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 按交易类型和金额范围(分，含两端)筛选交易；types 为空表示不限类型
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionFilter {
+    private Set<TransactionType> types = EnumSet.noneOf(TransactionType.class);
+    private long minAmountCents = Long.MIN_VALUE;
+    private long maxAmountCents = Long.MAX_VALUE;
+
+    public boolean matches(Transaction transaction) {
+        return (types.isEmpty() || types.contains(transaction.getType()))
+                && matchesAmount(transaction.getAmountCents());
+    }
+
+    public boolean matchesAmount(long amountCents) {
+        return amountCents >= minAmountCents && amountCents <= maxAmountCents;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.transaction.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 用户的余额与各类交易合计，由仓库随写入增量维护。金额按分保存，对外(JSON)为两位小数的元。
+ * count 为该用户的交易条数，包括转账在接收方一侧的转入记录
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"userName", "count", "balance", "deposits", "withdrawals", "transfersIn", "transfersOut"})
+public class UserSummary {
+    private String userName;
+    private long count;
+    @JsonIgnore
+    private long depositCents;
+    @JsonIgnore
+    private long withdrawalCents;
+    @JsonIgnore
+    private long transferInCents;
+    @JsonIgnore
+    private long transferOutCents;
+
+    /**
+     * 余额 = 存入 + 转入 - 取出 - 转出，不做透支检查，可以为负
+     */
+    @JsonIgnore
+    public long getBalanceCents() {
+        return depositCents + transferInCents - withdrawalCents - transferOutCents;
+    }
+
+    public BigDecimal getBalance() {
+        return Money.toBigDecimal(getBalanceCents());
+    }
+
+    public BigDecimal getDeposits() {
+        return Money.toBigDecimal(depositCents);
+    }
+
+    public BigDecimal getWithdrawals() {
+        return Money.toBigDecimal(withdrawalCents);
+    }
+
+    public BigDecimal getTransfersIn() {
+        return Money.toBigDecimal(transferInCents);
+    }
+
+    public BigDecimal getTransfersOut() {
+        return Money.toBigDecimal(transferOutCents);
+    }
+}
@@ -1,15 +1,79 @@
 package com.example.transaction.repository;
 
 import com.example.transaction.model.Transaction;
+import com.example.transaction.model.TransactionFilter;
+import com.example.transaction.model.UserSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface TransactionRepository {
     Transaction save(Transaction transaction);
+
+    /**
+     * 批量保存，实现可以一次加锁、一次容量检查完成整批写入；默认逐条保存
+     */
+    default List<Transaction> saveAll(List<Transaction> transactions) {
+        transactions.forEach(this::save);
+        return transactions;
+    }
+
     Optional<Transaction> findByUserNameAndId(String userName, long id);
     Optional<Transaction> deleteByUserNameAndId(String userName, long id);
     Page<Transaction> findAllByUserName(String userName, Pageable pageable);
+    Window<Transaction> findAllByUserNameAfter(String userName, long afterId, int size);
+
+    /**
+     * 创建时间在 [from, to] 内的交易，按Id升序从 afterId 之后取 size 条；
+     * 由每个用户按创建时间的栅栏索引定位范围，O(log n)，只读取范围内及两端各不超过一个栅栏间隔的交易
+     */
+    Window<Transaction> findAllByUserNameBetween(String userName, long from, long to, long afterId, int size);
+
+    /**
+     * 满足类型、金额条件的交易，按Id升序从 afterId 之后取 size 条；
+     * 由用户Id索引上的类型位图和金额分段位图给出候选，代价主要与匹配数成正比，而不是与用户的交易总数成正比
+     */
+    Window<Transaction> findAllByUserNameMatching(String userName, TransactionFilter filter, long afterId, int size);
+
+    /**
+     * 以 toUserName 为接收方的转账(转出方的 TRANSFER 记录)，按Id升序从 afterId 之后取 size 条；
+     * 由随保存、覆盖、删除维护的反向索引提供，每页代价与 findAllByUserNameAfter 相同
+     */
+    Window<Transaction> findIncomingTransfersAfter(String toUserName, long afterId, int size);
+
+    /**
+     * 按Id顺序惰性遍历用户的全部交易，遍历期间的写入可能可见也可能不可见；
+     * 默认按游标分段调用 findAllByUserNameAfter，每段的并发控制与该方法相同(内存存储不加锁，
+     * 列式和映射存储每段持有一次存储读锁)，内存占用与交易总数无关
+     */
+    default Stream<Transaction> streamAllByUserName(String userName) {
+        int chunkSize = 256;
+        return Stream.iterate(findAllByUserNameAfter(userName, Long.MIN_VALUE, chunkSize),
+                        window -> !window.isEmpty(),
+                        window -> window.hasNext()
+                                ? findAllByUserNameAfter(userName,
+                                        window.getContent().get(window.size() - 1).getId(), chunkSize)
+                                : Window.from(Collections.<Transaction>emptyList(), ScrollPosition::offset))
+                .flatMap(Window::stream);
+    }
+
     Optional<Transaction> findLastByUserName(String userName);
+    long findMaxId();
+    List<String> findAllUserNames();
+
+    /**
+     * 用户的余额与各类交易合计，随保存、覆盖、删除增量维护，O(1)；没有交易的用户返回全零
+     */
+    UserSummary findSummaryByUserName(String userName);
+
+    /**
+     * 当前保存的交易总数，用于监控，并发写入时可以是近似值
+     */
+    long count();
 } 
\ No newline at end of file
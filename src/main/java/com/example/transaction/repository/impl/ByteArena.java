@@ -0,0 +1,55 @@
+package com.example.transaction.repository.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 按页分配的共享字节区，用于集中存放变长字符串，避免每条记录一个 String 对象。
+ * 单条数据不跨页，偏移量为 int，总容量上限 2GB。非线程安全，由调用方加锁。
+ */
+class ByteArena {
+    private static final int PAGE_SHIFT = 20;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private byte[][] pages = new byte[16][];
+    private int position;
+
+    int append(byte[] bytes) {
+        if (bytes.length > PAGE_SIZE) {
+            throw new IllegalArgumentException("数据长度超过分页大小: " + bytes.length);
+        }
+        int pageIndex = position >>> PAGE_SHIFT;
+        if ((position & PAGE_MASK) + bytes.length > PAGE_SIZE) {
+            // 当前页放不下，从下一页开头写入
+            pageIndex++;
+            position = pageIndex << PAGE_SHIFT;
+        }
+        if (position < 0 || (long) position + bytes.length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("字节区容量已满");
+        }
+        byte[] page = page(pageIndex);
+        int offset = position;
+        System.arraycopy(bytes, 0, page, offset & PAGE_MASK, bytes.length);
+        position += bytes.length;
+        return offset;
+    }
+
+    void write(int offset, byte[] bytes) {
+        System.arraycopy(bytes, 0, pages[offset >>> PAGE_SHIFT], offset & PAGE_MASK, bytes.length);
+    }
+
+    String readString(int offset, int length) {
+        return new String(pages[offset >>> PAGE_SHIFT], offset & PAGE_MASK, length, StandardCharsets.UTF_8);
+    }
+
+    private byte[] page(int pageIndex) {
+        if (pageIndex >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(pageIndex + 1, pages.length << 1));
+        }
+        if (pages[pageIndex] == null) {
+            pages[pageIndex] = new byte[PAGE_SIZE];
+        }
+        return pages[pageIndex];
+    }
+}
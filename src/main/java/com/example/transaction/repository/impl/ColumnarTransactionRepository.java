@@ -0,0 +1,517 @@
+package com.example.transaction.repository.impl;
+
+import com.example.transaction.exception.PageOutOfRangeException;
+import com.example.transaction.exception.TransactionTooManyException;
+import com.example.transaction.model.Transaction;
+import com.example.transaction.model.Transaction.TransactionType;
+import com.example.transaction.model.TransactionFilter;
+import com.example.transaction.model.UserSummary;
+import com.example.transaction.repository.TransactionRepository;
+import com.example.transaction.repository.index.LongIntHashMap;
+import com.example.transaction.repository.index.RankedIdIndex;
+import com.example.transaction.repository.index.TimeFenceIndex;
+import com.example.transaction.repository.index.TransactionAttributes;
+import com.example.transaction.repository.index.UserAggregates;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 列式存储的交易仓库：每个字段一列原始类型数组，不为每条交易保留 Transaction 对象。
+ * <ul>
+ *     <li>金额按分存为 long，交易类型存为 byte</li>
+ *     <li>用户名字典化为 int，描述统一放在共享字节区</li>
+ *     <li>id -> 行号使用原始类型哈希表，按用户的有序Id使用 RankedIdIndex</li>
+ * </ul>
+ * 读取时才组装 Transaction 对象。全部操作由一把 StampedLock 保护。
+ */
+@Repository
+@ConditionalOnProperty(name = "transaction.repository.type", havingValue = "columnar")
+public class ColumnarTransactionRepository implements TransactionRepository {
+    private static final int PAGE_SHIFT = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int NO_USER = -1;
+    private static final byte NO_DESCRIPTION = -1;
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final StampedLock lock = new StampedLock();
+
+    // 列数据，按行号分页，避免扩容时整体复制
+    private long[][] ids = new long[16][];
+    private long[][] amountCents = new long[16][];
+    private long[][] createTimestamps = new long[16][];
+    private long[][] updateTimestamps = new long[16][];
+    private int[][] userIds = new int[16][];
+    private int[][] toUserIds = new int[16][];
+    private int[][] descriptionOffsets = new int[16][];
+    private byte[][] descriptionLengths = new byte[16][];
+    private byte[][] types = new byte[16][];
+
+    private int rowCount;
+    private int[] freeRows = new int[16];
+    private int freeRowCount;
+
+    // 二级索引：id -> 行号
+    private final LongIntHashMap rowIndex = new LongIntHashMap(1024);
+
+    // 用户名字典：userName <-> userId，以及每个用户的有序Id索引
+    private final Map<String, Integer> userDictionary = new HashMap<>();
+    private final List<String> userNames = new ArrayList<>();
+    private final List<RankedIdIndex> userIndexes = new ArrayList<>();
+    // 每个用户按创建时间的栅栏索引，与 userIndexes 下标一致
+    private final List<TimeFenceIndex> timeIndexes = new ArrayList<>();
+    // 反向索引：按接收方 userId 的转账Id，没有收到过转账的用户为 null
+    private final List<RankedIdIndex> incomingIndexes = new ArrayList<>();
+
+    private final ByteArena descriptions = new ByteArena();
+
+    // 每个用户的余额与各类合计
+    private final UserAggregates aggregates = new UserAggregates();
+
+    // 出现过的最大交易Id，删除后不回退
+    private long maxId;
+
+    private int maxSize = 9000000;
+
+    @Value("${transaction.repository.max-size:9000000}")
+    public void setMaxSize(int size) {
+        this.maxSize = size;
+    }
+
+    @Override
+    public Transaction save(Transaction transaction) {
+        long stamp = lock.writeLock();
+        try {
+            if (rowIndex.size() > maxSize) {
+                throw new TransactionTooManyException("交易总数不能超过最大值:" + maxSize);
+            }
+            saveLocked(transaction);
+            return transaction;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public List<Transaction> saveAll(List<Transaction> transactions) {
+        long stamp = lock.writeLock();
+        try {
+            if (rowIndex.size() + transactions.size() > maxSize) {
+                throw new TransactionTooManyException("交易总数不能超过最大值:" + maxSize);
+            }
+            for (Transaction transaction : transactions) {
+                saveLocked(transaction);
+            }
+            return transactions;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void saveLocked(Transaction transaction) {
+        // 先校验描述，超长时在改动任何索引之前失败，不留下写了一半的行
+        byte[] description = descriptionBytes(transaction.getDescription());
+        int userId = internUser(transaction.getUserName());
+        int row = rowIndex.get(transaction.getId());
+        TimeFenceIndex timeIndex = timeIndexes.get(userId);
+        UserAggregates.Contribution old = null;
+        if (row == LongIntHashMap.NO_VALUE) {
+            row = allocateRow();
+            rowIndex.put(transaction.getId(), row);
+            timeIndex.add(transaction.getId(), transaction.getCreateTimestamp());
+        } else {
+            old = contributionOf(row);
+            indexIncoming(row, false);
+            int oldUserId = userIds[row >>> PAGE_SHIFT][row & PAGE_MASK];
+            if (oldUserId != userId) {
+                userIndexes.get(oldUserId).remove(transaction.getId());
+                timeIndexes.get(oldUserId).remove(transaction.getId());
+                timeIndex.add(transaction.getId(), transaction.getCreateTimestamp());
+            } else {
+                timeIndex.update(transaction.getId(), createTimestamps[row >>> PAGE_SHIFT][row & PAGE_MASK],
+                        transaction.getCreateTimestamp());
+            }
+        }
+        writeDescription(row, description);
+
+        int page = row >>> PAGE_SHIFT;
+        int slot = row & PAGE_MASK;
+        ids[page][slot] = transaction.getId();
+        amountCents[page][slot] = transaction.getAmountCents();
+        createTimestamps[page][slot] = transaction.getCreateTimestamp();
+        updateTimestamps[page][slot] = transaction.getUpdateTimestamp();
+        userIds[page][slot] = userId;
+        toUserIds[page][slot] = transaction.getToUserName() == null
+                ? NO_USER : internUser(transaction.getToUserName());
+        types[page][slot] = transaction.getType() == null ? -1 : (byte) transaction.getType().ordinal();
+
+        userIndexes.get(userId).add(transaction.getId(), TransactionAttributes.of(transaction));
+        indexIncoming(row, true);
+        if (old == null) {
+            aggregates.add(transaction);
+        } else {
+            aggregates.replace(old, transaction);
+        }
+        maxId = Math.max(maxId, transaction.getId());
+    }
+
+    // 覆盖已有行之前取出该行对合计的贡献，写入新行后与新交易的贡献合并成一次修改
+    private UserAggregates.Contribution contributionOf(int row) {
+        int page = row >>> PAGE_SHIFT;
+        int slot = row & PAGE_MASK;
+        byte type = types[page][slot];
+        return new UserAggregates.Contribution(userNames.get(userIds[page][slot]), type < 0 ? null : TYPES[type],
+                amountCents[page][slot]);
+    }
+
+    // 该行是转账时，按接收方加入或移出反向索引
+    private void indexIncoming(int row, boolean add) {
+        int page = row >>> PAGE_SHIFT;
+        int slot = row & PAGE_MASK;
+        int toUserId = toUserIds[page][slot];
+        if (types[page][slot] != TransactionType.TRANSFER.ordinal() || toUserId == NO_USER) {
+            return;
+        }
+        RankedIdIndex index = incomingIndexes.get(toUserId);
+        if (add) {
+            if (index == null) {
+                index = new RankedIdIndex();
+                incomingIndexes.set(toUserId, index);
+            }
+            index.add(ids[page][slot]);
+        } else if (index != null) {
+            index.remove(ids[page][slot]);
+        }
+    }
+
+    @Override
+    public Optional<Transaction> findByUserNameAndId(String userName, long id) {
+        long stamp = lock.readLock();
+        try {
+            int row = findRow(userName, id);
+            return row == LongIntHashMap.NO_VALUE ? Optional.empty() : Optional.of(toTransaction(row));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Optional<Transaction> deleteByUserNameAndId(String userName, long id) {
+        long stamp = lock.writeLock();
+        try {
+            int row = findRow(userName, id);
+            if (row == LongIntHashMap.NO_VALUE) {
+                return Optional.empty();
+            }
+            Transaction oldTransaction = toTransaction(row);
+            aggregates.subtract(oldTransaction);
+            indexIncoming(row, false);
+            rowIndex.remove(id);
+            int userId = userIds[row >>> PAGE_SHIFT][row & PAGE_MASK];
+            userIndexes.get(userId).remove(id);
+            timeIndexes.get(userId).remove(id);
+            releaseRow(row);
+            return Optional.of(oldTransaction);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Page<Transaction> findAllByUserName(String userName, Pageable pageable) {
+        long stamp = lock.readLock();
+        try {
+            RankedIdIndex index = userIndex(userName);
+            if (index == null || index.isEmpty()) {
+                return Page.empty(pageable);
+            }
+
+            long offset = pageable.getOffset();
+            int totalSize = index.size();
+            if (offset >= totalSize) {
+                throw new PageOutOfRangeException("page参数超过范围，总数:" + totalSize);
+            }
+
+            long[] pageIds = index.idsFrom((int) offset, pageable.getPageSize());
+            return new PageImpl<>(toTransactions(pageIds, pageIds.length), pageable, totalSize);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Window<Transaction> findAllByUserNameAfter(String userName, long afterId, int size) {
+        long stamp = lock.readLock();
+        try {
+            return findAfter(userIndex(userName), afterId, size);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Window<Transaction> findAllByUserNameBetween(String userName, long from, long to, long afterId, int size) {
+        long stamp = lock.readLock();
+        try {
+            Integer userId = userDictionary.get(userName);
+            if (userId == null) {
+                return Window.from(Collections.emptyList(), ScrollPosition::offset);
+            }
+
+            // 只读创建时间一列判断范围，多取一条用于判断是否还有下一页
+            long[] pageIds = timeIndexes.get(userId).idsBetween(userIndexes.get(userId), from, to, afterId, size + 1,
+                    id -> {
+                        int row = rowIndex.get(id);
+                        long createTimestamp = createTimestamps[row >>> PAGE_SHIFT][row & PAGE_MASK];
+                        return createTimestamp >= from && createTimestamp <= to;
+                    });
+            List<Transaction> pageContent = toTransactions(pageIds, Math.min(size, pageIds.length));
+            return Window.from(pageContent,
+                    i -> ScrollPosition.forward(Map.of("id", pageContent.get(i).getId())),
+                    pageIds.length > size);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Window<Transaction> findAllByUserNameMatching(String userName, TransactionFilter filter, long afterId,
+                                                         int size) {
+        long stamp = lock.readLock();
+        try {
+            RankedIdIndex index = userIndex(userName);
+            if (index == null) {
+                return Window.from(Collections.emptyList(), ScrollPosition::offset);
+            }
+
+            // 候选只读金额一列判断，多取一条用于判断是否还有下一页
+            long[] pageIds = TransactionAttributes.idsMatching(index, filter, afterId, size + 1, id -> {
+                int row = rowIndex.get(id);
+                return filter.matchesAmount(amountCents[row >>> PAGE_SHIFT][row & PAGE_MASK]);
+            });
+            List<Transaction> pageContent = toTransactions(pageIds, Math.min(size, pageIds.length));
+            return Window.from(pageContent,
+                    i -> ScrollPosition.forward(Map.of("id", pageContent.get(i).getId())),
+                    pageIds.length > size);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Window<Transaction> findIncomingTransfersAfter(String toUserName, long afterId, int size) {
+        long stamp = lock.readLock();
+        try {
+            Integer toUserId = userDictionary.get(toUserName);
+            return findAfter(toUserId == null ? null : incomingIndexes.get(toUserId), afterId, size);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Window<Transaction> findAfter(RankedIdIndex index, long afterId, int size) {
+        if (index == null || index.isEmpty() || afterId == Long.MAX_VALUE) {
+            return Window.from(Collections.emptyList(), ScrollPosition::offset);
+        }
+
+        // 多取一条用于判断是否还有下一页
+        long[] pageIds = index.idsFrom(index.rank(afterId + 1), size + 1);
+        List<Transaction> pageContent = toTransactions(pageIds, Math.min(size, pageIds.length));
+        return Window.from(pageContent,
+                i -> ScrollPosition.forward(Map.of("id", pageContent.get(i).getId())),
+                pageIds.length > size);
+    }
+
+    @Override
+    public Optional<Transaction> findLastByUserName(String userName) {
+        long stamp = lock.readLock();
+        try {
+            RankedIdIndex index = userIndex(userName);
+            if (index == null || index.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(toTransaction(rowIndex.get(index.select(index.size() - 1))));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long findMaxId() {
+        long stamp = lock.readLock();
+        try {
+            return maxId;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // 合计自身线程安全，不需要仓库的锁
+    @Override
+    public UserSummary findSummaryByUserName(String userName) {
+        return aggregates.summary(userName);
+    }
+
+    @Override
+    public long count() {
+        long stamp = lock.readLock();
+        try {
+            return rowIndex.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<String> findAllUserNames() {
+        long stamp = lock.readLock();
+        try {
+            // 字典中还包含只作为转账接收方出现的用户
+            List<String> result = new ArrayList<>();
+            for (int userId = 0; userId < userNames.size(); userId++) {
+                if (!userIndexes.get(userId).isEmpty()) {
+                    result.add(userNames.get(userId));
+                }
+            }
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private int findRow(String userName, long id) {
+        int row = rowIndex.get(id);
+        if (row == LongIntHashMap.NO_VALUE) {
+            return row;
+        }
+        Integer userId = userDictionary.get(userName);
+        if (userId == null || userIds[row >>> PAGE_SHIFT][row & PAGE_MASK] != userId) {
+            return LongIntHashMap.NO_VALUE;
+        }
+        return row;
+    }
+
+    private RankedIdIndex userIndex(String userName) {
+        Integer userId = userDictionary.get(userName);
+        return userId == null ? null : userIndexes.get(userId);
+    }
+
+    private int internUser(String userName) {
+        Integer userId = userDictionary.get(userName);
+        if (userId != null) {
+            return userId;
+        }
+        int newUserId = userNames.size();
+        userDictionary.put(userName, newUserId);
+        userNames.add(userName);
+        userIndexes.add(new RankedIdIndex());
+        timeIndexes.add(new TimeFenceIndex());
+        incomingIndexes.add(null);
+        return newUserId;
+    }
+
+    private List<Transaction> toTransactions(long[] pageIds, int count) {
+        List<Transaction> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(toTransaction(rowIndex.get(pageIds[i])));
+        }
+        return result;
+    }
+
+    private Transaction toTransaction(int row) {
+        int page = row >>> PAGE_SHIFT;
+        int slot = row & PAGE_MASK;
+        int toUserId = toUserIds[page][slot];
+        byte type = types[page][slot];
+        byte descriptionLength = descriptionLengths[page][slot];
+        return Transaction.builder()
+                .id(ids[page][slot])
+                .userName(userNames.get(userIds[page][slot]))
+                .toUserName(toUserId == NO_USER ? null : userNames.get(toUserId))
+                .amountCents(amountCents[page][slot])
+                .type(type < 0 ? null : TYPES[type])
+                .description(descriptionLength == NO_DESCRIPTION
+                        ? null : descriptions.readString(descriptionOffsets[page][slot], descriptionLength & 0xFF))
+                .createTimestamp(createTimestamps[page][slot])
+                .updateTimestamp(updateTimestamps[page][slot])
+                .build();
+    }
+
+    // 新描述不超过该行原有空间(更新或复用已删除的行)则原地覆盖，否则追加到字节区末尾
+    private void writeDescription(int row, byte[] bytes) {
+        int page = row >>> PAGE_SHIFT;
+        int slot = row & PAGE_MASK;
+        if (bytes == null) {
+            descriptionLengths[page][slot] = NO_DESCRIPTION;
+            return;
+        }
+        int previousLength = descriptionLengths[page][slot] & 0xFF;
+        if (descriptionLengths[page][slot] != NO_DESCRIPTION && bytes.length <= previousLength) {
+            descriptions.write(descriptionOffsets[page][slot], bytes);
+        } else {
+            descriptionOffsets[page][slot] = descriptions.append(bytes);
+        }
+        descriptionLengths[page][slot] = (byte) bytes.length;
+    }
+
+    private static byte[] descriptionBytes(String description) {
+        if (description == null) {
+            return null;
+        }
+        byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFE) {
+            throw new IllegalArgumentException("交易描述过长");
+        }
+        return bytes;
+    }
+
+    private int allocateRow() {
+        if (freeRowCount > 0) {
+            return freeRows[--freeRowCount];
+        }
+        int row = rowCount++;
+        int page = row >>> PAGE_SHIFT;
+        if (page >= ids.length) {
+            int pageCount = ids.length << 1;
+            ids = Arrays.copyOf(ids, pageCount);
+            amountCents = Arrays.copyOf(amountCents, pageCount);
+            createTimestamps = Arrays.copyOf(createTimestamps, pageCount);
+            updateTimestamps = Arrays.copyOf(updateTimestamps, pageCount);
+            userIds = Arrays.copyOf(userIds, pageCount);
+            toUserIds = Arrays.copyOf(toUserIds, pageCount);
+            descriptionOffsets = Arrays.copyOf(descriptionOffsets, pageCount);
+            descriptionLengths = Arrays.copyOf(descriptionLengths, pageCount);
+            types = Arrays.copyOf(types, pageCount);
+        }
+        if (ids[page] == null) {
+            ids[page] = new long[PAGE_SIZE];
+            amountCents[page] = new long[PAGE_SIZE];
+            createTimestamps[page] = new long[PAGE_SIZE];
+            updateTimestamps[page] = new long[PAGE_SIZE];
+            userIds[page] = new int[PAGE_SIZE];
+            toUserIds[page] = new int[PAGE_SIZE];
+            descriptionOffsets[page] = new int[PAGE_SIZE];
+            descriptionLengths[page] = new byte[PAGE_SIZE];
+            types[page] = new byte[PAGE_SIZE];
+        }
+        return row;
+    }
+
+    // 回收的行保留原描述空间，复用时可以原地覆盖
+    private void releaseRow(int row) {
+        if (freeRowCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeRows.length << 1);
+        }
+        freeRows[freeRowCount++] = row;
+    }
+}
@@ -3,52 +3,114 @@ package com.example.transaction.repository.impl;
 import com.example.transaction.exception.PageOutOfRangeException;
 import com.example.transaction.exception.TransactionTooManyException;
 import com.example.transaction.model.Transaction;
+import com.example.transaction.model.Transaction.TransactionType;
+import com.example.transaction.model.TransactionFilter;
+import com.example.transaction.model.UserSummary;
 import com.example.transaction.repository.TransactionRepository;
+import com.example.transaction.repository.index.ConcurrentLongObjectMap;
+import com.example.transaction.repository.index.RankedIdIndex;
+import com.example.transaction.repository.index.TimeFenceIndex;
+import com.example.transaction.repository.index.TransactionAttributes;
+import com.example.transaction.repository.index.UserAggregates;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Repository
+@ConditionalOnProperty(name = "transaction.repository.type", havingValue = "memory", matchIfMissing = true)
 public class InMemoryTransactionRepository implements TransactionRepository {
-    // 主存储：userName -> (id -> Transaction)
-    private final Map<String, ConcurrentSkipListMap<Long, Transaction>> store = new ConcurrentHashMap<>();
+    // 主存储：id -> Transaction，键不装箱
+    private final ConcurrentLongObjectMap<Transaction> transactions = new ConcurrentLongObjectMap<>();
 
-    // 二级索引：id -> Transaction
-    private final Map<Long, Transaction> idIndex = new ConcurrentHashMap<>();
+    // 用户索引：userName -> 该用户的有序Id索引，提供按Id顺序遍历、O(log n) 的第k条定位和 O(1) 总数
+    private final Map<String, RankedIdIndex> store = new ConcurrentHashMap<>();
+
+    // 时间索引：userName -> 该用户按创建时间的栅栏索引
+    private final Map<String, TimeFenceIndex> timeIndexes = new ConcurrentHashMap<>();
+
+    // 反向索引：接收方 userName -> 以其为接收方的转账Id，随保存、覆盖、删除维护
+    private final Map<String, RankedIdIndex> incoming = new ConcurrentHashMap<>();
+
+    // 每个用户的余额与各类合计
+    private final UserAggregates aggregates = new UserAggregates();
+
+    // 出现过的最大交易Id，删除后不回退
+    private final AtomicLong maxId = new AtomicLong();
 
     private int maxSize = 9000000;
 
+    @Value("${transaction.repository.max-size:9000000}")
     public void setMaxSize(int size) {
         this.maxSize = size;
     }
 
     @Override
     public Transaction save(Transaction transaction) {
-        if (idIndex.size() > maxSize) {
+        if (transactions.size() > maxSize) {
             throw new TransactionTooManyException("交易总数不能超过最大值:" + maxSize);
         }
 
-        // 获取用户的交易存储
-        Map<Long, Transaction> userTransactions = store.computeIfAbsent(
-            transaction.getUserName(), 
-            k -> new ConcurrentSkipListMap<>()
-        );
-
-        // 保存交易
-        userTransactions.put(transaction.getId(), transaction);
+        // 获取用户的交易索引
+        RankedIdIndex index = store.computeIfAbsent(transaction.getUserName(), k -> new RankedIdIndex());
 
-        idIndex.put(transaction.getId(), transaction);
+        // 保存交易，覆盖已有交易时合计一次加上新旧之差
+        Transaction old = transactions.put(transaction.getId(), transaction);
+        if (old != null) {
+            aggregates.replace(old, transaction);
+            unindexIncoming(old);
+            unindexOwner(old, transaction);
+        } else {
+            aggregates.add(transaction);
+        }
+        indexIncoming(transaction);
+        indexTime(old, transaction);
+        index.add(transaction.getId(), TransactionAttributes.of(transaction));
+        maxId.accumulateAndGet(transaction.getId(), Math::max);
         return transaction;
     }
 
+    @Override
+    public List<Transaction> saveAll(List<Transaction> transactions) {
+        if (this.transactions.size() + transactions.size() > maxSize) {
+            throw new TransactionTooManyException("交易总数不能超过最大值:" + maxSize);
+        }
+
+        // 同一用户连续的交易只查找一次用户索引
+        RankedIdIndex index = null;
+        String lastUserName = null;
+        for (Transaction transaction : transactions) {
+            if (!transaction.getUserName().equals(lastUserName)) {
+                lastUserName = transaction.getUserName();
+                index = store.computeIfAbsent(lastUserName, k -> new RankedIdIndex());
+            }
+            Transaction old = this.transactions.put(transaction.getId(), transaction);
+            if (old != null) {
+                aggregates.replace(old, transaction);
+                unindexIncoming(old);
+                unindexOwner(old, transaction);
+            } else {
+                aggregates.add(transaction);
+            }
+            indexIncoming(transaction);
+            indexTime(old, transaction);
+            index.add(transaction.getId(), TransactionAttributes.of(transaction));
+            maxId.accumulateAndGet(transaction.getId(), Math::max);
+        }
+        return transactions;
+    }
+
     @Override
     public Optional<Transaction> findByUserNameAndId(String userName, long id) {
-        Transaction transaction = idIndex.get(id);
+        Transaction transaction = transactions.get(id);
         if (transaction == null || !transaction.getUserName().equals(userName)) {
             return Optional.empty();
         }
@@ -58,64 +120,205 @@ public class InMemoryTransactionRepository implements TransactionRepository {
     @Override
     //non thread-safe
     public Optional<Transaction> deleteByUserNameAndId(String userName, long id) {
-        Map<Long, Transaction> userTransactions = store.get(userName);
-        if (userTransactions != null) {
-            Transaction oldTransaction = userTransactions.remove(id);
-
-            if (oldTransaction != null) {
-                idIndex.remove(id);
-                if (userTransactions.isEmpty()) {
-                    store.remove(userName);
-                }
-            }
-            return Optional.ofNullable(oldTransaction);
+        RankedIdIndex index = store.get(userName);
+        if (index == null || !index.remove(id)) {
+            return Optional.empty();
+        }
 
+        Transaction oldTransaction = transactions.remove(id);
+        if (oldTransaction != null) {
+            aggregates.subtract(oldTransaction);
+            unindexIncoming(oldTransaction);
+        }
+        TimeFenceIndex timeIndex = timeIndexes.get(userName);
+        if (timeIndex != null) {
+            timeIndex.remove(id);
         }
-        return Optional.empty();
+        if (index.isEmpty()) {
+            store.remove(userName);
+            timeIndexes.remove(userName);
+        }
+        return Optional.ofNullable(oldTransaction);
     }
 
     @Override
     //Non-threadsafe
     public Page<Transaction> findAllByUserName(String userName, Pageable pageable) {
-        ConcurrentSkipListMap<Long, Transaction> userTransactions = store.get(userName);
-        if (userTransactions == null || userTransactions.isEmpty()) {
+        RankedIdIndex index = store.get(userName);
+        if (index == null || index.isEmpty()) {
             return Page.empty(pageable);
         }
 
         long offset = pageable.getOffset();
-        int totalSize = userTransactions.size();
+        int totalSize = index.size();
         if (offset >= totalSize) {
-            throw new PageOutOfRangeException("page参数超过范围，总数:" + userTransactions.size());
+            throw new PageOutOfRangeException("page参数超过范围，总数:" + totalSize);
         }
 
-        List<Transaction> pageContent = new ArrayList<>(pageable.getPageSize());
-        Long startKey = userTransactions.keySet().stream()
-                .skip(offset)
-                .findFirst()
-                .orElse(null);
+        // 通过有序Id索引直接定位第 offset 条及之后的 size 个Id，O(log n + size)
+        return new PageImpl<>(
+            load(index.idsFrom((int) offset, pageable.getPageSize())),
+            pageable, totalSize
+        );
+    }
+
+    @Override
+    public Window<Transaction> findAllByUserNameAfter(String userName, long afterId, int size) {
+        return findAfter(store.get(userName), afterId, size);
+    }
 
-        if (startKey == null) {
-            throw new PageOutOfRangeException("page参数超过范围，总数:" + userTransactions.size());
+    @Override
+    public Window<Transaction> findAllByUserNameBetween(String userName, long from, long to, long afterId, int size) {
+        RankedIdIndex index = store.get(userName);
+        TimeFenceIndex timeIndex = timeIndexes.get(userName);
+        if (index == null || timeIndex == null) {
+            return Window.from(Collections.emptyList(), ScrollPosition::offset);
         }
 
-        // 获取从 startKey 开始的 size 条记录
-        userTransactions.tailMap(startKey).values().stream()
-                .limit(pageable.getPageSize())
-                .forEachOrdered(pageContent::add);
+        // 多取一个Id判断是否还有下一页
+        long[] ids = timeIndex.idsBetween(index, from, to, afterId, size + 1, id -> {
+            Transaction transaction = transactions.get(id);
+            return transaction != null && transaction.getUserName().equals(userName)
+                    && transaction.getCreateTimestamp() >= from && transaction.getCreateTimestamp() <= to;
+        });
+        boolean hasNext = ids.length > size;
+        List<Transaction> pageContent = load(hasNext ? Arrays.copyOf(ids, size) : ids);
 
-        return new PageImpl<>(
-            pageContent,
-            pageable, totalSize
-        );
+        return Window.from(pageContent,
+                position -> ScrollPosition.forward(Map.of("id", pageContent.get(position).getId())),
+                hasNext);
+    }
+
+    @Override
+    public Window<Transaction> findAllByUserNameMatching(String userName, TransactionFilter filter, long afterId,
+                                                         int size) {
+        RankedIdIndex index = store.get(userName);
+        if (index == null) {
+            return Window.from(Collections.emptyList(), ScrollPosition::offset);
+        }
+
+        // 多取一个Id判断是否还有下一页
+        long[] ids = TransactionAttributes.idsMatching(index, filter, afterId, size + 1, id -> {
+            Transaction transaction = transactions.get(id);
+            return transaction != null && filter.matchesAmount(transaction.getAmountCents());
+        });
+        boolean hasNext = ids.length > size;
+        List<Transaction> pageContent = load(hasNext ? Arrays.copyOf(ids, size) : ids);
+
+        return Window.from(pageContent,
+                position -> ScrollPosition.forward(Map.of("id", pageContent.get(position).getId())),
+                hasNext);
+    }
+
+    @Override
+    public Window<Transaction> findIncomingTransfersAfter(String toUserName, long afterId, int size) {
+        return findAfter(incoming.get(toUserName), afterId, size);
+    }
+
+    private Window<Transaction> findAfter(RankedIdIndex index, long afterId, int size) {
+        if (index == null || index.isEmpty()) {
+            return Window.from(Collections.emptyList(), ScrollPosition::offset);
+        }
+
+        // 直接从 afterId 之后定位，代价为 O(log n + size)，与页码无关；多取一个Id判断是否还有下一页
+        int fromRank = afterId == Long.MAX_VALUE ? index.size() : index.rank(afterId + 1);
+        long[] ids = index.idsFrom(fromRank, size + 1);
+        boolean hasNext = ids.length > size;
+        List<Transaction> pageContent = load(hasNext ? Arrays.copyOf(ids, size) : ids);
+
+        return Window.from(pageContent,
+                position -> ScrollPosition.forward(Map.of("id", pageContent.get(position).getId())),
+                hasNext);
     }
 
     @Override
     public Optional<Transaction> findLastByUserName(String userName) {
-        ConcurrentSkipListMap<Long, Transaction> userTransactions = store.get(userName);
-        if (userTransactions == null || userTransactions.isEmpty()) {
+        RankedIdIndex index = store.get(userName);
+        if (index == null) {
             return Optional.empty();
         }
 
-        return Optional.ofNullable(userTransactions.lastEntry().getValue());
+        long[] last = index.idsFrom(index.size() - 1, 1);
+        return last.length == 0 ? Optional.empty() : Optional.ofNullable(transactions.get(last[0]));
+    }
+
+    @Override
+    public long findMaxId() {
+        return maxId.get();
+    }
+
+    @Override
+    public List<String> findAllUserNames() {
+        return new ArrayList<>(store.keySet());
+    }
+
+    @Override
+    public UserSummary findSummaryByUserName(String userName) {
+        return aggregates.summary(userName);
+    }
+
+    @Override
+    public long count() {
+        return transactions.size();
+    }
+
+    // 新增交易加入时间索引；覆盖同一用户的交易时只在创建时间变化时记录
+    private void indexTime(Transaction old, Transaction transaction) {
+        TimeFenceIndex timeIndex = timeIndexes.computeIfAbsent(transaction.getUserName(), k -> new TimeFenceIndex());
+        if (old != null && old.getUserName().equals(transaction.getUserName())) {
+            timeIndex.update(transaction.getId(), old.getCreateTimestamp(), transaction.getCreateTimestamp());
+        } else {
+            timeIndex.add(transaction.getId(), transaction.getCreateTimestamp());
+        }
+    }
+
+    // 覆盖的是另一个用户的交易(导入保留原始Id)时，从原用户的Id索引和时间索引中移除，原用户没有剩余交易时去掉其索引
+    private void unindexOwner(Transaction old, Transaction transaction) {
+        String oldUserName = old.getUserName();
+        if (oldUserName.equals(transaction.getUserName())) {
+            return;
+        }
+        RankedIdIndex index = store.get(oldUserName);
+        if (index == null || !index.remove(old.getId())) {
+            return;
+        }
+        TimeFenceIndex timeIndex = timeIndexes.get(oldUserName);
+        if (timeIndex != null) {
+            timeIndex.remove(old.getId());
+        }
+        if (index.isEmpty()) {
+            store.remove(oldUserName);
+            timeIndexes.remove(oldUserName);
+        }
+    }
+
+    // 转账按接收方加入反向索引
+    private void indexIncoming(Transaction transaction) {
+        if (transaction.getType() == TransactionType.TRANSFER && transaction.getToUserName() != null) {
+            incoming.computeIfAbsent(transaction.getToUserName(), k -> new RankedIdIndex()).add(transaction.getId());
+        }
+    }
+
+    // 被覆盖或删除的转账移出反向索引，接收方没有剩余转账时去掉其索引
+    private void unindexIncoming(Transaction transaction) {
+        if (transaction.getType() != TransactionType.TRANSFER || transaction.getToUserName() == null) {
+            return;
+        }
+        RankedIdIndex index = incoming.get(transaction.getToUserName());
+        if (index != null && index.remove(transaction.getId()) && index.isEmpty()) {
+            incoming.remove(transaction.getToUserName());
+        }
+    }
+
+    // 按Id取出交易；没有加锁的调用方可能遇到刚被删除的Id，跳过
+    private List<Transaction> load(long[] ids) {
+        List<Transaction> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Transaction transaction = transactions.get(id);
+            if (transaction != null) {
+                result.add(transaction);
+            }
+        }
+        return result;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,772 @@
+package com.example.transaction.repository.impl;
+
+import com.example.transaction.exception.PageOutOfRangeException;
+import com.example.transaction.exception.TransactionTooManyException;
+import com.example.transaction.model.Transaction;
+import com.example.transaction.model.Transaction.TransactionType;
+import com.example.transaction.model.TransactionFilter;
+import com.example.transaction.model.UserSummary;
+import com.example.transaction.repository.TransactionRepository;
+import com.example.transaction.repository.index.RankedIdIndex;
+import com.example.transaction.repository.index.TimeFenceIndex;
+import com.example.transaction.repository.index.TransactionAttributes;
+import com.example.transaction.repository.index.UserAggregates;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 基于内存映射文件的交易仓库，数据放在堆外，进程重启后重新映射即可继续服务。
+ * <ul>
+ *     <li>transactions.dat：定长记录，按槽位号寻址，按段映射</li>
+ *     <li>transactions.idx：映射的开放寻址哈希表，id -> 槽位号，文件头保存槽位高水位</li>
+ * </ul>
+ * 启动时只映射文件，按Id的点查立即可用；按用户的有序Id索引由后台线程顺序扫描记录重建，
+ * 扫描期间写入与分页查询等待扫描完成。扫描同时修复崩溃时记录与索引不一致的条目。
+ * <p>
+ * 写入只落到页缓存，进程崩溃不丢数据，掉电需配合 fsync。全部操作由一把 StampedLock 保护。
+ */
+@Repository
+@ConditionalOnProperty(name = "transaction.repository.type", havingValue = "mapped")
+public class MappedTransactionRepository implements TransactionRepository, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(MappedTransactionRepository.class);
+
+    static final String DATA_FILE = "transactions.dat";
+    static final String INDEX_FILE = "transactions.idx";
+
+    private static final long MAGIC = 0x54584E4D41503031L;
+    private static final int MAX_STRING_BYTES = 80;
+
+    // 记录布局
+    private static final int RECORD_SIZE = 288;
+    private static final int ID = 0;
+    private static final int AMOUNT = 8;
+    private static final int CREATE_TIMESTAMP = 16;
+    private static final int UPDATE_TIMESTAMP = 24;
+    private static final int STATUS = 32;
+    private static final int TYPE = 33;
+    private static final int USER_NAME = 34;
+    private static final int TO_USER_NAME = USER_NAME + 1 + MAX_STRING_BYTES;
+    private static final int DESCRIPTION = TO_USER_NAME + 1 + MAX_STRING_BYTES;
+
+    private static final byte STATUS_LIVE = 1;
+    private static final byte STATUS_DELETED = 2;
+    private static final byte NO_VALUE = -1;
+
+    private static final int SEGMENT_SHIFT = 18;
+    private static final int RECORDS_PER_SEGMENT = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = RECORDS_PER_SEGMENT - 1;
+    private static final long SEGMENT_BYTES = (long) RECORDS_PER_SEGMENT * RECORD_SIZE;
+
+    // 索引文件布局：文件头 + (id, 槽位号+1) 的数组，槽位号+1 为0表示空
+    private static final int INDEX_HEADER_SIZE = 64;
+    private static final int INDEX_MAGIC = 0;
+    private static final int INDEX_CAPACITY = 8;
+    private static final int INDEX_HIGH_WATER = 16;
+    private static final int ENTRY_SIZE = 16;
+    private static final float INDEX_LOAD_FACTOR = 0.7f;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final StampedLock lock = new StampedLock();
+    private final int maxSize;
+
+    private final FileChannel dataChannel;
+    private final FileChannel indexChannel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final MappedByteBuffer index;
+    private final long indexMask;
+
+    private int highWater;
+    private int size;
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+    // 出现过的最大交易Id(含已删除槽位)，删除后不回退
+    private long maxId;
+
+    private final Map<String, RankedIdIndex> userIndexes = new ConcurrentHashMap<>();
+    // 每个用户按创建时间的栅栏索引，不落盘，启动扫描后按Id顺序重建
+    private final Map<String, TimeFenceIndex> timeIndexes = new ConcurrentHashMap<>();
+    // 反向索引：接收方 userName -> 以其为接收方的转账Id，不落盘，启动扫描时重建
+    private final Map<String, RankedIdIndex> incomingIndexes = new ConcurrentHashMap<>();
+    // 每个用户的余额与各类合计，不落盘，启动扫描时重建
+    private final UserAggregates aggregates = new UserAggregates();
+    private final CountDownLatch recovered = new CountDownLatch(1);
+
+    @Autowired
+    public MappedTransactionRepository(
+            @Value("${transaction.repository.mapped.directory:data}") String directory,
+            @Value("${transaction.repository.max-size:9000000}") int maxSize) {
+        this(Path.of(directory), maxSize);
+    }
+
+    public MappedTransactionRepository(Path directory, int maxSize) {
+        this.maxSize = maxSize;
+        try {
+            Files.createDirectories(directory);
+            Path indexPath = directory.resolve(INDEX_FILE);
+            boolean existing = Files.exists(indexPath) && Files.size(indexPath) > INDEX_HEADER_SIZE;
+
+            indexChannel = FileChannel.open(indexPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long capacity = existing ? readIndexCapacity() : indexCapacityFor(maxSize);
+            if (capacity * ENTRY_SIZE + INDEX_HEADER_SIZE > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("索引容量过大: " + capacity);
+            }
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE + capacity * ENTRY_SIZE);
+            indexMask = capacity - 1;
+            if (existing) {
+                if (index.getLong(INDEX_MAGIC) != MAGIC) {
+                    throw new IllegalStateException("索引文件格式不正确: " + indexPath);
+                }
+                highWater = (int) index.getLong(INDEX_HIGH_WATER);
+            } else {
+                index.putLong(INDEX_MAGIC, MAGIC);
+                index.putLong(INDEX_CAPACITY, capacity);
+                index.putLong(INDEX_HIGH_WATER, 0);
+            }
+
+            dataChannel = FileChannel.open(directory.resolve(DATA_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            int segmentCount = (highWater + RECORDS_PER_SEGMENT - 1) >> SEGMENT_SHIFT;
+            for (int i = 0; i < segmentCount; i++) {
+                mapSegment(i);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开交易数据文件失败: " + directory, e);
+        }
+
+        Thread recovery = new Thread(this::recover, "mapped-repository-recovery");
+        recovery.setDaemon(true);
+        recovery.start();
+    }
+
+    @Override
+    public Transaction save(Transaction transaction) {
+        awaitRecovery();
+        long stamp = lock.writeLock();
+        try {
+            saveLocked(transaction);
+            return transaction;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public List<Transaction> saveAll(List<Transaction> transactions) {
+        awaitRecovery();
+        long stamp = lock.writeLock();
+        try {
+            if (size + transactions.size() > maxSize) {
+                throw new TransactionTooManyException("交易总数不能超过最大值:" + maxSize);
+            }
+            for (Transaction transaction : transactions) {
+                saveLocked(transaction);
+            }
+            return transactions;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void saveLocked(Transaction transaction) {
+        // 先校验字段长度，超长时在分配槽位、改动索引之前失败
+        stringBytes(transaction.getUserName());
+        stringBytes(transaction.getToUserName());
+        stringBytes(transaction.getDescription());
+        int slot = findSlot(transaction.getId());
+        UserAggregates.Contribution old = null;
+        if (slot < 0) {
+            if (size > maxSize) {
+                throw new TransactionTooManyException("交易总数不能超过最大值:" + maxSize);
+            }
+            slot = allocateSlot();
+            writeRecord(slot, transaction);
+            putIndex(transaction.getId(), slot);
+            size++;
+            timeIndex(transaction.getUserName()).add(transaction.getId(), transaction.getCreateTimestamp());
+        } else {
+            String oldUserName = readString(slot, USER_NAME);
+            if (!oldUserName.equals(transaction.getUserName())) {
+                userIndexes.get(oldUserName).remove(transaction.getId());
+                timeIndex(oldUserName).remove(transaction.getId());
+                timeIndex(transaction.getUserName()).add(transaction.getId(), transaction.getCreateTimestamp());
+            } else {
+                timeIndex(oldUserName).update(transaction.getId(), createTimestampOf(slot),
+                        transaction.getCreateTimestamp());
+            }
+            old = contributionOf(slot);
+            indexIncoming(slot, false);
+            writeRecord(slot, transaction);
+        }
+        indexIncoming(slot, true);
+        if (old == null) {
+            aggregates.add(transaction);
+        } else {
+            aggregates.replace(old, transaction);
+        }
+        userIndexes.computeIfAbsent(transaction.getUserName(), k -> new RankedIdIndex())
+                .add(transaction.getId(), TransactionAttributes.of(transaction));
+        maxId = Math.max(maxId, transaction.getId());
+    }
+
+    @Override
+    public Optional<Transaction> findByUserNameAndId(String userName, long id) {
+        long stamp = lock.readLock();
+        try {
+            int slot = findSlot(id);
+            if (slot < 0 || segment(slot).get(offset(slot) + STATUS) != STATUS_LIVE
+                    || !readString(slot, USER_NAME).equals(userName)) {
+                return Optional.empty();
+            }
+            return Optional.of(readRecord(slot));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Optional<Transaction> deleteByUserNameAndId(String userName, long id) {
+        awaitRecovery();
+        long stamp = lock.writeLock();
+        try {
+            int slot = findSlot(id);
+            if (slot < 0 || !readString(slot, USER_NAME).equals(userName)) {
+                return Optional.empty();
+            }
+            Transaction oldTransaction = readRecord(slot);
+            aggregates.subtract(oldTransaction);
+            indexIncoming(slot, false);
+            segment(slot).put(offset(slot) + STATUS, STATUS_DELETED);
+            removeIndex(id);
+            releaseSlot(slot);
+            size--;
+            RankedIdIndex userIndex = userIndexes.get(userName);
+            userIndex.remove(id);
+            timeIndex(userName).remove(id);
+            if (userIndex.isEmpty()) {
+                userIndexes.remove(userName);
+                timeIndexes.remove(userName);
+            }
+            return Optional.of(oldTransaction);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Page<Transaction> findAllByUserName(String userName, Pageable pageable) {
+        awaitRecovery();
+        long stamp = lock.readLock();
+        try {
+            RankedIdIndex userIndex = userIndexes.get(userName);
+            if (userIndex == null || userIndex.isEmpty()) {
+                return Page.empty(pageable);
+            }
+
+            long offset = pageable.getOffset();
+            int totalSize = userIndex.size();
+            if (offset >= totalSize) {
+                throw new PageOutOfRangeException("page参数超过范围，总数:" + totalSize);
+            }
+
+            long[] pageIds = userIndex.idsFrom((int) offset, pageable.getPageSize());
+            return new PageImpl<>(readRecords(pageIds, pageIds.length), pageable, totalSize);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Window<Transaction> findAllByUserNameAfter(String userName, long afterId, int size) {
+        awaitRecovery();
+        long stamp = lock.readLock();
+        try {
+            return findAfter(userIndexes.get(userName), afterId, size);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Window<Transaction> findAllByUserNameBetween(String userName, long from, long to, long afterId, int size) {
+        awaitRecovery();
+        long stamp = lock.readLock();
+        try {
+            RankedIdIndex userIndex = userIndexes.get(userName);
+            if (userIndex == null) {
+                return Window.from(Collections.emptyList(), ScrollPosition::offset);
+            }
+
+            // 只读记录中的创建时间判断范围，多取一条用于判断是否还有下一页
+            long[] pageIds = timeIndex(userName).idsBetween(userIndex, from, to, afterId, size + 1, id -> {
+                long createTimestamp = createTimestampOf(findSlot(id));
+                return createTimestamp >= from && createTimestamp <= to;
+            });
+            List<Transaction> pageContent = readRecords(pageIds, Math.min(size, pageIds.length));
+            return Window.from(pageContent,
+                    i -> ScrollPosition.forward(Map.of("id", pageContent.get(i).getId())),
+                    pageIds.length > size);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Window<Transaction> findAllByUserNameMatching(String userName, TransactionFilter filter, long afterId,
+                                                         int size) {
+        awaitRecovery();
+        long stamp = lock.readLock();
+        try {
+            RankedIdIndex userIndex = userIndexes.get(userName);
+            if (userIndex == null) {
+                return Window.from(Collections.emptyList(), ScrollPosition::offset);
+            }
+
+            // 候选只读记录中的金额判断，多取一条用于判断是否还有下一页
+            long[] pageIds = TransactionAttributes.idsMatching(userIndex, filter, afterId, size + 1, id -> {
+                int slot = findSlot(id);
+                return filter.matchesAmount(segment(slot).getLong(offset(slot) + AMOUNT));
+            });
+            List<Transaction> pageContent = readRecords(pageIds, Math.min(size, pageIds.length));
+            return Window.from(pageContent,
+                    i -> ScrollPosition.forward(Map.of("id", pageContent.get(i).getId())),
+                    pageIds.length > size);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Window<Transaction> findIncomingTransfersAfter(String toUserName, long afterId, int size) {
+        awaitRecovery();
+        long stamp = lock.readLock();
+        try {
+            return findAfter(incomingIndexes.get(toUserName), afterId, size);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Window<Transaction> findAfter(RankedIdIndex index, long afterId, int size) {
+        if (index == null || index.isEmpty() || afterId == Long.MAX_VALUE) {
+            return Window.from(Collections.emptyList(), ScrollPosition::offset);
+        }
+
+        // 多取一条用于判断是否还有下一页
+        long[] pageIds = index.idsFrom(index.rank(afterId + 1), size + 1);
+        List<Transaction> pageContent = readRecords(pageIds, Math.min(size, pageIds.length));
+        return Window.from(pageContent,
+                i -> ScrollPosition.forward(Map.of("id", pageContent.get(i).getId())),
+                pageIds.length > size);
+    }
+
+    @Override
+    public Optional<Transaction> findLastByUserName(String userName) {
+        awaitRecovery();
+        long stamp = lock.readLock();
+        try {
+            RankedIdIndex userIndex = userIndexes.get(userName);
+            if (userIndex == null || userIndex.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(readRecord(findSlot(userIndex.select(userIndex.size() - 1))));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long findMaxId() {
+        awaitRecovery();
+        long stamp = lock.readLock();
+        try {
+            return maxId;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public UserSummary findSummaryByUserName(String userName) {
+        awaitRecovery();
+        return aggregates.summary(userName);
+    }
+
+    // 不等待恢复完成，恢复期间返回已扫描到的数量
+    @Override
+    public long count() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<String> findAllUserNames() {
+        awaitRecovery();
+        List<String> result = new ArrayList<>();
+        userIndexes.forEach((userName, userIndex) -> {
+            if (!userIndex.isEmpty()) {
+                result.add(userName);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 把映射区的修改刷到磁盘
+     */
+    public void force() {
+        long stamp = lock.readLock();
+        try {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            index.force();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    @PreDestroy
+    public void close() throws IOException {
+        awaitRecovery();
+        force();
+        dataChannel.close();
+        indexChannel.close();
+    }
+
+    // 顺序扫描全部槽位：重建按用户的索引和空闲槽位，并修复记录与 id 索引不一致的条目
+    private void recover() {
+        long start = System.nanoTime();
+        try {
+            int repaired = 0;
+            for (int slot = 0; slot < highWater; slot++) {
+                MappedByteBuffer segment = segment(slot);
+                int base = offset(slot);
+                long id = segment.getLong(base + ID);
+                maxId = Math.max(maxId, id);
+                int indexed = findSlot(id);
+                if (segment.get(base + STATUS) != STATUS_LIVE) {
+                    if (indexed == slot) {
+                        // 删除时记录已标记但索引未移除
+                        repaired += repair(() -> removeIndex(id));
+                    }
+                    releaseSlot(slot);
+                    continue;
+                }
+                if (indexed != slot) {
+                    if (indexed >= 0) {
+                        // 同一Id出现在两个槽位，保留索引指向的记录
+                        repaired += repair(() -> segment.put(base + STATUS, STATUS_DELETED));
+                        releaseSlot(slot);
+                        continue;
+                    }
+                    int recoveredSlot = slot;
+                    repaired += repair(() -> putIndex(id, recoveredSlot));
+                }
+                userIndexes.computeIfAbsent(readString(slot, USER_NAME), k -> new RankedIdIndex())
+                        .add(id, attributesOf(slot));
+                aggregates.add(contributionOf(slot));
+                indexIncoming(slot, true);
+                size++;
+            }
+            // 扫描按槽位顺序，复用过的槽位打乱了Id顺序；时间索引按每个用户的Id顺序重建
+            userIndexes.forEach(this::rebuildTimeIndex);
+            log.info("映射文件恢复完成: 交易 {} 条, 用户 {} 个, 修复 {} 条, 耗时 {} ms",
+                    size, userIndexes.size(), repaired, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("映射文件恢复失败", e);
+            throw e;
+        } finally {
+            recovered.countDown();
+        }
+    }
+
+    // 恢复期间点查可以并发进行，修改映射区需要持有写锁
+    private int repair(Runnable action) {
+        long stamp = lock.writeLock();
+        try {
+            action.run();
+            return 1;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void rebuildTimeIndex(String userName, RankedIdIndex userIndex) {
+        TimeFenceIndex timeIndex = new TimeFenceIndex();
+        for (int rank = 0; rank < userIndex.size(); rank += RECORDS_PER_SEGMENT) {
+            for (long id : userIndex.idsFrom(rank, RECORDS_PER_SEGMENT)) {
+                timeIndex.add(id, createTimestampOf(findSlot(id)));
+            }
+        }
+        timeIndexes.put(userName, timeIndex);
+    }
+
+    private TimeFenceIndex timeIndex(String userName) {
+        return timeIndexes.computeIfAbsent(userName, k -> new TimeFenceIndex());
+    }
+
+    private int attributesOf(int slot) {
+        MappedByteBuffer segment = segment(slot);
+        int base = offset(slot);
+        byte type = segment.get(base + TYPE);
+        return TransactionAttributes.of(type == NO_VALUE ? null : TYPES[type], segment.getLong(base + AMOUNT));
+    }
+
+    private long createTimestampOf(int slot) {
+        return segment(slot).getLong(offset(slot) + CREATE_TIMESTAMP);
+    }
+
+    private void awaitRecovery() {
+        try {
+            recovered.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待映射文件恢复时被中断", e);
+        }
+    }
+
+    private List<Transaction> readRecords(long[] pageIds, int count) {
+        List<Transaction> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(readRecord(findSlot(pageIds[i])));
+        }
+        return result;
+    }
+
+    // 按记录中的字段取出其对合计的贡献，不读取描述、不创建 Transaction
+    private UserAggregates.Contribution contributionOf(int slot) {
+        MappedByteBuffer segment = segment(slot);
+        int base = offset(slot);
+        byte type = segment.get(base + TYPE);
+        return new UserAggregates.Contribution(readString(slot, USER_NAME), type == NO_VALUE ? null : TYPES[type],
+                segment.getLong(base + AMOUNT));
+    }
+
+    // 记录是转账时，按接收方加入或移出反向索引，接收方没有剩余转账时去掉其索引
+    private void indexIncoming(int slot, boolean add) {
+        MappedByteBuffer segment = segment(slot);
+        int base = offset(slot);
+        String toUserName = readString(slot, TO_USER_NAME);
+        if (segment.get(base + TYPE) != TransactionType.TRANSFER.ordinal() || toUserName == null) {
+            return;
+        }
+        long id = segment.getLong(base + ID);
+        if (add) {
+            incomingIndexes.computeIfAbsent(toUserName, k -> new RankedIdIndex()).add(id);
+            return;
+        }
+        RankedIdIndex index = incomingIndexes.get(toUserName);
+        if (index != null && index.remove(id) && index.isEmpty()) {
+            incomingIndexes.remove(toUserName);
+        }
+    }
+
+    private Transaction readRecord(int slot) {
+        MappedByteBuffer segment = segment(slot);
+        int base = offset(slot);
+        byte type = segment.get(base + TYPE);
+        return Transaction.builder()
+                .id(segment.getLong(base + ID))
+                .userName(readString(slot, USER_NAME))
+                .toUserName(readString(slot, TO_USER_NAME))
+                .amountCents(segment.getLong(base + AMOUNT))
+                .type(type == NO_VALUE ? null : TYPES[type])
+                .description(readString(slot, DESCRIPTION))
+                .createTimestamp(segment.getLong(base + CREATE_TIMESTAMP))
+                .updateTimestamp(segment.getLong(base + UPDATE_TIMESTAMP))
+                .build();
+    }
+
+    private void writeRecord(int slot, Transaction transaction) {
+        MappedByteBuffer segment = segment(slot);
+        int base = offset(slot);
+        segment.putLong(base + ID, transaction.getId());
+        segment.putLong(base + AMOUNT, transaction.getAmountCents());
+        segment.putLong(base + CREATE_TIMESTAMP, transaction.getCreateTimestamp());
+        segment.putLong(base + UPDATE_TIMESTAMP, transaction.getUpdateTimestamp());
+        segment.put(base + TYPE, transaction.getType() == null ? NO_VALUE : (byte) transaction.getType().ordinal());
+        writeString(segment, base + USER_NAME, transaction.getUserName());
+        writeString(segment, base + TO_USER_NAME, transaction.getToUserName());
+        writeString(segment, base + DESCRIPTION, transaction.getDescription());
+        // 状态最后写入，记录写完整之前恢复扫描不会把它当作有效记录
+        segment.put(base + STATUS, STATUS_LIVE);
+    }
+
+    private static void writeString(MappedByteBuffer segment, int position, String value) {
+        if (value == null) {
+            segment.put(position, NO_VALUE);
+            return;
+        }
+        byte[] bytes = stringBytes(value);
+        segment.put(position, (byte) bytes.length);
+        segment.put(position + 1, bytes);
+    }
+
+    private static byte[] stringBytes(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("字段长度超过 " + MAX_STRING_BYTES + " 字节: " + value);
+        }
+        return bytes;
+    }
+
+    private String readString(int slot, int field) {
+        MappedByteBuffer segment = segment(slot);
+        int position = offset(slot) + field;
+        byte length = segment.get(position);
+        if (length == NO_VALUE) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        segment.get(position + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int allocateSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        int slot = highWater;
+        if ((slot >> SEGMENT_SHIFT) >= segments.size()) {
+            mapSegment(slot >> SEGMENT_SHIFT);
+        }
+        highWater++;
+        index.putLong(INDEX_HIGH_WATER, highWater);
+        return slot;
+    }
+
+    private void releaseSlot(int slot) {
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length << 1);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private void mapSegment(int segmentIndex) {
+        try {
+            segments.add(dataChannel.map(FileChannel.MapMode.READ_WRITE, segmentIndex * SEGMENT_BYTES, SEGMENT_BYTES));
+        } catch (IOException e) {
+            throw new UncheckedIOException("映射交易数据文件失败", e);
+        }
+    }
+
+    private MappedByteBuffer segment(int slot) {
+        return segments.get(slot >> SEGMENT_SHIFT);
+    }
+
+    private static int offset(int slot) {
+        return (slot & SEGMENT_MASK) * RECORD_SIZE;
+    }
+
+    // ---- 映射的 id -> 槽位号 哈希表(线性探测，删除后移回填) ----
+
+    private int findSlot(long id) {
+        long bucket = bucket(id);
+        while (true) {
+            int position = entryPosition(bucket);
+            long value = index.getLong(position + 8);
+            if (value == 0) {
+                return -1;
+            }
+            if (index.getLong(position) == id) {
+                return (int) (value - 1);
+            }
+            bucket = (bucket + 1) & indexMask;
+        }
+    }
+
+    private void putIndex(long id, int slot) {
+        long bucket = bucket(id);
+        while (true) {
+            int position = entryPosition(bucket);
+            if (index.getLong(position + 8) == 0 || index.getLong(position) == id) {
+                index.putLong(position, id);
+                index.putLong(position + 8, slot + 1L);
+                return;
+            }
+            bucket = (bucket + 1) & indexMask;
+        }
+    }
+
+    private void removeIndex(long id) {
+        long gap = bucket(id);
+        while (true) {
+            int position = entryPosition(gap);
+            if (index.getLong(position + 8) == 0) {
+                return;
+            }
+            if (index.getLong(position) == id) {
+                break;
+            }
+            gap = (gap + 1) & indexMask;
+        }
+        long current = (gap + 1) & indexMask;
+        while (index.getLong(entryPosition(current) + 8) != 0) {
+            long key = index.getLong(entryPosition(current));
+            long ideal = bucket(key);
+            if (((current - ideal) & indexMask) >= ((current - gap) & indexMask)) {
+                index.putLong(entryPosition(gap), key);
+                index.putLong(entryPosition(gap) + 8, index.getLong(entryPosition(current) + 8));
+                gap = current;
+            }
+            current = (current + 1) & indexMask;
+        }
+        index.putLong(entryPosition(gap), 0);
+        index.putLong(entryPosition(gap) + 8, 0);
+    }
+
+    private long bucket(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (h ^ (h >>> 32)) & indexMask;
+    }
+
+    private static int entryPosition(long bucket) {
+        return (int) (INDEX_HEADER_SIZE + bucket * ENTRY_SIZE);
+    }
+
+    private long readIndexCapacity() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+        indexChannel.read(header, 0);
+        return header.getLong(INDEX_CAPACITY);
+    }
+
+    private static long indexCapacityFor(int maxSize) {
+        long required = (long) Math.ceil((maxSize + 1L) / INDEX_LOAD_FACTOR);
+        return Math.max(16, Long.highestOneBit(required - 1) << 1);
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.transaction.repository.index;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * long -> 对象的并发哈希表：按哈希高位分成固定数量的段，每段一个线性探测表，键不装箱，也没有每个条目的节点对象。
+ * <p>
+ * 写操作持有所在段的写锁，删除采用后移回填，不留墓碑；读操作先乐观读，期间该段没有写入时不写任何共享内存，
+ * 发生写入才退回读锁重做。值不能为 null，值为 null 的位置即空位。
+ */
+public class ConcurrentLongObjectMap<V> {
+    private static final int SEGMENT_BITS = 6;
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    public ConcurrentLongObjectMap() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int hash = hash(key);
+        return (V) segmentFor(hash).get(key, hash);
+    }
+
+    /**
+     * @return 旧值，不存在时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("值不能为空");
+        }
+        int hash = hash(key);
+        return (V) segmentFor(hash).put(key, hash, value);
+    }
+
+    /**
+     * @return 被删除的值，不存在时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int hash = hash(key);
+        return (V) segmentFor(hash).remove(key, hash);
+    }
+
+    /**
+     * 各段数量之和，并发写入时是近似值
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    // 高位选段，低位选槽，两者互不相关
+    private Segment segmentFor(int hash) {
+        return segments[hash >>> (Integer.SIZE - SEGMENT_BITS)];
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+
+        private long[] keys = new long[INITIAL_SEGMENT_CAPACITY];
+        private Object[] values = new Object[INITIAL_SEGMENT_CAPACITY];
+        private volatile int size;
+
+        Object get(long key, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    Object result = find(key, hash);
+                    if (lock.validate(stamp)) {
+                        return result;
+                    }
+                } catch (RuntimeException e) {
+                    // 扩容时可能读到新旧不一致的数组，校验失败则加锁重做
+                    if (lock.validate(stamp)) {
+                        throw e;
+                    }
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return find(key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        Object put(long key, int hash, Object value) {
+            long stamp = lock.writeLock();
+            try {
+                int mask = values.length - 1;
+                int slot = hash & mask;
+                while (values[slot] != null) {
+                    if (keys[slot] == key) {
+                        Object previous = values[slot];
+                        values[slot] = value;
+                        return previous;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size >= values.length * LOAD_FACTOR) {
+                    rehash(values.length << 1);
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        Object remove(long key, int hash) {
+            long stamp = lock.writeLock();
+            try {
+                int mask = values.length - 1;
+                for (int slot = hash & mask; values[slot] != null; slot = (slot + 1) & mask) {
+                    if (keys[slot] == key) {
+                        Object previous = values[slot];
+                        shiftKeys(slot);
+                        size--;
+                        return previous;
+                    }
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // 乐观读时数组可能正被修改：最多探测一整圈，保证不会死循环
+        private Object find(long key, int hash) {
+            long[] keys = this.keys;
+            Object[] values = this.values;
+            int mask = values.length - 1;
+            int slot = hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                Object value = values[slot];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[slot] == key) {
+                    return value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        // 删除后把后续同一探测链上的元素前移，保证查找不会提前遇到空位
+        private void shiftKeys(int slot) {
+            int mask = values.length - 1;
+            int gap = slot;
+            int current = (gap + 1) & mask;
+            while (values[current] != null) {
+                int ideal = hash(keys[current]) & mask;
+                // ideal 不在 (gap, current] 区间内时可以前移到 gap
+                if (((current - ideal) & mask) >= ((current - gap) & mask)) {
+                    keys[gap] = keys[current];
+                    values[gap] = values[current];
+                    gap = current;
+                }
+                current = (current + 1) & mask;
+            }
+            values[gap] = null;
+        }
+
+        // 新数组填好后再替换引用；乐观读如果混用了新旧数组，会在校验时失败后重做
+        private void rehash(int capacity) {
+            long[] newKeys = new long[capacity];
+            Object[] newValues = new Object[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    int slot = hash(keys[i]) & mask;
+                    while (newValues[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    newKeys[slot] = keys[i];
+                    newValues[slot] = values[i];
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.transaction.repository.index;
+
+/**
+ * long -> int 的开放寻址哈希表(线性探测)，不对键值装箱。
+ * 删除采用后移回填，不留墓碑。非线程安全，由调用方加锁。
+ */
+public class LongIntHashMap {
+    public static final int NO_VALUE = -1;
+
+    private static final long FREE_KEY = 0L;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    // FREE_KEY 本身作为键时单独保存
+    private boolean hasFreeKey;
+    private int freeKeyValue = NO_VALUE;
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = tableSizeFor((int) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR));
+        allocate(capacity);
+    }
+
+    public int get(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : NO_VALUE;
+        }
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == FREE_KEY) {
+                return NO_VALUE;
+            }
+            if (current == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return 旧值，不存在时返回 NO_VALUE
+     */
+    public int put(long key, int value) {
+        if (key == FREE_KEY) {
+            int previous = hasFreeKey ? freeKeyValue : NO_VALUE;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return previous;
+        }
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == FREE_KEY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size >= resizeThreshold) {
+                    allocateAndRehash(keys.length << 1);
+                }
+                return NO_VALUE;
+            }
+            if (current == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return 被删除的值，不存在时返回 NO_VALUE
+     */
+    public int remove(long key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return NO_VALUE;
+            }
+            hasFreeKey = false;
+            size--;
+            int previous = freeKeyValue;
+            freeKeyValue = NO_VALUE;
+            return previous;
+        }
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == FREE_KEY) {
+                return NO_VALUE;
+            }
+            if (current == key) {
+                int previous = values[slot];
+                shiftKeys(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // 删除后把后续同一探测链上的元素前移，保证查找不会提前遇到空位
+    private void shiftKeys(int slot) {
+        int gap = slot;
+        int current = (gap + 1) & mask;
+        while (keys[current] != FREE_KEY) {
+            int ideal = slot(keys[current]);
+            // ideal 不在 (gap, current] 区间内时可以前移到 gap
+            if (((current - ideal) & mask) >= ((current - gap) & mask)) {
+                keys[gap] = keys[current];
+                values[gap] = values[current];
+                gap = current;
+            }
+            current = (current + 1) & mask;
+        }
+        keys[gap] = FREE_KEY;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void allocateAndRehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        int moved = hasFreeKey ? 1 : 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != FREE_KEY) {
+                int slot = slot(key);
+                while (keys[slot] != FREE_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+                moved++;
+            }
+        }
+        size = moved;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        return Math.max(n, 8);
+    }
+}
@@ -0,0 +1,501 @@
+package com.example.transaction.repository.index;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 单个用户的交易Id有序索引：按Id升序的追加日志 + Fenwick树(树状数组)统计存活数量。
+ * <p>
+ * 交易Id基本单调递增，绝大部分写入是尾部追加，O(log n)；少量乱序写入只需移动插入点之后的元素。
+ * 删除只打墓碑标记，墓碑过半时整体压缩。总数 O(1)，第k条 / 排名 O(log n)。
+ * <p>
+ * 每个Id可以带一组属性(int 的各位)，每个属性一张按位置的位图，用到时才分配；
+ * 每张位图另有一层摘要，一位对应位图中的一个 64 位字，按属性筛选时整段跳过没有候选的 4096 个位置。
+ * <p>
+ * 线程安全：写操作持有写锁；读操作先乐观读，期间没有写入时不写任何共享内存，发生写入才退回读锁重做。
+ */
+public class RankedIdIndex {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MIN_COMPACT_LENGTH = 64;
+
+    private final StampedLock lock = new StampedLock();
+
+    // 按升序排列的Id，包含已删除(墓碑)的位置
+    private long[] ids = new long[INITIAL_CAPACITY];
+    // 存活标记位图
+    private long[] liveBits = new long[(INITIAL_CAPACITY >>> 6) + 1];
+    // Fenwick树，下标从1开始，tree[i] 记录区间 (i - lowbit(i), i] 中的存活数量
+    private int[] tree = new int[INITIAL_CAPACITY + 1];
+    // 已使用的位置数(含墓碑)
+    private int length;
+    // 存活数量
+    private volatile int live;
+    // 属性位图，attributeBits[a] 的第 pos 位表示该位置的Id带有属性 a；墓碑位置的属性位不清除，筛选时与存活位相与
+    private final long[][] attributeBits = new long[Integer.SIZE][];
+    // attributeSummary[a] 的第 w 位为 0 表示 attributeBits[a][w] 一定为 0；只在压缩时重算，其余时候只增不减
+    private final long[][] attributeSummary = new long[Integer.SIZE][];
+    // 已分配位图的属性
+    private int allocatedAttributes;
+
+    /**
+     * @return true 表示新增，false 表示Id已存在
+     */
+    public boolean add(long id) {
+        return add(id, 0);
+    }
+
+    /**
+     * 新增Id并设置其属性；Id已存在时替换其属性
+     *
+     * @return true 表示新增，false 表示Id已存在
+     */
+    public boolean add(long id, int attributes) {
+        long stamp = lock.writeLock();
+        try {
+            if (length == 0 || id > ids[length - 1]) {
+                ensureCapacity(length + 1);
+                ids[length] = id;
+                setLive(length, true);
+                setAttributes(length, attributes);
+                length++;
+                appendTreeNode(length);
+                live++;
+                return true;
+            }
+
+            int pos = lowerBound(id);
+            if (ids[pos] == id) {
+                setAttributes(pos, attributes);
+                if (isLive(pos)) {
+                    return false;
+                }
+                setLive(pos, true);
+                updateTree(pos + 1, 1);
+                live++;
+                return true;
+            }
+
+            insertAt(pos, id, attributes);
+            live++;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return true 表示删除成功，false 表示Id不存在
+     */
+    public boolean remove(long id) {
+        long stamp = lock.writeLock();
+        try {
+            int pos = lowerBound(id);
+            if (pos == length || ids[pos] != id || !isLive(pos)) {
+                return false;
+            }
+            setLive(pos, false);
+            updateTree(pos + 1, -1);
+            live--;
+
+            if (length >= MIN_COMPACT_LENGTH && live < length / 2) {
+                compact();
+            }
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        return live;
+    }
+
+    public boolean isEmpty() {
+        return live == 0;
+    }
+
+    public boolean contains(long id) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                boolean result = containsUnlocked(id);
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // 并发写入时可能读到不一致的数组，校验失败则加锁重做
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return containsUnlocked(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 返回第 k 条(从0开始)存活Id
+     *
+     * @throws IndexOutOfBoundsException k 超出范围
+     */
+    public long select(int k) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                long result = selectUnlocked(k);
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return selectUnlocked(k);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 返回小于 id 的存活Id数量
+     */
+    public int rank(long id) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int result = prefixSum(lowerBound(id));
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return prefixSum(lowerBound(id));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 从第 fromRank 条(从0开始)起按顺序返回最多 maxCount 个存活Id
+     */
+    public long[] idsFrom(int fromRank, int maxCount) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                long[] result = idsFromUnlocked(fromRank, maxCount);
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return idsFromUnlocked(fromRank, maxCount);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 从大于 afterId 的Id起按顺序返回最多 maxCount 个满足全部条件的存活Id：
+     * 每个条件是一组属性，Id 至少带有其中一个；没有条件时返回全部。
+     * 按 64 位计算，摘要为 0 的整段跳过，代价主要与匹配数成正比，而不是与总数成正比
+     */
+    public long[] idsMatching(long afterId, int maxCount, int... anyOf) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                long[] result = idsMatchingUnlocked(afterId, maxCount, anyOf);
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return idsMatchingUnlocked(afterId, maxCount, anyOf);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private long[] idsMatchingUnlocked(long afterId, int maxCount, int[] anyOf) {
+        int start = afterId == Long.MAX_VALUE ? length : lowerBound(afterId + 1);
+        if (start >= length || maxCount <= 0) {
+            return new long[0];
+        }
+        long[] result = new long[Math.min(maxCount, live)];
+        int count = 0;
+        int lastWord = (length - 1) >>> 6;
+        int word = start >>> 6;
+        long firstMask = -1L << start;
+        while (word <= lastWord && count < result.length) {
+            long candidates = summaryOf(word >>> 6, anyOf) >>> (word & 63);
+            if (candidates == 0) {
+                word = ((word >>> 6) + 1) << 6;
+                continue;
+            }
+            word += Long.numberOfTrailingZeros(candidates);
+            if (word > lastWord) {
+                break;
+            }
+            long bits = wordOf(word, anyOf);
+            if (word == start >>> 6) {
+                bits &= firstMask;
+            }
+            while (bits != 0 && count < result.length) {
+                result[count++] = ids[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
+            }
+            word++;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    // 第 word 个字中满足全部条件的存活位置
+    private long wordOf(int word, int[] anyOf) {
+        long bits = liveBits[word];
+        for (int condition : anyOf) {
+            long any = 0;
+            for (int remaining = condition; remaining != 0 && bits != 0; remaining &= remaining - 1) {
+                long[] attribute = attributeBits[Integer.numberOfTrailingZeros(remaining)];
+                if (attribute != null) {
+                    any |= attribute[word];
+                }
+            }
+            bits &= any;
+        }
+        return bits;
+    }
+
+    // 第 summaryWord 段 64 个字中可能有候选的字
+    private long summaryOf(int summaryWord, int[] anyOf) {
+        long candidates = -1L;
+        for (int condition : anyOf) {
+            long any = 0;
+            for (int remaining = condition; remaining != 0 && candidates != 0; remaining &= remaining - 1) {
+                long[] summary = attributeSummary[Integer.numberOfTrailingZeros(remaining)];
+                if (summary != null) {
+                    any |= summary[summaryWord];
+                }
+            }
+            candidates &= any;
+        }
+        return candidates;
+    }
+
+    private boolean containsUnlocked(long id) {
+        int pos = lowerBound(id);
+        return pos < length && ids[pos] == id && isLive(pos);
+    }
+
+    private long selectUnlocked(int k) {
+        int count = live;
+        if (k < 0 || k >= count) {
+            throw new IndexOutOfBoundsException("索引超过范围: " + k + ", 总数: " + count);
+        }
+        return ids[findPosition(k + 1) - 1];
+    }
+
+    private long[] idsFromUnlocked(int fromRank, int maxCount) {
+        int count = live;
+        if (fromRank < 0 || fromRank >= count || maxCount <= 0) {
+            return new long[0];
+        }
+        long[] result = new long[Math.min(maxCount, count - fromRank)];
+        int filled = 0;
+        for (int pos = findPosition(fromRank + 1) - 1; pos < length && filled < result.length; pos++) {
+            if (isLive(pos)) {
+                result[filled++] = ids[pos];
+            }
+        }
+        return result;
+    }
+
+    private int lowerBound(long id) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid] < id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // 在Fenwick树上二分，找到前缀和等于 target 的最小位置(从1开始)
+    private int findPosition(int target) {
+        int pos = 0;
+        int remaining = target;
+        for (int step = Integer.highestOneBit(length); step > 0; step >>>= 1) {
+            int next = pos + step;
+            if (next <= length && tree[next] < remaining) {
+                pos = next;
+                remaining -= tree[next];
+            }
+        }
+        return pos + 1;
+    }
+
+    // 前 count 个位置中的存活数量
+    private int prefixSum(int count) {
+        int sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void updateTree(int index, int delta) {
+        for (int i = index; i <= length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // 位置 index(从1开始) 之前的节点都已正确时，计算 tree[index]
+    private void appendTreeNode(int index) {
+        int value = isLive(index - 1) ? 1 : 0;
+        tree[index] = value + prefixSum(index - 1) - prefixSum(index - (index & -index));
+    }
+
+    private void insertAt(int pos, long id, int attributes) {
+        ensureCapacity(length + 1);
+        System.arraycopy(ids, pos, ids, pos + 1, length - pos);
+        shiftBits(liveBits, pos, length);
+        for (int remaining = allocatedAttributes; remaining != 0; remaining &= remaining - 1) {
+            int a = Integer.numberOfTrailingZeros(remaining);
+            shiftBits(attributeBits[a], pos, length);
+            for (int word = pos >>> 6; word <= length >>> 6; word++) {
+                if (attributeBits[a][word] != 0) {
+                    attributeSummary[a][word >>> 6] |= 1L << word;
+                }
+            }
+        }
+        ids[pos] = id;
+        setLive(pos, true);
+        setAttributes(pos, attributes);
+        length++;
+        // 插入点之后的节点全部重算，代价与离尾部的距离成正比
+        for (int i = pos + 1; i <= length; i++) {
+            appendTreeNode(i);
+        }
+    }
+
+    private void compact() {
+        int write = 0;
+        for (int read = 0; read < length; read++) {
+            if (isLive(read)) {
+                for (int remaining = allocatedAttributes; remaining != 0; remaining &= remaining - 1) {
+                    long[] bits = attributeBits[Integer.numberOfTrailingZeros(remaining)];
+                    setBit(bits, write, getBit(bits, read));
+                }
+                ids[write++] = ids[read];
+            }
+        }
+        for (int remaining = allocatedAttributes; remaining != 0; remaining &= remaining - 1) {
+            int a = Integer.numberOfTrailingZeros(remaining);
+            long[] bits = attributeBits[a];
+            for (int pos = write; pos < length; pos++) {
+                setBit(bits, pos, false);
+            }
+            Arrays.fill(attributeSummary[a], 0L);
+            for (int word = 0; word < bits.length; word++) {
+                if (bits[word] != 0) {
+                    attributeSummary[a][word >>> 6] |= 1L << word;
+                }
+            }
+        }
+        Arrays.fill(liveBits, 0L);
+        for (int i = 0; i < write; i++) {
+            setLive(i, true);
+        }
+        length = write;
+        for (int i = 1; i <= length; i++) {
+            appendTreeNode(i);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length + (ids.length >>> 1));
+        ids = Arrays.copyOf(ids, newCapacity);
+        liveBits = Arrays.copyOf(liveBits, (newCapacity >>> 6) + 1);
+        tree = Arrays.copyOf(tree, newCapacity + 1);
+        for (int remaining = allocatedAttributes; remaining != 0; remaining &= remaining - 1) {
+            int a = Integer.numberOfTrailingZeros(remaining);
+            attributeBits[a] = Arrays.copyOf(attributeBits[a], liveBits.length);
+            attributeSummary[a] = Arrays.copyOf(attributeSummary[a], (liveBits.length >>> 6) + 1);
+        }
+    }
+
+    // 清除位置 pos 原有的属性后设置新的属性，位图在第一次用到时分配
+    private void setAttributes(int pos, int attributes) {
+        for (int remaining = attributes | allocatedAttributes; remaining != 0; remaining &= remaining - 1) {
+            int a = Integer.numberOfTrailingZeros(remaining);
+            boolean value = (attributes & (1 << a)) != 0;
+            if (attributeBits[a] == null) {
+                attributeBits[a] = new long[liveBits.length];
+                attributeSummary[a] = new long[(liveBits.length >>> 6) + 1];
+                allocatedAttributes |= 1 << a;
+            }
+            setBit(attributeBits[a], pos, value);
+            if (value) {
+                attributeSummary[a][pos >>> 12] |= 1L << (pos >>> 6);
+            }
+        }
+    }
+
+    // 位置 [pos, length) 的位整体后移一位
+    private static void shiftBits(long[] bits, int pos, int length) {
+        for (int i = length; i > pos; i--) {
+            setBit(bits, i, getBit(bits, i - 1));
+        }
+    }
+
+    private boolean isLive(int pos) {
+        return getBit(liveBits, pos);
+    }
+
+    private void setLive(int pos, boolean value) {
+        setBit(liveBits, pos, value);
+    }
+
+    private static boolean getBit(long[] bits, int pos) {
+        return (bits[pos >>> 6] & (1L << pos)) != 0;
+    }
+
+    private static void setBit(long[] bits, int pos, boolean value) {
+        if (value) {
+            bits[pos >>> 6] |= 1L << pos;
+        } else {
+            bits[pos >>> 6] &= ~(1L << pos);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.transaction.repository.index;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongPredicate;
+
+/**
+ * 单个用户按创建时间的稀疏栅栏索引，配合该用户的 RankedIdIndex 按时间范围取交易。
+ * <p>
+ * 同一用户的Id随时间递增，绝大部分交易的Id和创建时间都不小于之前写入的交易，构成一条两者同时单调的主序列。
+ * 主序列每 FENCE_INTERVAL 条记一个栅栏 (创建时间, Id)：二分栅栏即可把时间范围换成Id范围，O(log n)，
+ * 再从Id索引中顺序读取，范围两端各多读不超过一个栅栏间隔。每条交易平均只占 1/FENCE_INTERVAL 个栅栏。
+ * <p>
+ * Id或创建时间比主序列末尾小的交易(导入、时钟回拨)以及修改了创建时间的覆盖记为例外，按Id单独保存，
+ * 查询时逐条判断；这类写入很少，例外集合很小。删除不回退栅栏：栅栏只用来限定读取范围，删除后仍然覆盖全部存活交易。
+ * <p>
+ * 线程安全：写操作持有写锁，查询在读锁下取出Id范围和例外后，不持锁读取Id索引。
+ */
+public class TimeFenceIndex {
+    static final int FENCE_INTERVAL = 64;
+
+    private final StampedLock lock = new StampedLock();
+
+    // 栅栏，两者都按主序列的顺序单调不减
+    private long[] fenceTimestamps = new long[4];
+    private long[] fenceIds = new long[4];
+    private int fenceCount;
+
+    // 主序列的末尾和长度
+    private long lastId = Long.MIN_VALUE;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private long sequenceLength;
+
+    // 不在主序列中的交易：Id -> 创建时间
+    private final TreeMap<Long, Long> exceptions = new TreeMap<>();
+
+    /**
+     * 新增交易
+     */
+    public void add(long id, long createTimestamp) {
+        long stamp = lock.writeLock();
+        try {
+            if (id > lastId && createTimestamp >= lastTimestamp) {
+                if (sequenceLength++ % FENCE_INTERVAL == 0) {
+                    appendFence(createTimestamp, id);
+                }
+                lastId = id;
+                lastTimestamp = createTimestamp;
+            } else {
+                exceptions.put(id, createTimestamp);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 覆盖已有交易；创建时间不变时不需要任何修改
+     */
+    public void update(long id, long oldCreateTimestamp, long createTimestamp) {
+        if (oldCreateTimestamp == createTimestamp) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            exceptions.put(id, createTimestamp);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(long id) {
+        long stamp = lock.writeLock();
+        try {
+            exceptions.remove(id);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 创建时间在 [from, to] 内、Id大于 afterId 的交易，按Id升序返回最多 maxCount 个Id。
+     *
+     * @param ids           同一用户的Id索引
+     * @param createdWithin 判断某个Id的交易当前存在且创建时间在 [from, to] 内
+     */
+    public long[] idsBetween(RankedIdIndex ids, long from, long to, long afterId, int maxCount,
+                             LongPredicate createdWithin) {
+        if (from > to || afterId == Long.MAX_VALUE || maxCount <= 0) {
+            return new long[0];
+        }
+
+        long startId;
+        long endId;
+        long[] candidates;
+        long stamp = lock.readLock();
+        try {
+            startId = Math.max(lowerFence(from), afterId + 1);
+            endId = upperFence(to);
+            candidates = exceptionsBetween(from, to, afterId, maxCount);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        // 主序列：从Id范围的起点顺序读取，遇到终点或取满为止
+        long[] found = new long[maxCount];
+        int foundCount = 0;
+        if (startId < endId) {
+            int rank = ids.rank(startId);
+            int chunkSize = Math.max(maxCount, FENCE_INTERVAL);
+            scan:
+            while (true) {
+                long[] chunk = ids.idsFrom(rank, chunkSize);
+                for (long id : chunk) {
+                    if (id >= endId) {
+                        break scan;
+                    }
+                    if (createdWithin.test(id)) {
+                        found[foundCount++] = id;
+                        if (foundCount == maxCount) {
+                            break scan;
+                        }
+                    }
+                }
+                if (chunk.length < chunkSize) {
+                    break;
+                }
+                rank += chunk.length;
+            }
+        }
+
+        int candidateCount = 0;
+        for (long id : candidates) {
+            if (createdWithin.test(id)) {
+                candidates[candidateCount++] = id;
+            }
+        }
+        return merge(found, foundCount, candidates, candidateCount, maxCount);
+    }
+
+    // 创建时间早于 from 的主序列交易都在返回的Id之前
+    private long lowerFence(long from) {
+        int pos = firstFenceAtLeast(from);
+        return pos == 0 ? Long.MIN_VALUE : fenceIds[pos - 1];
+    }
+
+    // 返回的Id及之后的主序列交易，创建时间都晚于 to
+    private long upperFence(long to) {
+        int pos = to == Long.MAX_VALUE ? fenceCount : firstFenceAtLeast(to + 1);
+        return pos == fenceCount ? Long.MAX_VALUE : fenceIds[pos];
+    }
+
+    private int firstFenceAtLeast(long timestamp) {
+        int low = 0;
+        int high = fenceCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (fenceTimestamps[mid] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long[] exceptionsBetween(long from, long to, long afterId, int maxCount) {
+        long[] result = new long[Math.min(maxCount, exceptions.size())];
+        int count = 0;
+        for (Map.Entry<Long, Long> entry : exceptions.tailMap(afterId, false).entrySet()) {
+            if (count == result.length) {
+                break;
+            }
+            long createTimestamp = entry.getValue();
+            if (createTimestamp >= from && createTimestamp <= to) {
+                result[count++] = entry.getKey();
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    // 合并两个升序Id序列，去掉同时出现在两边的Id(主序列中修改过创建时间的交易)
+    private static long[] merge(long[] first, int firstCount, long[] second, int secondCount, int maxCount) {
+        if (secondCount == 0) {
+            return Arrays.copyOf(first, firstCount);
+        }
+        long[] result = new long[Math.min(maxCount, firstCount + secondCount)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (count < result.length && (i < firstCount || j < secondCount)) {
+            long id;
+            if (j == secondCount || (i < firstCount && first[i] < second[j])) {
+                id = first[i++];
+            } else if (i == firstCount || second[j] < first[i]) {
+                id = second[j++];
+            } else {
+                id = first[i++];
+                j++;
+            }
+            result[count++] = id;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private void appendFence(long createTimestamp, long id) {
+        if (fenceCount == fenceIds.length) {
+            int newCapacity = fenceCount + (fenceCount >>> 1) + 1;
+            fenceTimestamps = Arrays.copyOf(fenceTimestamps, newCapacity);
+            fenceIds = Arrays.copyOf(fenceIds, newCapacity);
+        }
+        fenceTimestamps[fenceCount] = createTimestamp;
+        fenceIds[fenceCount] = id;
+        fenceCount++;
+    }
+}
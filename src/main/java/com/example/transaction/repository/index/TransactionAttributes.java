@@ -0,0 +1,85 @@
+package com.example.transaction.repository.index;
+
+import com.example.transaction.model.Transaction;
+import com.example.transaction.model.Transaction.TransactionType;
+import com.example.transaction.model.TransactionFilter;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * 交易在用户Id索引(RankedIdIndex)中的筛选属性：低 8 位每种交易类型一位，其余 24 位是按 4 的幂划分的金额分段，
+ * 第 k 段为 [4^k, 4^(k+1)) 分，最后一段不设上限。
+ * <p>
+ * 类型位图给出的结果是精确的；金额范围两端所在的分段只是候选，需要再按实际金额判断。
+ */
+public final class TransactionAttributes {
+    private static final int TYPE_BITS = 8;
+    private static final int BUCKET_COUNT = Integer.SIZE - TYPE_BITS;
+
+    private TransactionAttributes() {
+    }
+
+    public static int of(Transaction transaction) {
+        return of(transaction.getType(), transaction.getAmountCents());
+    }
+
+    public static int of(TransactionType type, long amountCents) {
+        return (type == null ? 0 : 1 << type.ordinal()) | 1 << (TYPE_BITS + bucketOf(amountCents));
+    }
+
+    /**
+     * 按筛选条件从用户的Id索引中取出大于 afterId 的前 maxCount 个Id。
+     * 位图按类型和金额分段给出候选，amountWithin 按实际金额判断候选，只有落在范围两端分段中的交易可能被排除
+     */
+    public static long[] idsMatching(RankedIdIndex index, TransactionFilter filter, long afterId, int maxCount,
+                                     LongPredicate amountWithin) {
+        int[] conditions = conditionsOf(filter);
+        long[] result = new long[maxCount];
+        int count = 0;
+        long cursor = afterId;
+        while (count < maxCount) {
+            int wanted = maxCount - count;
+            long[] candidates = index.idsMatching(cursor, wanted, conditions);
+            for (long id : candidates) {
+                if (amountWithin.test(id)) {
+                    result[count++] = id;
+                }
+            }
+            if (candidates.length < wanted) {
+                break;
+            }
+            cursor = candidates[candidates.length - 1];
+        }
+        return count == maxCount ? result : Arrays.copyOf(result, count);
+    }
+
+    // 不限类型、不限金额的条件省略，金额上下限颠倒时没有任何分段，结果为空
+    private static int[] conditionsOf(TransactionFilter filter) {
+        int types = 0;
+        for (TransactionType type : filter.getTypes()) {
+            types |= 1 << type.ordinal();
+        }
+        int lowBucket = bucketOf(filter.getMinAmountCents());
+        int highBucket = bucketOf(filter.getMaxAmountCents());
+        int buckets = 0;
+        if (filter.getMinAmountCents() <= filter.getMaxAmountCents()) {
+            for (int bucket = lowBucket; bucket <= highBucket; bucket++) {
+                buckets |= 1 << (TYPE_BITS + bucket);
+            }
+        }
+        boolean allAmounts = lowBucket == 0 && highBucket == BUCKET_COUNT - 1;
+        if (types == 0) {
+            return allAmounts ? new int[0] : new int[]{buckets};
+        }
+        return allAmounts ? new int[]{types} : new int[]{types, buckets};
+    }
+
+    // 小于 4 分(含非正数)的在第 0 段
+    static int bucketOf(long amountCents) {
+        if (amountCents < 4) {
+            return 0;
+        }
+        return Math.min(BUCKET_COUNT - 1, (63 - Long.numberOfLeadingZeros(amountCents)) >>> 1);
+    }
+}
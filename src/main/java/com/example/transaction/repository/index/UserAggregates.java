@@ -0,0 +1,109 @@
+package com.example.transaction.repository.index;
+
+import com.example.transaction.model.Transaction;
+import com.example.transaction.model.Transaction.TransactionType;
+import com.example.transaction.model.UserSummary;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按用户增量维护的交易合计：条数、存入、取出、转入、转出，金额单位为分。
+ * <p>
+ * 仓库在保存时加上新交易的贡献、覆盖已有交易时加上新旧贡献之差、删除时减去，读取 O(1)。
+ * 每条交易只计入它自己所属用户的合计：转账的转出(TRANSFER)和转入(TRANSFER_IN)是两条记录，各自计入一方。
+ * 每个用户的合计是不可变对象，每次写入用 ConcurrentHashMap 的条件替换整体替换(失败重试)，读取不加锁也总能拿到某次写入之后完整的合计。
+ * 合计全部归零的用户移除，不随删除积累。
+ */
+public class UserAggregates {
+    private static final Totals ZERO = new Totals(0, 0, 0, 0, 0);
+
+    private final Map<String, Totals> totals = new ConcurrentHashMap<>();
+
+    public void add(Transaction transaction) {
+        merge(transaction.getUserName(), transaction.getType(), transaction.getAmountCents(), null, 0);
+    }
+
+    /**
+     * 供不保留 Transaction 对象的仓库按字段直接加上一条交易的贡献
+     */
+    public void add(Contribution contribution) {
+        merge(contribution.userName(), contribution.type(), contribution.amountCents(), null, 0);
+    }
+
+    public void subtract(Transaction transaction) {
+        merge(transaction.getUserName(), null, 0, transaction.getType(), transaction.getAmountCents());
+    }
+
+    public void replace(Transaction old, Transaction transaction) {
+        replace(Contribution.of(old), transaction);
+    }
+
+    /**
+     * 用 transaction 覆盖贡献为 old 的交易：所属用户不变时新旧之差一次写入，读取不会看到只减去旧值的中间状态
+     */
+    public void replace(Contribution old, Transaction transaction) {
+        if (old.userName().equals(transaction.getUserName())) {
+            merge(old.userName(), transaction.getType(), transaction.getAmountCents(), old.type(), old.amountCents());
+        } else {
+            // 换了所属用户：两个用户各自一次写入，各自的合计仍然完整
+            merge(old.userName(), null, 0, old.type(), old.amountCents());
+            add(transaction);
+        }
+    }
+
+    public UserSummary summary(String userName) {
+        Totals current = totals.getOrDefault(userName, ZERO);
+        return new UserSummary(userName, current.count, current.deposits, current.withdrawals,
+                current.transfersIn, current.transfersOut);
+    }
+
+    // 加上一条交易(addedType 为 null 表示没有)、减去一条交易(removedType 为 null 表示没有)，一次替换写入。
+    // 不用 compute，新增路径上只分配新的合计对象，不再分配增量对象和捕获参数的 lambda
+    private void merge(String userName, TransactionType addedType, long addedCents,
+                       TransactionType removedType, long removedCents) {
+        while (true) {
+            Totals current = totals.get(userName);
+            Totals next = (current == null ? ZERO : current).plus(addedType, addedCents, removedType, removedCents);
+            if (next.equals(current == null ? ZERO : current)) {
+                return;
+            }
+            boolean written;
+            if (current == null) {
+                written = totals.putIfAbsent(userName, next) == null;
+            } else if (next.equals(ZERO)) {
+                written = totals.remove(userName, current);
+            } else {
+                written = totals.replace(userName, current, next);
+            }
+            if (written) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 一条交易对所属用户合计的贡献
+     */
+    public record Contribution(String userName, TransactionType type, long amountCents) {
+        public static Contribution of(Transaction transaction) {
+            return new Contribution(transaction.getUserName(), transaction.getType(), transaction.getAmountCents());
+        }
+    }
+
+    private record Totals(long count, long deposits, long withdrawals, long transfersIn, long transfersOut) {
+        Totals plus(TransactionType addedType, long addedCents, TransactionType removedType, long removedCents) {
+            return new Totals(
+                    count + (addedType == null ? 0 : 1) - (removedType == null ? 0 : 1),
+                    deposits + amountOf(TransactionType.DEPOSIT, addedType, addedCents, removedType, removedCents),
+                    withdrawals + amountOf(TransactionType.WITHDRAWAL, addedType, addedCents, removedType, removedCents),
+                    transfersIn + amountOf(TransactionType.TRANSFER_IN, addedType, addedCents, removedType, removedCents),
+                    transfersOut + amountOf(TransactionType.TRANSFER, addedType, addedCents, removedType, removedCents));
+        }
+
+        private static long amountOf(TransactionType type, TransactionType addedType, long addedCents,
+                                     TransactionType removedType, long removedCents) {
+            return (addedType == type ? addedCents : 0) - (removedType == type ? removedCents : 0);
+        }
+    }
+}
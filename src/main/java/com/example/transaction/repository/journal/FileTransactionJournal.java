@@ -0,0 +1,552 @@
+package com.example.transaction.repository.journal;
+
+import com.example.transaction.model.Transaction;
+import com.example.transaction.repository.TransactionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 基于文件的预写日志，支持组提交。
+ * <p>
+ * 写入线程把编码好的记录放入有界队列后等待；单个刷盘线程把队列中积攒的记录合并成一次
+ * FileChannel.write + force，再统一唤醒。一批最多 maxBatchRecords 条，第一条入队后最多再等待
+ * maxDelayMicros 微秒凑批(0 表示只合并上一次刷盘期间到达的记录)，fsync 次数不再随请求数增长。
+ * <p>
+ * 日志按段滚动，文件名为该段起始位置(LSN)。记录格式：int 长度 + int CRC32C + 内容，
+ * 启动重放时遇到不完整或校验失败的尾部记录会截断丢弃。需要同时生效的一组修改(转账两方)编码为一条记录，共用一个校验和。
+ * <p>
+ * checkpoint 先让刷盘线程滚动到新段，以新段起点作为 fence，再写快照并删除 fence 之前的段。
+ * 快照逐个用户在用户锁内取数，不阻塞其他用户的写入；fence 之后的修改既可能已经出现在快照中也一定在日志里，
+ * 日志操作都是整条覆盖或按Id删除，重放时再执行一遍结果不变。启动时加载最新快照，只重放 fence 之后的日志。
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.journal.enabled", havingValue = "true")
+public class FileTransactionJournal implements TransactionJournal, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(FileTransactionJournal.class);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int HEADER_SIZE = 8;
+    private static final byte OP_SAVE = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_GROUP = 3;
+    private static final int DELETE_SIZE = 8 + 2 + 80;
+    // 一组最多的删除加保存条数，刷盘缓冲区至少能放下一条最大的整组记录
+    private static final int MAX_GROUP_SIZE = 4;
+    private static final int MAX_GROUP_RECORD = HEADER_SIZE + 3 + MAX_GROUP_SIZE * TransactionCodec.MAX_ENCODED_SIZE;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int maxBatchRecords;
+    private final long maxDelayNanos;
+    private final boolean sync;
+
+    private final BlockingQueue<PendingWrite> queue;
+    private final ByteBuffer batchBuffer;
+    private Thread flusher;
+    private volatile boolean running;
+    private volatile IOException failure;
+    // 写入过日志的最大交易Id，记入快照，避免被删除的最大Id在重启后被复用
+    private final AtomicLong highestId = new AtomicLong();
+    private long snapshotFence = -1;
+    // 恢复与快照互斥；快照期间有文件IO和 await，用 ReentrantLock 而不是 synchronized，避免在虚拟线程上钉住载体线程
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+
+    // 以下字段只由刷盘线程(启动前由恢复流程)访问
+    private FileChannel channel;
+    private long segmentStart;
+    private long position;
+
+    @Autowired
+    public FileTransactionJournal(
+            @Value("${transaction.journal.directory:journal}") String directory,
+            @Value("${transaction.journal.segment-bytes:67108864}") long segmentBytes,
+            @Value("${transaction.journal.group-commit.max-batch-records:512}") int maxBatchRecords,
+            @Value("${transaction.journal.group-commit.max-delay-micros:0}") long maxDelayMicros,
+            @Value("${transaction.journal.sync:true}") boolean sync) {
+        this(Path.of(directory), segmentBytes, maxBatchRecords, maxDelayMicros, sync);
+    }
+
+    public FileTransactionJournal(Path directory, long segmentBytes, int maxBatchRecords,
+                                  long maxDelayMicros, boolean sync) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxBatchRecords = maxBatchRecords;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.sync = sync;
+        this.queue = new ArrayBlockingQueue<>(maxBatchRecords * 8);
+        this.batchBuffer = ByteBuffer.allocateDirect(Math.max(MAX_GROUP_RECORD,
+                maxBatchRecords * (HEADER_SIZE + 1 + TransactionCodec.MAX_ENCODED_SIZE)));
+    }
+
+    @Override
+    public void logSave(Transaction transaction) {
+        append(encodeSave(transaction));
+    }
+
+    @Override
+    public void logSaveAll(List<Transaction> transactions) {
+        // 整批先入队再等待，刷盘线程可以把它们合并进同一次 fsync
+        List<PendingWrite> writes = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            writes.add(new PendingWrite(frame(encodeSave(transaction)), new CompletableFuture<>()));
+        }
+        checkWritable();
+        try {
+            for (PendingWrite write : writes) {
+                queue.put(write);
+            }
+            for (PendingWrite write : writes) {
+                write.done.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待预写日志时被中断", e);
+        } catch (CompletionException e) {
+            throw new UncheckedIOException("写入预写日志失败", (IOException) e.getCause());
+        }
+    }
+
+    private ByteBuffer encodeSave(Transaction transaction) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + 1 + TransactionCodec.MAX_ENCODED_SIZE);
+        record.position(HEADER_SIZE);
+        record.put(OP_SAVE);
+        TransactionCodec.encode(transaction, record);
+        highestId.accumulateAndGet(transaction.getId(), Math::max);
+        return record;
+    }
+
+    @Override
+    public void logDelete(String userName, long id) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + 1 + DELETE_SIZE);
+        record.position(HEADER_SIZE);
+        record.put(OP_DELETE);
+        putDelete(record, userName, id);
+        append(record);
+    }
+
+    @Override
+    public void logGroup(List<Transaction> saves, List<Transaction> deletes) {
+        if (saves.size() + deletes.size() > MAX_GROUP_SIZE) {
+            throw new IllegalArgumentException("一组修改不能超过" + MAX_GROUP_SIZE + "条");
+        }
+        // 内容：删除条数、保存条数，各条删除，各条保存
+        ByteBuffer record = ByteBuffer.allocate(
+                HEADER_SIZE + 3 + deletes.size() * DELETE_SIZE + saves.size() * TransactionCodec.MAX_ENCODED_SIZE);
+        record.position(HEADER_SIZE);
+        record.put(OP_GROUP);
+        record.put((byte) deletes.size());
+        record.put((byte) saves.size());
+        for (Transaction transaction : deletes) {
+            putDelete(record, transaction.getUserName(), transaction.getId());
+        }
+        for (Transaction transaction : saves) {
+            TransactionCodec.encode(transaction, record);
+            highestId.accumulateAndGet(transaction.getId(), Math::max);
+        }
+        append(record);
+    }
+
+    private void putDelete(ByteBuffer record, String userName, long id) {
+        record.putLong(id);
+        TransactionCodec.putString(record, userName);
+        highestId.accumulateAndGet(id, Math::max);
+    }
+
+    @Override
+    public long recover(TransactionRepository repository) {
+        checkpointLock.lock();
+        try {
+            return recoverLocked(repository);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private long recoverLocked(TransactionRepository repository) {
+        if (running) {
+            throw new IllegalStateException("预写日志已经启动");
+        }
+        long start = System.nanoTime();
+        long maxId = 0;
+        long records = 0;
+        try {
+            Files.createDirectories(directory);
+            // 上次未写完的快照
+            for (Path temporary : listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX + ".tmp")) {
+                Files.delete(temporary);
+            }
+            List<Path> snapshots = listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            if (!snapshots.isEmpty()) {
+                TransactionSnapshot snapshot = TransactionSnapshot.load(snapshots.get(snapshots.size() - 1), repository);
+                snapshotFence = snapshot.fence();
+                maxId = snapshot.maxId();
+                log.info("加载快照完成: {} 条交易, fence {}, 耗时 {} ms",
+                        snapshot.records(), snapshotFence, (System.nanoTime() - start) / 1_000_000);
+            }
+
+            // 快照之前的段可能因为上次压缩中途退出而残留，跳过
+            long fence = snapshotFence;
+            List<Path> segments = listFiles(SEGMENT_PREFIX, SEGMENT_SUFFIX).stream()
+                    .filter(segment -> startOf(segment, SEGMENT_PREFIX, SEGMENT_SUFFIX) >= fence)
+                    .toList();
+            for (int i = 0; i < segments.size(); i++) {
+                Path segment = segments.get(i);
+                ReplayResult result = replaySegment(segment, repository);
+                maxId = Math.max(maxId, result.maxId);
+                records += result.records;
+                if (result.validBytes < Files.size(segment)) {
+                    if (i != segments.size() - 1) {
+                        throw new IllegalStateException("预写日志中间段损坏: " + segment);
+                    }
+                    log.warn("预写日志尾部不完整，截断 {} 于 {} 字节", segment, result.validBytes);
+                    try (FileChannel truncate = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                        truncate.truncate(result.validBytes);
+                    }
+                }
+            }
+
+            if (segments.isEmpty()) {
+                openSegment(Math.max(0, snapshotFence));
+            } else {
+                Path last = segments.get(segments.size() - 1);
+                segmentStart = startOf(last, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+                channel = FileChannel.open(last, StandardOpenOption.WRITE);
+                position = channel.size();
+                channel.position(position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("重放预写日志失败: " + directory, e);
+        }
+        log.info("预写日志重放完成: {} 条记录, 最大交易Id {}, 耗时 {} ms",
+                records, maxId, (System.nanoTime() - start) / 1_000_000);
+        highestId.set(maxId);
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        return maxId;
+    }
+
+    @Override
+    public void checkpoint(SnapshotSource source) {
+        checkpointLock.lock();
+        try {
+            checkpointLocked(source);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private void checkpointLocked(SnapshotSource source) {
+        if (!running) {
+            throw new IllegalStateException("预写日志未启动");
+        }
+        long start = System.nanoTime();
+        PendingWrite roll = new PendingWrite(null, new CompletableFuture<>());
+        long fence = await(roll);
+        if (fence == snapshotFence) {
+            // 上次快照之后没有新的日志
+            return;
+        }
+
+        TransactionSnapshot snapshot = TransactionSnapshot.write(
+                directory.resolve(fileName(SNAPSHOT_PREFIX, fence, SNAPSHOT_SUFFIX)), fence, highestId.get(), source);
+        snapshotFence = fence;
+        try {
+            deleteBefore(SEGMENT_PREFIX, SEGMENT_SUFFIX, fence);
+            deleteBefore(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX, fence);
+        } catch (IOException e) {
+            // 残留的旧文件在下次压缩或启动时会被跳过，不影响正确性
+            log.warn("删除已压缩的日志失败", e);
+        }
+        log.info("快照完成: {} 条交易, fence {}, 耗时 {} ms",
+                snapshot.records(), fence, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    @PreDestroy
+    public void close() throws IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.force(false);
+        channel.close();
+    }
+
+    private void append(ByteBuffer record) {
+        checkWritable();
+        await(new PendingWrite(frame(record), new CompletableFuture<>()));
+    }
+
+    private void checkWritable() {
+        if (!running) {
+            throw new IllegalStateException("预写日志未启动");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("预写日志不可用", failure);
+        }
+    }
+
+    // 填写记录头(长度、CRC32C)并切换为读模式
+    private static ByteBuffer frame(ByteBuffer record) {
+        int length = record.position() - HEADER_SIZE;
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), HEADER_SIZE, length);
+        record.putInt(0, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    private long await(PendingWrite write) {
+        try {
+            queue.put(write);
+            return write.done.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待预写日志时被中断", e);
+        } catch (CompletionException e) {
+            throw new UncheckedIOException("写入预写日志失败", (IOException) e.getCause());
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchRecords);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                PendingWrite roll = first.record == null ? first : null;
+                if (roll == null) {
+                    batch.add(first);
+                }
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (roll == null && batch.size() < maxBatchRecords) {
+                    PendingWrite next = queue.poll();
+                    if (next == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0 || (next = queue.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                            break;
+                        }
+                    }
+                    if (next.record == null) {
+                        roll = next;
+                    } else {
+                        batch.add(next);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+                if (roll != null) {
+                    roll(roll);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+            batchBuffer.clear();
+            for (PendingWrite write : batch) {
+                // 整组记录比单条大，缓冲区放不下时先写出已有的部分
+                if (batchBuffer.remaining() < write.record.remaining()) {
+                    writeBuffered();
+                }
+                batchBuffer.put(write.record);
+            }
+            writeBuffered();
+            if (sync) {
+                channel.force(false);
+            }
+            long durable = segmentStart + position;
+            for (PendingWrite write : batch) {
+                write.done.complete(durable);
+            }
+        } catch (IOException e) {
+            log.error("写入预写日志失败", e);
+            failure = e;
+            for (PendingWrite write : batch) {
+                write.done.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void writeBuffered() throws IOException {
+        batchBuffer.flip();
+        if (position > 0 && position + batchBuffer.remaining() > segmentBytes) {
+            rollSegment();
+        }
+        while (batchBuffer.hasRemaining()) {
+            position += channel.write(batchBuffer);
+        }
+        batchBuffer.clear();
+    }
+
+    // 处理 checkpoint 的滚动请求：当前段有内容时滚动到新段，返回新段起点
+    private void roll(PendingWrite request) {
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+            if (position > 0) {
+                rollSegment();
+            }
+            request.done.complete(segmentStart);
+        } catch (IOException e) {
+            log.error("滚动预写日志失败", e);
+            failure = e;
+            request.done.completeExceptionally(e);
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        channel.force(false);
+        channel.close();
+        openSegment(segmentStart + position);
+    }
+
+    private void openSegment(long start) throws IOException {
+        segmentStart = start;
+        position = 0;
+        channel = FileChannel.open(directory.resolve(fileName(SEGMENT_PREFIX, start, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private ReplayResult replaySegment(Path segment, TransactionRepository repository) throws IOException {
+        ReplayResult result = new ReplayResult();
+        try (FileChannel reader = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = reader.map(FileChannel.MapMode.READ_ONLY, 0, reader.size());
+            CRC32C crc = new CRC32C();
+            int position = 0;
+            // 有效记录之后的内容(写了一半的记录或预分配的零)都视为尾部，由调用方截断
+            while (buffer.limit() - position >= HEADER_SIZE) {
+                int length = buffer.getInt(position);
+                int checksum = buffer.getInt(position + 4);
+                if (length <= 0 || length > buffer.limit() - position - HEADER_SIZE) {
+                    break;
+                }
+                ByteBuffer body = buffer.slice(position + HEADER_SIZE, length);
+                crc.reset();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                byte op = body.get();
+                if (op == OP_SAVE) {
+                    Transaction transaction = TransactionCodec.decode(body);
+                    repository.save(transaction);
+                    result.maxId = Math.max(result.maxId, transaction.getId());
+                } else if (op == OP_DELETE) {
+                    long id = body.getLong();
+                    repository.deleteByUserNameAndId(TransactionCodec.getString(body), id);
+                    result.maxId = Math.max(result.maxId, id);
+                } else if (op == OP_GROUP) {
+                    int deletes = body.get();
+                    int saves = body.get();
+                    for (int i = 0; i < deletes; i++) {
+                        long id = body.getLong();
+                        repository.deleteByUserNameAndId(TransactionCodec.getString(body), id);
+                        result.maxId = Math.max(result.maxId, id);
+                    }
+                    for (int i = 0; i < saves; i++) {
+                        Transaction transaction = TransactionCodec.decode(body);
+                        repository.save(transaction);
+                        result.maxId = Math.max(result.maxId, transaction.getId());
+                    }
+                } else {
+                    break;
+                }
+                result.records++;
+                position += HEADER_SIZE + length;
+            }
+            result.validBytes = position;
+        }
+        return result;
+    }
+
+    // 按起始位置升序列出日志段或快照
+    private List<Path> listFiles(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix)
+                            && path.getFileName().toString().endsWith(suffix))
+                    .sorted((a, b) -> Long.compare(startOf(a, prefix, suffix), startOf(b, prefix, suffix)))
+                    .toList();
+        }
+    }
+
+    // 删除起始位置小于 fence 的日志段或快照
+    private void deleteBefore(String prefix, String suffix, long fence) throws IOException {
+        for (Path path : listFiles(prefix, suffix)) {
+            if (startOf(path, prefix, suffix) < fence) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static String fileName(String prefix, long start, String suffix) {
+        return String.format("%s%020d%s", prefix, start, suffix);
+    }
+
+    private static long startOf(Path file, String prefix, String suffix) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    // record 为 null 表示 checkpoint 的滚动请求，done 返回新段起点
+    private record PendingWrite(ByteBuffer record, CompletableFuture<Long> done) {
+    }
+
+    private static final class ReplayResult {
+        private long maxId;
+        private long records;
+        private long validBytes;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.example.transaction.repository.journal;
+
+import com.example.transaction.model.Transaction;
+import com.example.transaction.repository.TransactionRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 未开启预写日志时使用，不做任何持久化
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.journal.enabled", havingValue = "false", matchIfMissing = true)
+public class NoOpTransactionJournal implements TransactionJournal {
+    @Override
+    public void logSave(Transaction transaction) {
+    }
+
+    @Override
+    public void logDelete(String userName, long id) {
+    }
+
+    @Override
+    public long recover(TransactionRepository repository) {
+        return 0;
+    }
+
+    @Override
+    public void checkpoint(SnapshotSource source) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.example.transaction.repository.journal;
+
+import com.example.transaction.model.Transaction;
+import com.example.transaction.model.Transaction.TransactionType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 交易的紧凑二进制编码，预写日志与快照共用。
+ * 金额按分存 long，类型存 byte，字符串为 short 长度 + UTF-8 字节(长度 -1 表示 null)。
+ */
+public final class TransactionCodec {
+    /**
+     * 单条交易编码后的最大字节数(字符串按最长 20 个 4 字节字符计算)
+     */
+    public static final int MAX_ENCODED_SIZE = 8 * 4 + 1 + 3 * (2 + 80);
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private TransactionCodec() {
+    }
+
+    public static void encode(Transaction transaction, ByteBuffer buffer) {
+        buffer.putLong(transaction.getId());
+        buffer.putLong(transaction.getAmountCents());
+        buffer.put(transaction.getType() == null ? -1 : (byte) transaction.getType().ordinal());
+        buffer.putLong(transaction.getCreateTimestamp());
+        buffer.putLong(transaction.getUpdateTimestamp());
+        putString(buffer, transaction.getUserName());
+        putString(buffer, transaction.getToUserName());
+        putString(buffer, transaction.getDescription());
+    }
+
+    public static Transaction decode(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        long amountCents = buffer.getLong();
+        byte type = buffer.get();
+        long createTimestamp = buffer.getLong();
+        long updateTimestamp = buffer.getLong();
+        return Transaction.builder()
+                .id(id)
+                .amountCents(amountCents)
+                .type(type < 0 ? null : TYPES[type])
+                .createTimestamp(createTimestamp)
+                .updateTimestamp(updateTimestamp)
+                .userName(getString(buffer))
+                .toUserName(getString(buffer))
+                .description(getString(buffer))
+                .build();
+    }
+
+    public static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    public static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
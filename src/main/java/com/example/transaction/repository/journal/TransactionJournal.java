@@ -0,0 +1,61 @@
+package com.example.transaction.repository.journal;
+
+import com.example.transaction.model.Transaction;
+import com.example.transaction.repository.TransactionRepository;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 位于 TransactionRepository 之前的预写日志：修改内存之前先把操作写入日志，返回时日志已经持久化。
+ * 操作均为幂等的整条覆盖或按Id删除，按日志顺序重放即可恢复到相同状态。
+ */
+public interface TransactionJournal {
+    /**
+     * 记录新增或覆盖一条交易
+     */
+    void logSave(Transaction transaction);
+
+    /**
+     * 记录一批新增，返回时整批已经持久化；默认逐条记录
+     */
+    default void logSaveAll(List<Transaction> transactions) {
+        transactions.forEach(this::logSave);
+    }
+
+    /**
+     * 记录删除一条交易
+     */
+    void logDelete(String userName, long id);
+
+    /**
+     * 记录一组必须同时生效的修改(转账的转出、转入两条记录)：先删除 deletes(只用到用户名和Id)，再保存 saves。
+     * 返回时整组已经持久化，重放时整组执行或整组丢弃；默认逐条记录，不保证整组
+     */
+    default void logGroup(List<Transaction> saves, List<Transaction> deletes) {
+        deletes.forEach(transaction -> logDelete(transaction.getUserName(), transaction.getId()));
+        logSaveAll(saves);
+    }
+
+    /**
+     * 启动时把日志重放到仓库中
+     *
+     * @return 日志中出现过的最大交易Id，没有记录时返回0
+     */
+    long recover(TransactionRepository repository);
+
+    /**
+     * 把 source 给出的当前全部交易写成快照，并删除快照已经覆盖的日志。
+     * source 在日志滚动到快照的 fence 之后才被调用，需包含 fence 之前已记入日志的全部写入
+     */
+    void checkpoint(SnapshotSource source);
+
+    /**
+     * 快照数据来源：按用户分组、组内按Id升序遍历全部交易。
+     * 每个用户的交易需在该用户的锁内一次性取出，保证与日志顺序一致
+     */
+    @FunctionalInterface
+    interface SnapshotSource {
+        void forEach(Consumer<Transaction> action);
+    }
+}
\ No newline at end of file
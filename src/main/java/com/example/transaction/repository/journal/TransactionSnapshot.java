@@ -0,0 +1,209 @@
+package com.example.transaction.repository.journal;
+
+import com.example.transaction.model.Transaction;
+import com.example.transaction.repository.TransactionRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * 快照文件：某个日志位置(fence)之前全部修改的二进制镜像。
+ * <p>
+ * 格式为文件头(magic、fence、最大交易Id、记录数、块数) + 若干块，每块为 int 记录数 + int 字节数 + int CRC32C + 记录。
+ * 同一用户的交易总是落在同一块中并按Id升序，加载时各块可以并行解码写入仓库，按用户的索引仍然是尾部追加。
+ * 先写临时文件并 fsync，再原子重命名，目录中的快照文件总是完整的。
+ */
+final class TransactionSnapshot {
+    private static final long MAGIC = 0x54584E534E415031L;
+    private static final int HEADER_SIZE = 40;
+    private static final int CHUNK_HEADER_SIZE = 12;
+    private static final int CHUNK_RECORDS = 64 * 1024;
+
+    private final long fence;
+    private final long maxId;
+    private final long records;
+
+    private TransactionSnapshot(long fence, long maxId, long records) {
+        this.fence = fence;
+        this.maxId = maxId;
+        this.records = records;
+    }
+
+    long fence() {
+        return fence;
+    }
+
+    long maxId() {
+        return maxId;
+    }
+
+    long records() {
+        return records;
+    }
+
+    /**
+     * 把 source 中的交易写成快照文件，source 需按用户分组、组内按Id升序给出交易
+     */
+    static TransactionSnapshot write(Path target, long fence, long maxId, TransactionJournal.SnapshotSource source) {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ChunkWriter writer = new ChunkWriter(channel);
+            source.forEach(writer);
+            writer.flushChunk();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(MAGIC).putLong(fence).putLong(maxId).putLong(writer.records).putInt(writer.chunks);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(false);
+
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            return new TransactionSnapshot(fence, maxId, writer.records);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入快照失败: " + target, e);
+        }
+    }
+
+    /**
+     * 并行解码各块并写入仓库
+     */
+    static TransactionSnapshot load(Path file, TransactionRepository repository) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            if (header.getLong() != MAGIC) {
+                throw new IllegalStateException("快照文件格式不正确: " + file);
+            }
+            long fence = header.getLong();
+            long maxId = header.getLong();
+            long records = header.getLong();
+            int chunkCount = header.getInt();
+
+            // 先顺序读出各块的位置，再并行处理
+            List<Chunk> chunks = new ArrayList<>(chunkCount);
+            ByteBuffer chunkHeader = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+            long position = HEADER_SIZE;
+            for (int i = 0; i < chunkCount; i++) {
+                chunkHeader.clear();
+                readFully(channel, chunkHeader, position);
+                int count = chunkHeader.getInt();
+                int length = chunkHeader.getInt();
+                int checksum = chunkHeader.getInt();
+                chunks.add(new Chunk(position + CHUNK_HEADER_SIZE, length, count, checksum));
+                position += CHUNK_HEADER_SIZE + length;
+            }
+
+            LongAdder loaded = new LongAdder();
+            chunks.parallelStream().forEach(chunk -> {
+                ByteBuffer body = ByteBuffer.allocate(chunk.length());
+                try {
+                    readFully(channel, body, chunk.offset());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(body.array(), 0, body.limit());
+                if ((int) crc.getValue() != chunk.checksum()) {
+                    throw new IllegalStateException("快照块校验失败: " + file + " @" + chunk.offset());
+                }
+                for (int i = 0; i < chunk.count(); i++) {
+                    repository.save(TransactionCodec.decode(body));
+                }
+                loaded.add(chunk.count());
+            });
+            if (loaded.sum() != records) {
+                throw new IllegalStateException("快照记录数不一致: " + file);
+            }
+            return new TransactionSnapshot(fence, maxId, records);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取快照失败: " + file, e);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("快照文件不完整");
+            }
+        }
+        buffer.flip();
+    }
+
+    private record Chunk(long offset, int length, int count, int checksum) {
+    }
+
+    // 按块缓冲编码结果，块内记录数达到上限且用户切换时落盘
+    private static final class ChunkWriter implements Consumer<Transaction> {
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(CHUNK_RECORDS * 64);
+        private final ByteBuffer chunkHeader = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+        private long position = HEADER_SIZE;
+        private int chunkRecords;
+        private String lastUserName;
+        private long records;
+        private int chunks;
+
+        private ChunkWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void accept(Transaction transaction) {
+            if (chunkRecords >= CHUNK_RECORDS && !Objects.equals(lastUserName, transaction.getUserName())) {
+                flushChunk();
+            }
+            if (buffer.remaining() < TransactionCodec.MAX_ENCODED_SIZE) {
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            TransactionCodec.encode(transaction, buffer);
+            lastUserName = transaction.getUserName();
+            chunkRecords++;
+            records++;
+        }
+
+        private void flushChunk() {
+            if (chunkRecords == 0) {
+                return;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.array(), 0, buffer.position());
+            chunkHeader.clear();
+            chunkHeader.putInt(chunkRecords).putInt(buffer.position()).putInt((int) crc.getValue());
+            chunkHeader.flip();
+            buffer.flip();
+            try {
+                position += write(chunkHeader, position);
+                position += write(buffer, position);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+            chunkRecords = 0;
+            chunks++;
+        }
+
+        private int write(ByteBuffer source, long at) throws IOException {
+            int written = 0;
+            while (source.hasRemaining()) {
+                written += channel.write(source, at + written);
+            }
+            return written;
+        }
+    }
+}
\ No newline at end of file
@@ -1,14 +1,33 @@
 package com.example.transaction.service;
 
+import com.example.transaction.dto.BatchResult;
+import com.example.transaction.dto.CursorPage;
 import com.example.transaction.dto.TransactionRequest;
 import com.example.transaction.model.Transaction;
+import com.example.transaction.model.TransactionFilter;
+import com.example.transaction.model.UserSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
 public interface TransactionService {
     Transaction createTransaction(TransactionRequest request);
     Transaction updateTransaction(String userName, String id, TransactionRequest request);
     void deleteTransaction(String userName, String id);
+    CompletableFuture<Transaction> createTransactionAsync(TransactionRequest request);
+    CompletableFuture<Transaction> updateTransactionAsync(String userName, String id, TransactionRequest request);
+    CompletableFuture<Void> deleteTransactionAsync(String userName, String id);
+    CompletableFuture<BatchResult> createTransactionsAsync(List<TransactionRequest> requests);
+    void importTransactions(List<Transaction> transactions);
     Transaction getTransaction(String userName, String id);
     Page<Transaction> getAllTransactions(String userName, Pageable pageable);
+    CursorPage<Transaction> getTransactionsAfter(String userName, String cursor, int size);
+    CursorPage<Transaction> getTransactionsBetween(String userName, long from, long to, String cursor, int size);
+    CursorPage<Transaction> getTransactionsMatching(String userName, TransactionFilter filter, String cursor, int size);
+    CursorPage<Transaction> getIncomingTransfersAfter(String userName, String cursor, int size);
+    Stream<Transaction> exportTransactions(String userName);
+    UserSummary getSummary(String userName);
 } 
\ No newline at end of file
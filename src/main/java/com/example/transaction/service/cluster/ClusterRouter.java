@@ -0,0 +1,206 @@
+package com.example.transaction.service.cluster;
+
+import com.example.transaction.dto.BatchItemResult;
+import com.example.transaction.dto.BatchResult;
+import com.example.transaction.dto.TransactionRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 按用户名分区的集群路由：各节点配置相同的节点列表，用一致性哈希环决定每个用户属于哪个节点，
+ * 节点只保存自己负责的用户。请求落到其他节点时，按 routing 配置由本节点转发(forward)，
+ * 或返回 307 让客户端直接重发到所属节点(redirect)。
+ * <p>
+ * 转发的请求带 X-Transaction-Forwarded 头，收到方只在本地处理，不再次转发，各节点配置不一致时不会循环转发。
+ * 节点列表是静态配置，增减节点需要同时修改全部节点并迁移换了归属的用户数据。
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.cluster.enabled", havingValue = "true")
+public class ClusterRouter {
+    public static final String FORWARDED_HEADER = "X-Transaction-Forwarded";
+    private static final String BATCH_PATH = "/api/v1/transactions:batch";
+
+    private final ConsistentHashRing ring;
+    private final String self;
+    private final boolean redirect;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private int maxBatchSize = 1000;
+
+    public ClusterRouter(ObjectMapper objectMapper,
+                         @Value("${transaction.cluster.nodes}") String[] nodes,
+                         @Value("${transaction.cluster.self}") String self,
+                         @Value("${transaction.cluster.virtual-nodes:256}") int virtualNodes,
+                         @Value("${transaction.cluster.routing:forward}") String routing,
+                         @Value("${transaction.cluster.forward-timeout-ms:5000}") long timeoutMillis) {
+        List<String> nodeList = Arrays.stream(nodes).map(ClusterRouter::normalize).filter(s -> !s.isEmpty()).toList();
+        this.ring = new ConsistentHashRing(nodeList, virtualNodes);
+        this.self = normalize(self);
+        if (!nodeList.contains(this.self)) {
+            throw new IllegalArgumentException("本节点地址 " + self + " 不在集群节点列表中: " + nodeList);
+        }
+        if (!"forward".equals(routing) && !"redirect".equals(routing)) {
+            throw new IllegalArgumentException("集群路由方式只能是 forward 或 redirect: " + routing);
+        }
+        this.redirect = "redirect".equals(routing);
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(this.timeout)
+                .build();
+        this.objectMapper = objectMapper;
+    }
+
+    @Value("${transaction.batch.max-size:1000}")
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public boolean isLocal(String userName) {
+        return self.equals(ring.ownerOf(userName));
+    }
+
+    /**
+     * 用户所属节点的地址，如 http://host:8080
+     */
+    public String ownerOf(String userName) {
+        return ring.ownerOf(userName);
+    }
+
+    public String self() {
+        return self;
+    }
+
+    /**
+     * 本节点在排序后的节点列表中的位置，各节点配置相同时互不相同，用作默认的Id节点号
+     */
+    public int nodeIndex() {
+        return ring.nodes().indexOf(self);
+    }
+
+    public boolean isRedirect() {
+        return redirect;
+    }
+
+    /**
+     * 发往其他节点的请求，已带超时与转发标记
+     */
+    public HttpRequest.Builder newRequest(String url) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, self);
+    }
+
+    public HttpResponse<InputStream> send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    /**
+     * 批量新增按用户所属节点拆分：本节点的部分交给 local，其余按节点并发转发，结果按原下标合并。
+     * 批量请求不能整体重定向，redirect 模式下也由本节点转发。forwarded 为 true 时请求已经转发过一次，
+     * 不属于本节点的条目直接失败。转发失败时该节点的条目全部失败，不影响其他节点的条目
+     */
+    public CompletableFuture<BatchResult> createTransactions(
+            List<TransactionRequest> requests, boolean forwarded,
+            Function<List<TransactionRequest>, CompletableFuture<BatchResult>> local) {
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("每批交易不能超过" + maxBatchSize + "条");
+        }
+        Map<String, List<Integer>> indexesByNode = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String userName = requests.get(i).getUserName();
+            // 没有用户名的条目在本地校验失败
+            String node = userName == null || userName.isEmpty() ? self : ring.ownerOf(userName);
+            indexesByNode.computeIfAbsent(node, k -> new ArrayList<>()).add(i);
+        }
+
+        BatchItemResult[] items = new BatchItemResult[requests.size()];
+        List<CompletableFuture<Void>> parts = new ArrayList<>(indexesByNode.size());
+        indexesByNode.forEach((node, indexes) -> {
+            if (!node.equals(self) && forwarded) {
+                for (int index : indexes) {
+                    items[index] = BatchItemResult.failed(index, "用户不属于本节点，各节点的集群配置不一致");
+                }
+                return;
+            }
+            List<TransactionRequest> part = indexes.stream().map(requests::get).toList();
+            boolean isSelf = node.equals(self);
+            CompletableFuture<BatchResult> result = isSelf ? local.apply(part) : forwardBatch(node, part);
+            String failure = isSelf ? "" : "转发到节点 " + node + " 失败: ";
+            parts.add(result.handle((batch, e) -> {
+                for (int i = 0; i < indexes.size(); i++) {
+                    int index = indexes.get(i);
+                    if (e != null) {
+                        items[index] = BatchItemResult.failed(index, failure + rootMessage(e));
+                    } else {
+                        BatchItemResult item = batch.getItems().get(i);
+                        item.setIndex(index);
+                        items[index] = item;
+                    }
+                }
+                return null;
+            }));
+        });
+        return CompletableFuture.allOf(parts.toArray(CompletableFuture<?>[]::new))
+                .thenApply(ignored -> BatchResult.of(items));
+    }
+
+    private CompletableFuture<BatchResult> forwardBatch(String node, List<TransactionRequest> requests) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(requests);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpRequest request = newRequest(node + BATCH_PATH)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("HTTP " + response.statusCode());
+                    }
+                    try {
+                        return objectMapper.readValue(response.body(), BatchResult.class);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private static String rootMessage(Throwable e) {
+        while (e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    // 去掉首尾空白和末尾的 /，避免 "http://a:8080/" 与 "http://a:8080" 被当成不同节点
+    private static String normalize(String node) {
+        String trimmed = node.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
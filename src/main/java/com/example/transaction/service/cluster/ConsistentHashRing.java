@@ -0,0 +1,82 @@
+package com.example.transaction.service.cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * 用户名到节点的一致性哈希环：每个节点在环上放 virtualNodes 个点，用户名哈希后顺时针找到的第一个点所属的节点负责该用户。
+ * <p>
+ * 哈希只取决于字符串内容(FNV-1a 后再做 64 位混合)，不同 JVM、不同启动之间结果相同；节点先排序再放点，
+ * 各节点只要配置的节点集合相同，无论顺序如何都得到同一个环。增加或减少一个节点时，只有落在该节点区间内的用户换节点，
+ * 约为总数的 1/N，其余用户的归属不变。
+ */
+public final class ConsistentHashRing {
+    private final String[] nodes;
+    private final long[] points;
+    private final int[] owners;
+
+    public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("集群节点不能为空");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("虚拟节点数必须大于0: " + virtualNodes);
+        }
+        TreeSet<String> sorted = new TreeSet<>(nodes);
+        if (sorted.size() != nodes.size()) {
+            throw new IllegalArgumentException("集群节点重复: " + nodes);
+        }
+        this.nodes = sorted.toArray(new String[0]);
+
+        int total = this.nodes.length * virtualNodes;
+        List<long[]> entries = new ArrayList<>(total);
+        for (int node = 0; node < this.nodes.length; node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                entries.add(new long[]{hash(this.nodes[node] + "#" + v), node});
+            }
+        }
+        // 按点排序，点相同时按节点下标，保证各节点构造出的环完全一致
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.points = new long[total];
+        this.owners = new int[total];
+        for (int i = 0; i < total; i++) {
+            points[i] = entries.get(i)[0];
+            owners[i] = (int) entries.get(i)[1];
+        }
+    }
+
+    public String ownerOf(String key) {
+        long hash = hash(key);
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            // 与点重合时取相同值中的第一个，binarySearch 不保证返回哪一个
+            while (index > 0 && points[index - 1] == hash) {
+                index--;
+            }
+        }
+        return nodes[owners[index == points.length ? 0 : index]];
+    }
+
+    public List<String> nodes() {
+        return List.of(nodes);
+    }
+
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        // FNV-1a 低位扩散不足，相近的用户名(user1、user2)需要再混合一次才能均匀分布在环上
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.transaction.service.execution;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 默认方式：在调用线程中直接执行，互斥由服务内的用户分段锁保证
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.execution.mode", havingValue = "locked", matchIfMissing = true)
+public class DirectMutationExecutor implements MutationExecutor {
+    @Override
+    public <T> CompletableFuture<T> submit(String userName, Supplier<T> mutation) {
+        try {
+            return CompletableFuture.completedFuture(mutation.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.example.transaction.service.execution;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界多生产者单消费者环形队列。
+ * <p>
+ * 生产者 CAS 领取序号后写入对应槽位；唯一的消费者按序号顺序读取并清空槽位，只写自己的消费序号，
+ * 不与生产者竞争同一个锁或计数器。槽位非空才表示已发布，生产者领取序号但尚未写入时消费者视为暂时为空。
+ */
+final class MpscRingBuffer<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private volatile long consumerIndex;
+
+    MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("队列容量必须是2的幂: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return false 表示队列已满
+     */
+    boolean offer(E element) {
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex >= capacity) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+        slots.setRelease((int) index & mask, element);
+        return true;
+    }
+
+    /**
+     * 只能由消费者线程调用
+     *
+     * @return 队列为空(或下一个元素尚未发布)时返回 null
+     */
+    E poll() {
+        long index = consumerIndex;
+        int offset = (int) index & mask;
+        E element = slots.getAcquire(offset);
+        if (element == null) {
+            return null;
+        }
+        slots.setPlain(offset, null);
+        // volatile 写保证槽位清空先于序号前进对生产者可见
+        consumerIndex = index + 1;
+        return element;
+    }
+
+    boolean isEmpty() {
+        return producerIndex.get() == consumerIndex;
+    }
+}
\ No newline at end of file
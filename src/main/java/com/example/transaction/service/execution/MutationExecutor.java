@@ -0,0 +1,11 @@
+package com.example.transaction.service.execution;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 修改操作的执行方式。同一用户的修改按提交顺序执行，结果(或异常)通过 CompletableFuture 返回给调用线程。
+ */
+public interface MutationExecutor {
+    <T> CompletableFuture<T> submit(String userName, Supplier<T> mutation);
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.example.transaction.service.execution;
+
+import com.example.transaction.exception.ShardQueueFullException;
+import com.example.transaction.service.lock.StripedUserLocks;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 按用户分片的单线程执行：用户哈希到 N 个分片之一，每个分片一个线程、一个有界 MPSC 队列，
+ * 同一分片的修改由该线程依次执行，请求线程拿到 CompletableFuture 后即可返回。
+ * <p>
+ * 分片由用户所在的锁分段决定(分段下标对分片数取模)，每个锁分段只属于一个分片线程，
+ * 服务内的写锁因此不会在写线程之间竞争，只用于让乐观读发现并发修改；热点用户的修改在分片线程内排队，
+ * 不再让大量请求线程阻塞在同一把锁上。队列满时直接拒绝(503)，不无限堆积。
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.execution.mode", havingValue = "sharded")
+public class ShardedMutationExecutor implements MutationExecutor {
+    private static final Logger log = LoggerFactory.getLogger(ShardedMutationExecutor.class);
+    private static final int SPIN_TRIES = 100;
+
+    private final StripedUserLocks userLocks;
+    private final Shard[] shards;
+    private final int mask;
+    private volatile boolean running = true;
+
+    public ShardedMutationExecutor(StripedUserLocks userLocks,
+                                   @Value("${transaction.execution.shards:4}") int shardCount,
+                                   @Value("${transaction.execution.queue-capacity:4096}") int queueCapacity) {
+        if (shardCount <= 0 || Integer.bitCount(shardCount) != 1 || shardCount > userLocks.size()) {
+            throw new IllegalArgumentException("分片数必须是2的幂且不超过锁分段数: " + shardCount);
+        }
+        this.userLocks = userLocks;
+        this.mask = shardCount - 1;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(queueCapacity);
+            Thread thread = new Thread(shards[i], "mutation-shard-" + i);
+            thread.setDaemon(true);
+            shards[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(String userName, Supplier<T> mutation) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("分片执行器已关闭"));
+        }
+        Shard shard = shards[userLocks.stripeOf(userName) & mask];
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (!shard.queue.offer(new Task<>(mutation, future))) {
+            return CompletableFuture.failedFuture(new ShardQueueFullException("系统繁忙，请稍后重试"));
+        }
+        if (shard.parked) {
+            LockSupport.unpark(shard.thread);
+        }
+        return future;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            shard.thread.join();
+        }
+    }
+
+    private final class Shard implements Runnable {
+        private final MpscRingBuffer<Task<?>> queue;
+        private Thread thread;
+        private volatile boolean parked;
+
+        private Shard(int queueCapacity) {
+            this.queue = new MpscRingBuffer<>(queueCapacity);
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (running || !queue.isEmpty()) {
+                Task<?> task = queue.poll();
+                if (task != null) {
+                    task.run();
+                    idle = 0;
+                    continue;
+                }
+                if (++idle < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                // 先声明要休眠再检查一次队列，生产者入队后看到 parked 会唤醒
+                parked = true;
+                if (queue.isEmpty() && running) {
+                    LockSupport.park(this);
+                }
+                parked = false;
+                idle = 0;
+            }
+        }
+    }
+
+    private record Task<T>(Supplier<T> mutation, CompletableFuture<T> future) {
+        void run() {
+            try {
+                future.complete(mutation.get());
+            } catch (Throwable e) {
+                if (!(e instanceof RuntimeException)) {
+                    log.error("分片执行修改失败", e);
+                }
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.example.transaction.service.id;
+
+/**
+ * 交易Id的生成方式。同一用户先后生成的Id递增，按用户的有序索引与游标分页依赖这一点。
+ */
+public interface IdGenerator {
+    long nextId(String userName);
+
+    /**
+     * 转账用的一对Id：返回偶数 id，id + 1 同时保留给接收方一侧的转入记录，之后不会再生成。
+     * 对转出方和接收方都满足递增：id 大于两方之前的Id，两方之后的Id都大于 id + 1。调用方需持有两方的写锁
+     */
+    long nextTransferId(String userName, String toUserName);
+
+    /**
+     * 之后生成的Id都大于 id，启动恢复和导入后调用
+     */
+    void advancePast(long id);
+}
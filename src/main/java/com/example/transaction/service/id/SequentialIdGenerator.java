@@ -0,0 +1,36 @@
+package com.example.transaction.service.id;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内从 1 开始的连续Id：只适用于单节点，所有新增竞争同一个计数器，重启后依赖恢复出的最大Id继续
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.id.generator", havingValue = "sequential", matchIfMissing = true)
+public class SequentialIdGenerator implements IdGenerator {
+    private final AtomicLong next = new AtomicLong(1);
+
+    @Override
+    public long nextId(String userName) {
+        return next.getAndIncrement();
+    }
+
+    @Override
+    public long nextTransferId(String userName, String toUserName) {
+        long current;
+        long id;
+        do {
+            current = next.get();
+            id = (current + 1) & ~1L;
+        } while (!next.compareAndSet(current, id + 2));
+        return id;
+    }
+
+    @Override
+    public void advancePast(long id) {
+        next.accumulateAndGet(id + 1, Math::max);
+    }
+}
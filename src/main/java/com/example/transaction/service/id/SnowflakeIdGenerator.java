@@ -0,0 +1,147 @@
+package com.example.transaction.service.id;
+
+import com.example.transaction.service.cluster.ClusterRouter;
+import com.example.transaction.service.lock.StripedUserLocks;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake 式Id：41 位毫秒时间戳(自 2024-01-01) | 10 位节点号 | 槽位号 | 序号，槽位号与序号共 12 位。
+ * <p>
+ * 节点号不同的节点之间不会重复，不需要任何协调；节点号默认取本节点在集群节点列表(排序后)中的位置，单节点为 0。
+ * 每个节点有 slots 个独立的计数器，用户按所在锁分段固定映射到其中一个，不同槽位的新增不竞争同一个缓存行；
+ * 同一用户总在同一槽位，Id 随时间递增。
+ * <p>
+ * 每个槽位记录最近一次的 (毫秒, 序号)，下一个取 max(上一个 + 1, 当前毫秒的第 0 号)：
+ * 一毫秒内序号用完时借用下一毫秒，时钟回拨时沿用已发出的最大值继续递增，都不需要等待。
+ * 重启后从恢复出的最大Id所在毫秒之后开始，与重启前发出的Id不重复。
+ * <p>
+ * 转账一次占用一对序号，从偶数开始：每毫秒的序号数是偶数，两个序号总在同一毫秒，对应的两个Id相差 1。
+ * 转入记录属于接收方，而这对Id取自转出方的槽位：取号时还要大于接收方槽位已发出的Id，取号后把接收方槽位推进到这对Id之后，
+ * 接收方的Id因此同样递增。
+ * <p>
+ * Id 约为 3e17，大于 2^53，而 JSON 中仍是数字：按双精度解析数字的客户端(JavaScript)会得到错误的Id，因此需显式开启。
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.id.generator", havingValue = "snowflake")
+public class SnowflakeIdGenerator implements IdGenerator {
+    // 2024-01-01T00:00:00Z，41 位毫秒约可用 69 年
+    static final long EPOCH = 1704067200000L;
+    static final int NODE_BITS = 10;
+    static final int SLOT_AND_SEQUENCE_BITS = 12;
+    static final int TIMESTAMP_SHIFT = NODE_BITS + SLOT_AND_SEQUENCE_BITS;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    // 每毫秒每个槽位至少 16 个序号
+    private static final int MAX_SLOTS = 1 << (SLOT_AND_SEQUENCE_BITS - 4);
+    // 每个槽位的计数器占 128 字节，相邻槽位不在同一缓存行
+    private static final int STRIDE = 16;
+
+    private final StripedUserLocks userLocks;
+    private final LongSupplier clock;
+    private final long node;
+    private final int slotMask;
+    private final int sequenceBits;
+    private final long sequenceMask;
+    // 每个槽位最近一次发出的 (毫秒 << sequenceBits | 序号)，只增不减
+    private final AtomicLongArray states;
+
+    @Autowired
+    public SnowflakeIdGenerator(StripedUserLocks userLocks,
+                                @Value("${transaction.id.node-id:-1}") int nodeId,
+                                @Value("${transaction.id.slots:16}") int slots,
+                                ObjectProvider<ClusterRouter> clusterRouter) {
+        this(userLocks, resolveNodeId(nodeId, clusterRouter.getIfAvailable()), slots);
+    }
+
+    public SnowflakeIdGenerator(StripedUserLocks userLocks, int nodeId, int slots) {
+        this(userLocks, nodeId, slots, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(StripedUserLocks userLocks, int nodeId, int slots, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("节点号必须在0-" + MAX_NODE_ID + "之间: " + nodeId);
+        }
+        if (slots <= 0 || Integer.bitCount(slots) != 1 || slots > Math.min(MAX_SLOTS, userLocks.size())) {
+            throw new IllegalArgumentException("Id槽位数必须是2的幂且不超过" + MAX_SLOTS + "和锁分段数: " + slots);
+        }
+        this.userLocks = userLocks;
+        this.clock = clock;
+        this.node = (long) nodeId << SLOT_AND_SEQUENCE_BITS;
+        this.slotMask = slots - 1;
+        this.sequenceBits = SLOT_AND_SEQUENCE_BITS - Integer.numberOfTrailingZeros(slots);
+        this.sequenceMask = (1L << sequenceBits) - 1;
+        this.states = new AtomicLongArray(slots * STRIDE);
+    }
+
+    @Override
+    public long nextId(String userName) {
+        return next(slotOf(userName), false, 0);
+    }
+
+    @Override
+    public long nextTransferId(String userName, String toUserName) {
+        int slot = slotOf(userName);
+        int toSlot = slotOf(toUserName);
+        if (slot == toSlot) {
+            return next(slot, true, 0);
+        }
+        // 两方的写锁都被持有，接收方的Id不会在此期间增加；其槽位的状态只会因同槽位的其他用户变大，读到的值仍是上界
+        long toMillis = states.get(toSlot * STRIDE) >>> sequenceBits;
+        long id = next(slot, true, firstStateAfter(toMillis, toSlot, slot));
+        states.accumulateAndGet(toSlot * STRIDE, firstStateAfter(id >>> TIMESTAMP_SHIFT, slot, toSlot) - 1, Math::max);
+        return id;
+    }
+
+    private int slotOf(String userName) {
+        return userLocks.stripeOf(userName) & slotMask;
+    }
+
+    // 槽位 slot 的最小状态，使其生成的Id大于槽位 otherSlot 在 millis 毫秒内的任何Id：
+    // 同一毫秒内槽位号大的Id更大，因此 slot 更大时同一毫秒即可，否则要到下一毫秒
+    private long firstStateAfter(long millis, int otherSlot, int slot) {
+        return (slot > otherSlot ? millis : millis + 1) << sequenceBits;
+    }
+
+    private long next(int slot, boolean pair, long minimum) {
+        long floor = Math.max((clock.getAsLong() - EPOCH) << sequenceBits, minimum);
+        int index = slot * STRIDE;
+        long last;
+        long next;
+        do {
+            last = states.get(index);
+            next = Math.max(last + 1, floor);
+            if (pair) {
+                next = (next + 1) & ~1L;
+            }
+        } while (!states.compareAndSet(index, last, pair ? next + 1 : next));
+        return (next >>> sequenceBits) << TIMESTAMP_SHIFT | node | (long) slot << sequenceBits | (next & sequenceMask);
+    }
+
+    @Override
+    public void advancePast(long id) {
+        long floor = ((id >>> TIMESTAMP_SHIFT) + 1) << sequenceBits;
+        for (int slot = 0; slot <= slotMask; slot++) {
+            states.accumulateAndGet(slot * STRIDE, floor, Math::max);
+        }
+    }
+
+    /**
+     * Id 中的毫秒时间戳
+     */
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+
+    private static int resolveNodeId(int nodeId, ClusterRouter clusterRouter) {
+        if (nodeId >= 0) {
+            return nodeId;
+        }
+        return clusterRouter == null ? 0 : clusterRouter.nodeIndex();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.transaction.service.idempotency;
+
+import com.example.transaction.model.Transaction;
+import com.example.transaction.service.lock.StripedUserLocks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 最近新增的交易：按 Idempotency-Key 或按内容指纹(金额、类型、接收方、描述)查找窗口内已创建的交易Id。
+ * <p>
+ * 每个锁分段一个 {@link RecentKeyWindow}，调用方持有该用户的写锁时读写对应分段，不再另外加锁。
+ * 指纹只是 64 位哈希，命中后调用方需要按Id取出交易核对内容；Idempotency-Key 同时保存原始字符串，命中即相同。
+ */
+@Component
+public class IdempotencyRegistry {
+    public static final long NONE = RecentKeyWindow.NONE;
+
+    private static final long FINGERPRINT_SEED = 0x6A09E667F3BCC908L;
+    private static final long KEY_SEED = 0xBB67AE8584CAA73BL;
+
+    private final StripedUserLocks userLocks;
+    private final RecentKeyWindow[] windows;
+    private final long windowMillis;
+    private final int maxEntriesPerStripe;
+
+    public IdempotencyRegistry(StripedUserLocks userLocks,
+                               @Value("${transaction.idempotency.window-ms:10000}") long windowMillis,
+                               @Value("${transaction.idempotency.max-entries:1048576}") int maxEntries) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("去重窗口必须大于0: " + windowMillis);
+        }
+        this.userLocks = userLocks;
+        this.windows = new RecentKeyWindow[userLocks.size()];
+        this.windowMillis = windowMillis;
+        // 两代各自的上限，总条数不超过 2 * maxEntries
+        this.maxEntriesPerStripe = Math.max(16, maxEntries / userLocks.size());
+    }
+
+    /**
+     * 调用方需持有 userName 的写锁
+     *
+     * @return 窗口内使用同一 Idempotency-Key 创建的交易Id，不存在时返回 NONE
+     */
+    public long findByKey(String userName, String idempotencyKey, long now) {
+        return window(userName, now).find(keyHash(userName, idempotencyKey), idempotencyKey, now);
+    }
+
+    /**
+     * 调用方需持有 userName 的写锁
+     *
+     * @return 窗口内指纹相同的交易Id(可能是哈希碰撞)，不存在时返回 NONE
+     */
+    public long findByFingerprint(String userName, long fingerprint, long now) {
+        return window(userName, now).find(fingerprint, null, now);
+    }
+
+    /**
+     * 记录一笔新建的交易，调用方需持有 userName 的写锁；idempotencyKey 为 null 时只记录指纹
+     */
+    public void record(String userName, String idempotencyKey, long fingerprint, long id, long now) {
+        RecentKeyWindow window = window(userName, now);
+        if (idempotencyKey != null) {
+            window.put(keyHash(userName, idempotencyKey), idempotencyKey, id, now);
+        } else {
+            window.put(fingerprint, null, id, now);
+        }
+    }
+
+    /**
+     * 内容指纹：逐字符计算，不创建中间对象；金额以分计，100.0 与 100.00 相同
+     */
+    public static long fingerprint(String userName, long amountCents, Transaction.TransactionType type,
+                                   String toUserName, String description) {
+        long h = FINGERPRINT_SEED;
+        h = mix(h, hash(userName));
+        h = mix(h, amountCents);
+        h = mix(h, type == null ? -1 : type.ordinal());
+        h = mix(h, hash(toUserName));
+        h = mix(h, hash(description));
+        return h;
+    }
+
+    // 懒创建：没有写入过的分段不占内存
+    private RecentKeyWindow window(String userName, long now) {
+        int stripe = userLocks.stripeOf(userName);
+        RecentKeyWindow window = windows[stripe];
+        if (window == null) {
+            window = new RecentKeyWindow(windowMillis, maxEntriesPerStripe, now);
+            windows[stripe] = window;
+        }
+        return window;
+    }
+
+    private static long keyHash(String userName, String idempotencyKey) {
+        return mix(mix(KEY_SEED, hash(userName)), hash(idempotencyKey));
+    }
+
+    // FNV-1a 64 位，null 与空串区分开
+    private static long hash(String value) {
+        if (value == null) {
+            return 0x9E3779B97F4A7C15L;
+        }
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+    private static long mix(long h, long value) {
+        h ^= value;
+        h *= 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+}
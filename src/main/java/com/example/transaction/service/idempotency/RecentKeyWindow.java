@@ -0,0 +1,140 @@
+package com.example.transaction.service.idempotency;
+
+import java.util.Arrays;
+
+/**
+ * 按时间分代的最近键集合：64 位哈希(+ 可选的原始键) -> 交易Id。
+ * <p>
+ * 两代哈希表，当前代存在满一个窗口或条数达到上限后成为上一代，原来的上一代清空后复用为当前代。
+ * 一个键写入后至少保留一个窗口、至多两个窗口，内存上限为两代的条数上限。
+ * 查找和写入都是一次开放寻址探测，除扩容外不分配对象。非线程安全，由调用方加锁。
+ */
+final class RecentKeyWindow {
+    static final long NONE = -1L;
+
+    private final long windowMillis;
+    private final int maxEntries;
+
+    private Table current = new Table();
+    private Table previous = new Table();
+    private long currentStart;
+
+    RecentKeyWindow(long windowMillis, int maxEntries, long now) {
+        this.windowMillis = windowMillis;
+        this.maxEntries = maxEntries;
+        this.currentStart = now;
+    }
+
+    /**
+     * 哈希与 tag 都相同才算命中；tag 为 null 的条目只按哈希匹配，调用方需自行核对内容
+     *
+     * @return 交易Id，不存在时返回 NONE
+     */
+    long find(long hash, String tag, long now) {
+        advance(now);
+        long id = current.get(hash, tag);
+        return id != NONE ? id : previous.get(hash, tag);
+    }
+
+    void put(long hash, String tag, long id, long now) {
+        advance(now);
+        if (current.size >= maxEntries) {
+            roll(now);
+        }
+        current.put(hash, tag, id);
+    }
+
+    private void advance(long now) {
+        long age = now - currentStart;
+        if (age >= 2 * windowMillis) {
+            current.clear();
+            previous.clear();
+            currentStart = now;
+        } else if (age >= windowMillis) {
+            roll(now);
+        }
+    }
+
+    private void roll(long now) {
+        Table recycled = previous;
+        recycled.clear();
+        previous = current;
+        current = recycled;
+        currentStart = now;
+    }
+
+    // 线性探测哈希表，ids 为 0 表示空位(交易Id从1开始)
+    private static final class Table {
+        private long[] hashes = new long[16];
+        private long[] ids = new long[16];
+        private String[] tags = new String[16];
+        private int size;
+
+        long get(long hash, String tag) {
+            int mask = ids.length - 1;
+            for (int slot = slot(hash, mask); ids[slot] != 0; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && sameTag(tag, tags[slot])) {
+                    return ids[slot];
+                }
+            }
+            return NONE;
+        }
+
+        void put(long hash, String tag, long id) {
+            int mask = ids.length - 1;
+            int slot = slot(hash, mask);
+            while (ids[slot] != 0) {
+                if (hashes[slot] == hash && sameTag(tag, tags[slot])) {
+                    ids[slot] = id;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = hash;
+            ids[slot] = id;
+            tags[slot] = tag;
+            if (++size * 2 > ids.length) {
+                grow();
+            }
+        }
+
+        void clear() {
+            if (size > 0) {
+                Arrays.fill(ids, 0L);
+                Arrays.fill(tags, null);
+                size = 0;
+            }
+        }
+
+        private void grow() {
+            long[] oldHashes = hashes;
+            long[] oldIds = ids;
+            String[] oldTags = tags;
+            int capacity = oldIds.length << 1;
+            hashes = new long[capacity];
+            ids = new long[capacity];
+            tags = new String[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != 0) {
+                    int slot = slot(oldHashes[i], mask);
+                    while (ids[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    hashes[slot] = oldHashes[i];
+                    ids[slot] = oldIds[i];
+                    tags[slot] = oldTags[i];
+                }
+            }
+        }
+
+        private static boolean sameTag(String tag, String stored) {
+            return tag == null ? stored == null : tag.equals(stored);
+        }
+
+        private static int slot(long hash, int mask) {
+            long h = hash * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -1,61 +1,500 @@
 package com.example.transaction.service.impl;
 
+import com.example.transaction.dto.BatchItemResult;
+import com.example.transaction.dto.BatchResult;
+import com.example.transaction.dto.CursorPage;
 import com.example.transaction.dto.TransactionRequest;
 import com.example.transaction.exception.DuplicateTransactionException;
 import com.example.transaction.exception.TransactionNotFoundException;
+import com.example.transaction.model.Money;
 import com.example.transaction.model.Transaction;
+import com.example.transaction.model.TransactionFilter;
+import com.example.transaction.model.UserSummary;
 import com.example.transaction.repository.TransactionRepository;
+import com.example.transaction.repository.journal.NoOpTransactionJournal;
+import com.example.transaction.repository.journal.TransactionJournal;
 import com.example.transaction.service.TransactionService;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import com.example.transaction.service.cluster.ClusterRouter;
+import com.example.transaction.service.execution.DirectMutationExecutor;
+import com.example.transaction.service.execution.MutationExecutor;
+import com.example.transaction.service.id.IdGenerator;
+import com.example.transaction.service.id.SequentialIdGenerator;
+import com.example.transaction.service.idempotency.IdempotencyRegistry;
+import com.example.transaction.service.lock.StripedUserLocks;
+import com.example.transaction.service.metrics.TransactionMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.Builder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Service
 public class TransactionServiceImpl implements TransactionService {
+    private static final int SNAPSHOT_PAGE_SIZE = 1024;
+    // 单条交易缓存，key 为 PointKey
+    public static final String POINT_CACHE = "transactions";
+    // 每个用户分页的第一页，key 为用户名，缓存前 FIRST_PAGE_CACHED_SIZE 条，任意每页大小的第一页都从中截取
+    public static final String FIRST_PAGE_CACHE = "transactionFirstPages";
+    private static final int FIRST_PAGE_CACHED_SIZE = 100;
+
     private final TransactionRepository transactionRepository;
-    private final AtomicLong idGenerator = new AtomicLong(1);
+    // 预写日志：修改仓库之前先落盘，持有用户写锁时写入，保证日志顺序与仓库修改顺序一致
+    private final TransactionJournal transactionJournal;
+    // 新增交易的Id，同一用户先后生成的Id递增
+    private final IdGenerator idGenerator;
+
+    // 固定数量的分段锁，按用户名哈希，不随用户数增长
+    private final StripedUserLocks userLocks;
+    // 修改的执行方式：调用线程内直接执行，或按用户分片到单线程执行
+    private final MutationExecutor mutationExecutor;
+    // 窗口内最近新增的交易，按 Idempotency-Key 或内容指纹去重，持有用户写锁时读写
+    private final IdempotencyRegistry idempotencyRegistry;
+    // 锁等待/持有、仓库、去重检查的采样耗时与分页分布
+    private final TransactionMetrics metrics;
+
+    // 读缓存：未命中时乐观读加载并填充，修改在用户写锁内失效，填充与写入交错时撤销填充，写入完成后缓存中不会留下旧值
+    private final boolean cachingEnabled;
+    private final Cache pointCache;
+    private final Cache firstPageCache;
+
+    private int maxBatchSize = 1000;
+    // 只在开启集群时存在，转账的接收方需要在本节点
+    private ClusterRouter clusterRouter;
+
+    @Builder
+    public TransactionServiceImpl(TransactionRepository transactionRepository, TransactionJournal transactionJournal,
+                                  StripedUserLocks userLocks, MutationExecutor mutationExecutor,
+                                  CacheManager cacheManager, IdempotencyRegistry idempotencyRegistry,
+                                  TransactionMetrics metrics, IdGenerator idGenerator) {
+        this.metrics = metrics;
+        this.idGenerator = idGenerator;
+        this.transactionRepository = metrics.instrument(transactionRepository);
+        this.transactionJournal = transactionJournal;
+        this.userLocks = userLocks;
+        this.mutationExecutor = mutationExecutor;
+        this.idempotencyRegistry = idempotencyRegistry;
+        this.cachingEnabled = !(cacheManager instanceof NoOpCacheManager);
+        this.pointCache = Objects.requireNonNull(cacheManager.getCache(POINT_CACHE), POINT_CACHE);
+        this.firstPageCache = Objects.requireNonNull(cacheManager.getCache(FIRST_PAGE_CACHE), FIRST_PAGE_CACHE);
+    }
+
+    /**
+     * 手工构造服务(测试、基准)：只有仓库必须设置，其余未设置的依赖与默认配置相同，
+     * 即无预写日志、4096 把分段锁、调用线程内执行、不缓存、10 秒去重窗口、不记录指标、顺序Id
+     */
+    public static class TransactionServiceImplBuilder {
+        public TransactionServiceImpl build() {
+            StripedUserLocks locks = userLocks != null ? userLocks : new StripedUserLocks(4096);
+            return new TransactionServiceImpl(
+                    Objects.requireNonNull(transactionRepository, "transactionRepository"),
+                    transactionJournal != null ? transactionJournal : new NoOpTransactionJournal(),
+                    locks,
+                    mutationExecutor != null ? mutationExecutor : new DirectMutationExecutor(),
+                    cacheManager != null ? cacheManager : new NoOpCacheManager(),
+                    idempotencyRegistry != null ? idempotencyRegistry : new IdempotencyRegistry(locks, 10000, 1 << 20),
+                    metrics != null ? metrics : TransactionMetrics.disabled(),
+                    idGenerator != null ? idGenerator : new SequentialIdGenerator());
+        }
+    }
+
+    @Value("${transaction.batch.max-size:1000}")
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Autowired(required = false)
+    public void setClusterRouter(ClusterRouter clusterRouter) {
+        this.clusterRouter = clusterRouter;
+    }
+
+    /**
+     * 启动时重放预写日志，并把Id生成器恢复到出现过的最大Id之后
+     */
+    @PostConstruct
+    public void recover() {
+        long maxId = Math.max(transactionJournal.recover(transactionRepository), transactionRepository.findMaxId());
+        idGenerator.advancePast(maxId);
+    }
 
-    private final ConcurrentHashMap<String, ReentrantReadWriteLock> lockMap = new ConcurrentHashMap<>();
+    /**
+     * 定期把当前数据写成快照并压缩预写日志，写入不需要停顿
+     */
+    @Scheduled(initialDelayString = "${transaction.journal.snapshot.interval-ms:600000}",
+            fixedDelayString = "${transaction.journal.snapshot.interval-ms:600000}")
+    public void checkpoint() {
+        transactionJournal.checkpoint(this::forEachTransaction);
+    }
 
-    public TransactionServiceImpl(TransactionRepository transactionRepository) {
-        this.transactionRepository = transactionRepository;
+    // 逐个用户在读锁内复制该用户的全部交易，释放锁后再交给快照编码，同一时刻只阻塞一个用户的写入
+    private void forEachTransaction(Consumer<Transaction> action) {
+        // 调用时日志已滚动到 fence。已写入 fence 之前的日志、仍持有写锁尚未保存到仓库的写入要先完成，
+        // 否则新用户不在下面的用户列表中，其记录会随 fence 之前的日志段一起删除；之后才拿到锁的写入都记在 fence 之后
+        userLocks.awaitWriters();
+        for (String userName : transactionRepository.findAllUserNames()) {
+            List<Transaction> copy = new ArrayList<>();
+            StampedLock lock = getUserLock(userName);
+            long stamp = lock.readLock();
+            try {
+                long afterId = Long.MIN_VALUE;
+                Window<Transaction> window;
+                do {
+                    window = transactionRepository.findAllByUserNameAfter(userName, afterId, SNAPSHOT_PAGE_SIZE);
+                    copy.addAll(window.getContent());
+                    if (!window.isEmpty()) {
+                        afterId = window.getContent().get(window.size() - 1).getId();
+                    }
+                } while (window.hasNext());
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            copy.forEach(action);
+        }
     }
 
     @Override
     public Transaction createTransaction(TransactionRequest request) {
-        validateTransactionRequest(request);
-
-        long id = idGenerator.getAndIncrement();
-        long curTs = System.currentTimeMillis();
-        Transaction transaction = Transaction.builder()
-                .id(id)
-                .userName(request.getUserName())
-                .toUserName(request.getToUserName())
-                .amount(request.getAmount())
-                .type(request.getType())
-                .description(request.getDescription())
-                .createTimestamp(curTs)
-                .updateTimestamp(curTs)
-                .build();
-
-        ReadWriteLock lock = getUserLock(request.getUserName());
-        lock.writeLock().lock();
+        return createValidated(request, validateTransactionRequest(request));
+    }
+
+    // 请求已校验，amountCents 为校验时换算出的分
+    private Transaction createValidated(TransactionRequest request, long amountCents) {
+        long fingerprint = fingerprint(request, amountCents);
+        if (request.getType() == Transaction.TransactionType.TRANSFER) {
+            return createTransfer(request, amountCents, fingerprint);
+        }
+
+        StampedLock lock = getUserLock(request.getUserName());
+        long waitStart = metrics.start();
+        long stamp = lock.writeLock();
+        long lockedAt = metrics.writeLockAcquired(waitStart);
+        try {
+            long now = System.currentTimeMillis();
+            Transaction recent = findRetriedTransaction(request, amountCents, fingerprint, now);
+            if (recent != null) {
+                return recent;
+            }
+
+            long id = idGenerator.nextId(request.getUserName());
+            Transaction transaction = buildTransaction(request, amountCents, id, now);
+            transactionJournal.logSave(transaction);
+            try {
+                transactionRepository.save(transaction);
+            } catch (RuntimeException e) {
+                // 仓库拒绝写入(如超过容量)，补一条删除记录，避免重放时出现这条交易
+                transactionJournal.logDelete(transaction.getUserName(), transaction.getId());
+                throw e;
+            }
+            idempotencyRegistry.record(request.getUserName(), request.getIdempotencyKey(), fingerprint,
+                    transaction.getId(), now);
+            return transaction;
+        } finally {
+            firstPageCache.evict(request.getUserName());
+            lock.unlockWrite(stamp);
+            metrics.writeLockReleased(lockedAt);
+        }
+    }
+
+    // 转账同时持有转出方和接收方的写锁，转出和转入两条记录作为一组写入日志和仓库
+    private Transaction createTransfer(TransactionRequest request, long amountCents, long fingerprint) {
+        long waitStart = metrics.start();
+        StripedUserLocks.MultiLock locks = userLocks.writeLockAll(request.getUserName(), request.getToUserName());
+        long lockedAt = metrics.writeLockAcquired(waitStart);
+        try {
+            long now = System.currentTimeMillis();
+            Transaction recent = findRetriedTransaction(request, amountCents, fingerprint, now);
+            if (recent != null) {
+                return recent;
+            }
+
+            long id = idGenerator.nextTransferId(request.getUserName(), request.getToUserName());
+            Transaction transaction = buildTransaction(request, amountCents, id, now);
+            saveTransfer(transaction);
+            idempotencyRegistry.record(request.getUserName(), request.getIdempotencyKey(), fingerprint,
+                    transaction.getId(), now);
+            return transaction;
+        } finally {
+            firstPageCache.evict(request.getUserName());
+            firstPageCache.evict(request.getToUserName());
+            locks.unlock();
+            metrics.writeLockReleased(lockedAt);
+        }
+    }
+
+    // 需持有两方的写锁
+    private void saveTransfer(Transaction transaction) {
+        Transaction credit = creditOf(transaction);
+        transactionJournal.logGroup(List.of(transaction, credit), List.of());
+        try {
+            transactionRepository.save(transaction);
+            transactionRepository.save(credit);
+        } catch (RuntimeException e) {
+            // 仓库拒绝写入，两条一起撤销，日志中补一组删除
+            transactionRepository.deleteByUserNameAndId(transaction.getUserName(), transaction.getId());
+            transactionRepository.deleteByUserNameAndId(credit.getUserName(), credit.getId());
+            transactionJournal.logGroup(List.of(), List.of(transaction, credit));
+            throw e;
+        }
+    }
+
+    // 转账在接收方一侧的转入记录：Id 为转出记录的Id + 1，toUserName 为转出方
+    private static Transaction creditOf(Transaction transaction) {
+        return new Transaction(transaction.getId() + 1, transaction.getToUserName(), transaction.getUserName(),
+                transaction.getAmountCents(), Transaction.TransactionType.TRANSFER_IN, transaction.getDescription(),
+                transaction.getCreateTimestamp(), transaction.getUpdateTimestamp());
+    }
+
+    // 转出记录对应的转入记录；本功能之前创建的转账只有转出一方，返回 null
+    private Transaction findCredit(Transaction transaction) {
+        return transactionRepository.findByUserNameAndId(transaction.getToUserName(), transaction.getId() + 1)
+                .filter(credit -> credit.getType() == Transaction.TransactionType.TRANSFER_IN
+                        && transaction.getUserName().equals(credit.getToUserName()))
+                .orElse(null);
+    }
+
+    // 持有转出方、接收方以及 otherUserName(更新后的接收方，可以为 null)的写锁，对重新读到的转出记录执行 action。
+    // 加锁前读到的接收方可能已被并发修改，加锁后不一致时按新的接收方重新加锁
+    private <T> T withTransferLocked(Transaction expected, String otherUserName, Function<Transaction, T> action) {
+        while (true) {
+            long waitStart = metrics.start();
+            StripedUserLocks.MultiLock locks = userLocks.writeLockAll(
+                    expected.getUserName(), expected.getToUserName(), otherUserName);
+            long lockedAt = metrics.writeLockAcquired(waitStart);
+            try {
+                Transaction locked = expected;
+                Transaction current = transactionRepository.findByUserNameAndId(locked.getUserName(), locked.getId())
+                        .orElseThrow(() -> new TransactionNotFoundException(String.format(
+                                "未找到用户 %s 的交易记录: %s", locked.getUserName(), locked.getId())));
+                if (Objects.equals(current.getToUserName(), expected.getToUserName())) {
+                    return action.apply(current);
+                }
+                expected = current;
+            } finally {
+                locks.unlock();
+                metrics.writeLockReleased(lockedAt);
+            }
+        }
+    }
+
+    // 热路径上直接调用全参构造，不经过 builder
+    private Transaction buildTransaction(TransactionRequest request, long amountCents, long id, long curTs) {
+        return new Transaction(id, request.getUserName(), request.getToUserName(), amountCents,
+                request.getType(), request.getDescription(), curTs, curTs);
+    }
+
+    @Override
+    public CompletableFuture<BatchResult> createTransactionsAsync(List<TransactionRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("批量交易不能为空");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("每批交易不能超过" + maxBatchSize + "条");
+        }
+
+        // 并行校验，不合法的条目直接记为失败，不影响其余条目
+        BatchItemResult[] items = new BatchItemResult[requests.size()];
+        long[] amountCents = new long[requests.size()];
+        IntStream.range(0, requests.size()).parallel().forEach(i -> {
+            try {
+                amountCents[i] = validateBatchItem(requests.get(i));
+            } catch (IllegalArgumentException e) {
+                items[i] = BatchItemResult.failed(i, e.getMessage());
+            }
+        });
+
+        // 按用户分组；转账需要同时锁住接收方，逐条单独执行
+        Map<String, List<Integer>> indexesByUser = new LinkedHashMap<>();
+        List<Integer> transfers = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (items[i] != null) {
+                continue;
+            }
+            TransactionRequest request = requests.get(i);
+            if (request.getType() == Transaction.TransactionType.TRANSFER) {
+                transfers.add(i);
+            } else {
+                indexesByUser.computeIfAbsent(request.getUserName(), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        // 每个用户的一组交易只加一次写锁，分片模式下各组在各自的分片上并发执行。
+        // Id 与单条新增一样在写锁内分配，同一用户的Id顺序与写入顺序一致，游标不会跳过后写入的较小Id
+        metrics.batchGrouped(indexesByUser.size());
+        Transaction[] transactions = new Transaction[requests.size()];
+        List<CompletableFuture<?>> groups = new ArrayList<>(indexesByUser.size() + transfers.size());
+        for (Map.Entry<String, List<Integer>> entry : indexesByUser.entrySet()) {
+            String userName = entry.getKey();
+            List<Integer> indexes = entry.getValue();
+            groups.add(complete(mutationExecutor.submit(userName, () -> {
+                saveUserTransactions(userName,
+                        () -> buildUserTransactions(userName, indexes, requests, amountCents, transactions, items));
+                return null;
+            }), indexes, transactions, items));
+        }
+        for (int i : transfers) {
+            TransactionRequest request = requests.get(i);
+            groups.add(complete(mutationExecutor.submit(request.getUserName(), () -> {
+                transactions[i] = createTransfer(request, amountCents[i], fingerprint(request, amountCents[i]));
+                return null;
+            }), List.of(i), transactions, items));
+        }
+        return CompletableFuture.allOf(groups.toArray(CompletableFuture<?>[]::new))
+                .thenApply(ignored -> BatchResult.of(items));
+    }
+
+    // 一组在用户写锁内逐条做与单条新增相同的重试与重复检查，再分配Id：重试返回已有交易，
+    // 重复或 Idempotency-Key 冲突的条目记为失败，不影响组内其余条目；本批中先出现的条目同样参与检查
+    private List<Transaction> buildUserTransactions(String userName, List<Integer> indexes,
+                                                    List<TransactionRequest> requests, long[] amountCents,
+                                                    Transaction[] transactions, BatchItemResult[] items) {
+        long now = System.currentTimeMillis();
+        Map<Long, Transaction> pending = new HashMap<>();
+        List<Transaction> userTransactions = new ArrayList<>(indexes.size());
+        for (int i : indexes) {
+            TransactionRequest request = requests.get(i);
+            long fingerprint = fingerprint(request, amountCents[i]);
+            Transaction recent;
+            try {
+                recent = findRetriedTransaction(request, amountCents[i], fingerprint, now, pending);
+            } catch (IllegalArgumentException | DuplicateTransactionException e) {
+                items[i] = BatchItemResult.failed(i, e.getMessage());
+                continue;
+            }
+            if (recent != null) {
+                items[i] = BatchItemResult.created(i, recent);
+                continue;
+            }
+            Transaction transaction = buildTransaction(request, amountCents[i], idGenerator.nextId(userName), now);
+            transactions[i] = transaction;
+            pending.put(transaction.getId(), transaction);
+            // 写入仓库之前登记；整组写入失败时登记的Id在仓库中查不到，不会被当作已有交易
+            idempotencyRegistry.record(userName, request.getIdempotencyKey(), fingerprint, transaction.getId(), now);
+            userTransactions.add(transaction);
+        }
+        return userTransactions;
+    }
+
+    // 一组写入完成后记录其中每个条目的结果，组内已经单独给出结果的条目不变
+    private static CompletableFuture<?> complete(CompletableFuture<?> group, List<Integer> indexes,
+                                                 Transaction[] transactions, BatchItemResult[] items) {
+        return group.handle((ignored, error) -> {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            for (int i : indexes) {
+                if (items[i] != null) {
+                    continue;
+                }
+                items[i] = cause == null
+                        ? BatchItemResult.created(i, transactions[i])
+                        : BatchItemResult.failed(i, cause.getMessage());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 导入已有Id和时间戳的交易(回填、预热)：不做重复检查，按用户分组后每组加一次写锁批量写入，
+     * 完成后Id生成器跳到导入的最大Id之后。转账原样写入，不补转入记录，转入一方需要在导入数据中
+     */
+    @Override
+    public void importTransactions(List<Transaction> transactions) {
+        Map<String, List<Transaction>> byUser = new LinkedHashMap<>();
+        long maxId = 0;
+        for (Transaction transaction : transactions) {
+            byUser.computeIfAbsent(transaction.getUserName(), k -> new ArrayList<>()).add(transaction);
+            maxId = Math.max(maxId, transaction.getId());
+        }
+        for (Map.Entry<String, List<Transaction>> entry : byUser.entrySet()) {
+            saveUserTransactions(entry.getKey(), entry.getValue());
+        }
+        idGenerator.advancePast(maxId);
+    }
+
+    private void saveUserTransactions(String userName, List<Transaction> transactions) {
+        saveUserTransactions(userName, () -> transactions);
+    }
+
+    // build 在用户写锁内执行，给出这一组要写入的交易
+    private void saveUserTransactions(String userName, Supplier<List<Transaction>> build) {
+        StampedLock lock = getUserLock(userName);
+        long waitStart = metrics.start();
+        long stamp = lock.writeLock();
+        long lockedAt = metrics.writeLockAcquired(waitStart);
+        List<Transaction> transactions = List.of();
         try {
-            checkDuplicateTransaction(request);
-            return transactionRepository.save(transaction);
+            transactions = build.get();
+            transactionJournal.logSaveAll(transactions);
+            try {
+                transactionRepository.saveAll(transactions);
+            } catch (RuntimeException e) {
+                // 整组撤销：仓库中可能已经写入一部分，日志中补删除记录
+                for (Transaction transaction : transactions) {
+                    transactionRepository.deleteByUserNameAndId(userName, transaction.getId());
+                    transactionJournal.logDelete(userName, transaction.getId());
+                }
+                throw e;
+            }
         } finally {
-            lock.writeLock().unlock();
+            evictUser(userName, transactions);
+            lock.unlockWrite(stamp);
+            metrics.writeLockReleased(lockedAt);
+        }
+    }
+
+    private long validateBatchItem(TransactionRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("交易不能为空");
+        }
+        // 批量接口不经过 @Valid，补上单条接口由注解完成的检查
+        if (request.getType() == null) {
+            throw new IllegalArgumentException("交易类型不能为空");
         }
+        return validateTransactionRequest(request);
+    }
+
+    @Override
+    public CompletableFuture<Transaction> createTransactionAsync(TransactionRequest request) {
+        // 用户名决定由哪个分片执行，先在请求线程校验，分片上直接使用换算好的金额
+        long amountCents = validateTransactionRequest(request);
+        return mutationExecutor.submit(request.getUserName(), () -> createValidated(request, amountCents));
+    }
+
+    @Override
+    public CompletableFuture<Transaction> updateTransactionAsync(String userName, String id, TransactionRequest request) {
+        return mutationExecutor.submit(userName, () -> updateTransaction(userName, id, request));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteTransactionAsync(String userName, String id) {
+        return mutationExecutor.submit(userName, () -> {
+            deleteTransaction(userName, id);
+            return null;
+        });
     }
 
     private long transformId(String id) {
@@ -66,32 +505,161 @@ public class TransactionServiceImpl implements TransactionService {
         }
     }
 
-    private ReadWriteLock getUserLock(String userName) {
-        return lockMap.computeIfAbsent(userName, k -> new ReentrantReadWriteLock());
+    private long decodeCursor(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if (bytes.length != Long.BYTES) {
+                throw new IllegalArgumentException("游标格式异常");
+            }
+            return ByteBuffer.wrap(bytes).getLong();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("游标格式异常");
+        }
+    }
+
+    private CursorPage<Transaction> toCursorPage(Window<Transaction> window, int size) {
+        List<Transaction> content = window.getContent();
+        String nextCursor = window.hasNext()
+                ? encodeCursor(content.get(content.size() - 1).getId())
+                : null;
+        return new CursorPage<>(content, size, nextCursor);
     }
 
-    private void checkDuplicateTransaction(TransactionRequest request) {
-        // 获取当前毫秒时间戳
-        long currentTime = System.currentTimeMillis();
-        
-        // 检查是否存在相同结构的交易
-        Optional<Transaction> recentTransaction = transactionRepository.findLastByUserName(request.getUserName());
+    private String encodeCursor(long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+    }
+
+    private StampedLock getUserLock(String userName) {
+        return userLocks.get(userName);
+    }
+
+    // 按用户读取：先乐观读，期间该用户的分段没有写入则直接返回，不修改任何共享状态；
+    // 否则(包括读到写了一半的数据而抛出异常)加读锁重读
+    private <T> T readUser(String userName, Supplier<T> reader) {
+        StampedLock lock = getUserLock(userName);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        metrics.optimisticReadFailed();
+        long waitStart = metrics.start();
+        stamp = lock.readLock();
+        metrics.readLockAcquired(waitStart);
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
 
-        boolean hasDuplicate = recentTransaction.isPresent() &&
-                recentTransaction.get().getCreateTimestamp() == currentTime && // 只检查上一个1毫秒之内的交易
-                Objects.equals(recentTransaction.get().getAmount(), request.getAmount()) &&
-                Objects.equals(recentTransaction.get().getType(), request.getType()) &&
-                Objects.equals(recentTransaction.get().getToUserName(), request.getToUserName()) &&
-                Objects.equals(recentTransaction.get().getDescription(), request.getDescription());
+    // 先查缓存；未命中时与其他读取一样经 readUser 乐观读加载，不加读锁。写入方在写锁内失效缓存，
+    // 放入之后再确认加载开始以来该用户的分段没有写入，否则写入方的失效可能早于这次放入，撤销放入。
+    // loader 返回 null 表示不存在，不缓存
+    private <T> T readThrough(String userName, Cache cache, Object key, Class<T> type, Supplier<T> loader) {
+        T cached = cache.get(key, type);
+        if (cached != null) {
+            return cached;
+        }
+        StampedLock lock = getUserLock(userName);
+        long stamp = lock.tryOptimisticRead();
+        T value = readUser(userName, loader);
+        if (value != null) {
+            cache.put(key, value);
+            if (!lock.validate(stamp)) {
+                cache.evict(key);
+            }
+        }
+        return value;
+    }
+
+    private Page<Transaction> getFirstPage(String userName, Pageable pageable) {
+        FirstPage firstPage = readThrough(userName, firstPageCache, userName, FirstPage.class, () -> {
+            Page<Transaction> page = transactionRepository.findAllByUserName(
+                    userName, PageRequest.of(0, FIRST_PAGE_CACHED_SIZE));
+            return page.isEmpty() ? null : new FirstPage(List.copyOf(page.getContent()), page.getTotalElements());
+        });
+        if (firstPage == null) {
+            throw new TransactionNotFoundException("未找到用户 %s 的交易记录");
+        }
+        List<Transaction> content = firstPage.content();
+        return new PageImpl<>(content.subList(0, Math.min(pageable.getPageSize(), content.size())),
+                pageable, firstPage.total());
+    }
+
+    private void evictUser(String userName, List<Transaction> transactions) {
+        if (!cachingEnabled) {
+            return;
+        }
+        for (Transaction transaction : transactions) {
+            pointCache.evict(new PointKey(userName, transaction.getId()));
+        }
+        firstPageCache.evict(userName);
+    }
+
+    private static long fingerprint(TransactionRequest request, long amountCents) {
+        return IdempotencyRegistry.fingerprint(request.getUserName(), amountCents, request.getType(),
+                request.getToUserName(), request.getDescription());
+    }
+
+    private Transaction findRetriedTransaction(TransactionRequest request, long amountCents, long fingerprint,
+                                               long now) {
+        return findRetriedTransaction(request, amountCents, fingerprint, now, Map.of());
+    }
 
-        if (hasDuplicate) {
+    // 带相同 Idempotency-Key 的重试返回第一次创建的交易；没有 key 时窗口内内容相同视为重复交易。
+    // pending 为已登记但还没有写入仓库的交易(批量中同一组先出现的条目)
+    private Transaction findRetriedTransaction(TransactionRequest request, long amountCents, long fingerprint,
+                                               long now, Map<Long, Transaction> pending) {
+        long checkStart = metrics.start();
+        Transaction recent = findRecentTransaction(request, amountCents, fingerprint, now, pending);
+        metrics.duplicateChecked(checkStart);
+        if (recent != null && request.getIdempotencyKey() == null) {
             throw new DuplicateTransactionException(
-                String.format("检测到重复交易：用户 %s 已有相同的交易记录", request.getUserName())
-            );
+                    String.format("检测到重复交易：用户 %s 已有相同的交易记录", request.getUserName()));
         }
+        return recent;
     }
 
-    private void validateTransactionRequest(TransactionRequest request) {
+    // 窗口内同一 Idempotency-Key(或没有 key 时内容相同)的交易；窗口只记录Id，取出后核对内容，已删除的不算
+    private Transaction findRecentTransaction(TransactionRequest request, long amountCents, long fingerprint, long now,
+                                              Map<Long, Transaction> pending) {
+        String userName = request.getUserName();
+        String idempotencyKey = request.getIdempotencyKey();
+        long id = idempotencyKey != null
+                ? idempotencyRegistry.findByKey(userName, idempotencyKey, now)
+                : idempotencyRegistry.findByFingerprint(userName, fingerprint, now);
+        if (id == IdempotencyRegistry.NONE) {
+            return null;
+        }
+        Transaction recent = transactionRepository.findByUserNameAndId(userName, id).orElseGet(() -> pending.get(id));
+        if (recent == null) {
+            return null;
+        }
+        boolean sameContent = recent.getAmountCents() == amountCents &&
+                Objects.equals(recent.getType(), request.getType()) &&
+                Objects.equals(recent.getToUserName(), request.getToUserName()) &&
+                Objects.equals(recent.getDescription(), request.getDescription());
+        if (idempotencyKey != null && !sameContent) {
+            throw new IllegalArgumentException("Idempotency-Key 已用于另一笔内容不同的交易");
+        }
+        return sameContent ? recent : null;
+    }
+
+    // 校验请求，返回以分计的金额
+    private long validateTransactionRequest(TransactionRequest request) {
         if (!StringUtils.hasText(request.getUserName())) {
             throw new IllegalArgumentException("用户名不能为空");
         }
@@ -100,6 +668,10 @@ public class TransactionServiceImpl implements TransactionService {
             throw new IllegalArgumentException("用户名长度不能超过20个字符");
         }
 
+        if (request.getType() == Transaction.TransactionType.TRANSFER_IN) {
+            throw new IllegalArgumentException("转入记录由转账自动生成，不能直接创建或修改");
+        }
+
         if (request.getType() == Transaction.TransactionType.TRANSFER) {
             if (!StringUtils.hasText(request.getToUserName())) {
                 throw new IllegalArgumentException("转账接收方用户名不能为空");
@@ -110,90 +682,163 @@ public class TransactionServiceImpl implements TransactionService {
             if (request.getUserName().equals(request.getToUserName())) {
                 throw new IllegalArgumentException("不能转账给自己");
             }
+            if (clusterRouter != null && !clusterRouter.isLocal(request.getToUserName())) {
+                throw new IllegalArgumentException(
+                        String.format("转账接收方 %s 不在本节点，暂不支持跨节点转账", request.getToUserName()));
+            }
         }
 
-        if (request.getAmount() == null) {
-            throw new IllegalArgumentException("交易金额不能为空");
-        }
-
-        if (request.getAmount().compareTo(java.math.BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("交易金额必须大于0");
-        }
-
-        if (request.getAmount().scale() > 2) {
-            throw new IllegalArgumentException("交易金额小数位不能超过2位");
-        }
-
-        if (request.getAmount().precision() - request.getAmount().scale() > 9) {
-            throw new IllegalArgumentException("交易金额整数位不能超过9位");
-        }
+        // 只读取 signum/scale/precision，不创建中间 BigDecimal
+        long amountCents = Money.toCents(request.getAmount());
 
         if (request.getDescription() != null && request.getDescription().length() > 20) {
             throw new IllegalArgumentException("交易描述不能超过20个字符");
         }
+
+        if (request.getIdempotencyKey() != null
+                && (request.getIdempotencyKey().isBlank() || request.getIdempotencyKey().length() > 64)) {
+            throw new IllegalArgumentException("Idempotency-Key 长度必须在1-64之间");
+        }
+        return amountCents;
     }
 
     @Override
-    //@CacheEvict(value = "transactions", key = "#userName + '-' + #id")
     public Transaction updateTransaction(String userName, String id, TransactionRequest request) {
         if (!userName.equals(request.getUserName())) {
             throw new IllegalArgumentException("不允许更新交易用户名");
         }
-        validateTransactionRequest(request);
+        long amountCents = validateTransactionRequest(request);
         
         Transaction existingTransaction = getTransaction(userName, id);
+        boolean transfer = existingTransaction.getType() == Transaction.TransactionType.TRANSFER;
+        if (existingTransaction.getType() == Transaction.TransactionType.TRANSFER_IN) {
+            throw new IllegalArgumentException("转入记录随转账一起修改，请修改转出方的交易");
+        }
+        if (transfer != (request.getType() == Transaction.TransactionType.TRANSFER)) {
+            // 转入记录占用转出记录的下一个Id，其他类型没有预留这个Id
+            throw new IllegalArgumentException("转账不能与其他类型的交易互相修改");
+        }
 
-        Transaction updatedTransaction = Transaction.builder()
-                .id(transformId(id))
-                .userName(userName)
-                .toUserName(request.getToUserName())
-                .amount(request.getAmount())
-                .type(request.getType())
-                .description(request.getDescription())
-                .createTimestamp(existingTransaction.getCreateTimestamp())
-                .updateTimestamp(System.currentTimeMillis())
-                .build();
-
+        Transaction updatedTransaction = new Transaction(transformId(id), userName, request.getToUserName(),
+                amountCents, request.getType(), request.getDescription(),
+                existingTransaction.getCreateTimestamp(), System.currentTimeMillis());
+        if (transfer) {
+            return updateTransfer(existingTransaction, updatedTransaction);
+        }
 
-        ReadWriteLock lock = getUserLock(request.getUserName());
-        lock.writeLock().lock();
+        StampedLock lock = getUserLock(request.getUserName());
+        long waitStart = metrics.start();
+        long stamp = lock.writeLock();
+        long lockedAt = metrics.writeLockAcquired(waitStart);
         try {
+            transactionJournal.logSave(updatedTransaction);
             return transactionRepository.save(updatedTransaction);
         } finally {
-            lock.writeLock().unlock();
+            pointCache.evict(new PointKey(userName, updatedTransaction.getId()));
+            firstPageCache.evict(userName);
+            lock.unlockWrite(stamp);
+            metrics.writeLockReleased(lockedAt);
         }
     }
 
+    // 转出记录与转入记录一起修改；接收方变化时删除原接收方的转入记录，在新的接收方写入
+    private Transaction updateTransfer(Transaction existing, Transaction updated) {
+        return withTransferLocked(existing, updated.getToUserName(), current -> {
+            Transaction oldCredit = findCredit(current);
+            try {
+                if (oldCredit == null) {
+                    transactionJournal.logSave(updated);
+                    return transactionRepository.save(updated);
+                }
+                Transaction credit = creditOf(updated);
+                List<Transaction> deletes = oldCredit.getUserName().equals(credit.getUserName())
+                        ? List.of() : List.of(oldCredit);
+                transactionJournal.logGroup(List.of(updated, credit), deletes);
+                for (Transaction delete : deletes) {
+                    transactionRepository.deleteByUserNameAndId(delete.getUserName(), delete.getId());
+                }
+                transactionRepository.save(updated);
+                transactionRepository.save(credit);
+                return updated;
+            } finally {
+                evictUser(current.getUserName(), List.of(current));
+                evictUser(updated.getToUserName(), List.of(creditOf(updated)));
+                if (oldCredit != null) {
+                    evictUser(oldCredit.getUserName(), List.of(oldCredit));
+                }
+            }
+        });
+    }
+
     @Override
-    //@CacheEvict(value = "transactions", key = "#userName + '-' + #id")
     public void deleteTransaction(String userName, String id) {
-        ReadWriteLock lock = getUserLock(userName);
-        lock.writeLock().lock();
+        long transactionId = transformId(id);
+        Transaction transfer;
+        StampedLock lock = getUserLock(userName);
+        long waitStart = metrics.start();
+        long stamp = lock.writeLock();
+        long lockedAt = metrics.writeLockAcquired(waitStart);
         try {
-            transactionRepository.deleteByUserNameAndId(userName, transformId(id))
+            Transaction existing = transactionRepository.findByUserNameAndId(userName, transactionId)
                     .orElseThrow(() -> new TransactionNotFoundException(
-                    String.format("未找到用户 %s 的交易记录: %s", userName, id)));;
+                            String.format("未找到用户 %s 的交易记录: %s", userName, id)));
+            if (existing.getType() == Transaction.TransactionType.TRANSFER_IN) {
+                throw new IllegalArgumentException("转入记录随转账一起删除，请删除转出方的交易");
+            }
+            if (existing.getType() != Transaction.TransactionType.TRANSFER) {
+                transactionJournal.logDelete(userName, transactionId);
+                transactionRepository.deleteByUserNameAndId(userName, transactionId);
+                return;
+            }
+            transfer = existing;
         } finally {
-            lock.writeLock().unlock();
+            pointCache.evict(new PointKey(userName, transactionId));
+            firstPageCache.evict(userName);
+            lock.unlockWrite(stamp);
+            metrics.writeLockReleased(lockedAt);
         }
+        // 转账：释放后按顺序重新获取两方的锁，一起删除转出和转入记录
+        deleteTransfer(transfer);
+    }
+
+    private void deleteTransfer(Transaction transfer) {
+        withTransferLocked(transfer, null, current -> {
+            Transaction credit = findCredit(current);
+            try {
+                if (credit == null) {
+                    transactionJournal.logDelete(current.getUserName(), current.getId());
+                } else {
+                    transactionJournal.logGroup(List.of(), List.of(current, credit));
+                    transactionRepository.deleteByUserNameAndId(credit.getUserName(), credit.getId());
+                }
+                transactionRepository.deleteByUserNameAndId(current.getUserName(), current.getId());
+                return null;
+            } finally {
+                evictUser(current.getUserName(), List.of(current));
+                if (credit != null) {
+                    evictUser(credit.getUserName(), List.of(credit));
+                }
+            }
+        });
     }
 
     @Override
-    //@Cacheable(value = "transactions", key = "#userName + '-' + #id")
     public Transaction getTransaction(String userName, String id) {
         if (!StringUtils.hasText(userName)) {
             throw new IllegalArgumentException("用户名不能为空");
         }
 
-        ReadWriteLock lock = getUserLock(userName);
-        lock.readLock().lock();
-        try {
-            return transactionRepository.findByUserNameAndId(userName, transformId(id))
-                    .orElseThrow(() -> new TransactionNotFoundException(
-                            String.format("未找到用户 %s 的交易记录: %s", userName, id)));
-        } finally {
-            lock.readLock().unlock();
+        long transactionId = transformId(id);
+        Transaction transaction = cachingEnabled
+                ? readThrough(userName, pointCache, new PointKey(userName, transactionId), Transaction.class,
+                        () -> transactionRepository.findByUserNameAndId(userName, transactionId).orElse(null))
+                : readUser(userName, () -> transactionRepository.findByUserNameAndId(userName, transactionId))
+                        .orElse(null);
+        if (transaction == null) {
+            throw new TransactionNotFoundException(
+                    String.format("未找到用户 %s 的交易记录: %s", userName, id));
         }
+        return transaction;
     }
 
     @Override
@@ -207,16 +852,131 @@ public class TransactionServiceImpl implements TransactionService {
             throw new IllegalArgumentException("每页大小不能超过100条记录");
         }
 
-        ReadWriteLock lock = getUserLock(userName);
-        lock.readLock().lock();
-        try {
-            Page<Transaction> result = transactionRepository.findAllByUserName(userName, pageable);
-            if (result.isEmpty()) {
-                throw new TransactionNotFoundException("未找到用户 %s 的交易记录");
-            }
-            return result;
-        } finally {
-            lock.readLock().unlock();
+        Page<Transaction> result = cachingEnabled && pageable.getPageNumber() == 0 && pageable.getSort().isUnsorted()
+                ? getFirstPage(userName, pageable)
+                : readUser(userName, () -> transactionRepository.findAllByUserName(userName, pageable));
+        if (result.isEmpty()) {
+            throw new TransactionNotFoundException("未找到用户 %s 的交易记录");
+        }
+        metrics.pageRead(pageable.getOffset(), result.getTotalElements());
+        return result;
+    }
+
+    @Override
+    public CursorPage<Transaction> getTransactionsAfter(String userName, String cursor, int size) {
+        if (!StringUtils.hasText(userName)) {
+            throw new IllegalArgumentException("用户名不能为空");
+        }
+
+        if (size <= 0 || size > 100) {
+            throw new IllegalArgumentException("每页大小必须在1-100之间");
+        }
+
+        long afterId = decodeCursor(cursor);
+        Window<Transaction> window = readUser(userName,
+                () -> transactionRepository.findAllByUserNameAfter(userName, afterId, size));
+        if (window.isEmpty() && afterId == Long.MIN_VALUE) {
+            throw new TransactionNotFoundException(
+                    String.format("未找到用户 %s 的交易记录", userName));
+        }
+
+        return toCursorPage(window, size);
+    }
+
+    /**
+     * 创建时间在 [from, to](毫秒，含两端) 内的交易，按Id游标分页；范围内没有交易时返回空页
+     */
+    @Override
+    public CursorPage<Transaction> getTransactionsBetween(String userName, long from, long to, String cursor, int size) {
+        if (!StringUtils.hasText(userName)) {
+            throw new IllegalArgumentException("用户名不能为空");
+        }
+
+        if (size <= 0 || size > 100) {
+            throw new IllegalArgumentException("每页大小必须在1-100之间");
+        }
+
+        if (from > to) {
+            throw new IllegalArgumentException("开始时间不能晚于结束时间");
+        }
+
+        long afterId = decodeCursor(cursor);
+        return toCursorPage(readUser(userName,
+                () -> transactionRepository.findAllByUserNameBetween(userName, from, to, afterId, size)), size);
+    }
+
+    /**
+     * 按类型、金额筛选的交易，按Id游标分页；没有满足条件的交易时返回空页
+     */
+    @Override
+    public CursorPage<Transaction> getTransactionsMatching(String userName, TransactionFilter filter, String cursor,
+                                                           int size) {
+        if (!StringUtils.hasText(userName)) {
+            throw new IllegalArgumentException("用户名不能为空");
+        }
+
+        if (size <= 0 || size > 100) {
+            throw new IllegalArgumentException("每页大小必须在1-100之间");
+        }
+
+        if (filter.getMinAmountCents() > filter.getMaxAmountCents()) {
+            throw new IllegalArgumentException("最小金额不能大于最大金额");
         }
+
+        long afterId = decodeCursor(cursor);
+        return toCursorPage(readUser(userName,
+                () -> transactionRepository.findAllByUserNameMatching(userName, filter, afterId, size)), size);
+    }
+
+    /**
+     * 转账写入时持有双方的用户锁，按接收方加用户读锁即可读到一致的一页。
+     * 没有收到过转账的用户返回空页，不视为不存在
+     */
+    @Override
+    public CursorPage<Transaction> getIncomingTransfersAfter(String userName, String cursor, int size) {
+        if (!StringUtils.hasText(userName)) {
+            throw new IllegalArgumentException("用户名不能为空");
+        }
+
+        if (size <= 0 || size > 100) {
+            throw new IllegalArgumentException("每页大小必须在1-100之间");
+        }
+
+        long afterId = decodeCursor(cursor);
+        return toCursorPage(readUser(userName,
+                () -> transactionRepository.findIncomingTransfersAfter(userName, afterId, size)), size);
+    }
+
+    @Override
+    public Stream<Transaction> exportTransactions(String userName) {
+        if (!StringUtils.hasText(userName)) {
+            throw new IllegalArgumentException("用户名不能为空");
+        }
+
+        // 在开始输出之前判断用户是否存在，以便仍能返回 404
+        if (transactionRepository.findLastByUserName(userName).isEmpty()) {
+            throw new TransactionNotFoundException(
+                    String.format("未找到用户 %s 的交易记录", userName));
+        }
+        // 导出是一次性的长时间遍历，不持有用户锁，得到的是弱一致的视图
+        return transactionRepository.streamAllByUserName(userName);
+    }
+
+    /**
+     * 仓库增量维护的合计，O(1)，不加用户锁：每个用户的合计整体替换，读到的总是某次写入之后的完整值。
+     * 没有任何交易的用户返回全零，不视为不存在(只收到过转账的用户也没有自己的交易)
+     */
+    @Override
+    public UserSummary getSummary(String userName) {
+        if (!StringUtils.hasText(userName)) {
+            throw new IllegalArgumentException("用户名不能为空");
+        }
+        return transactionRepository.findSummaryByUserName(userName);
+    }
+
+    private record PointKey(String userName, long id) {
+    }
+
+    private record FirstPage(List<Transaction> content, long total) {
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,7 @@
+package com.example.transaction.service.importer;
+
+/**
+ * 一次导入的统计。peakHeapBytes 为导入期间各堆内存池峰值之和，是实际堆峰值的上界
+ */
+public record ImportReport(long imported, long failed, long elapsedMillis, long recordsPerSecond, long peakHeapBytes) {
+}
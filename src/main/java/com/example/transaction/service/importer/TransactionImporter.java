@@ -0,0 +1,248 @@
+package com.example.transaction.service.importer;
+
+import com.example.transaction.model.Money;
+import com.example.transaction.model.Transaction;
+import com.example.transaction.service.TransactionService;
+import com.example.transaction.service.cluster.ClusterRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * 启动时从本地文件批量导入历史交易，用于新实例的回填和预热。
+ * <p>
+ * 支持两种格式：扩展名为 .ndjson/.jsonl 时每行一个交易 JSON；否则为带表头的 CSV，列按表头名称匹配，
+ * 与 jmeter/create-params.csv 相同的 users、amount、type、desc 之外还需要 id、createTimestamp，
+ * 可选 toUserName、updateTimestamp(缺省等于 createTimestamp)。CSV 不支持引号转义，字段中不能含逗号。
+ * <p>
+ * 文件按块顺序读取，每块在公共 ForkJoinPool 上并行解析，再交给服务按用户分组批量写入，内存占用只与块大小有关。
+ * 保留原始Id和时间戳，不做重复检查；解析失败的行跳过并计数。转账不补生成转入记录，文件需同时包含转出和 Id 加 1 的
+ * 转入两条(导出文件即是如此)，旧数据中 Id 加 1 可能是另一笔交易，补生成会覆盖它。导入在 ApplicationRunner 中执行，
+ * 完成之前应用的就绪状态不会变为 ACCEPTING_TRAFFIC。
+ * <p>
+ * 开启集群时各节点导入同一个文件，只保留本节点负责的用户，其余行跳过。
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.import.file")
+public class TransactionImporter implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(TransactionImporter.class);
+    private static final int MAX_LOGGED_ERRORS = 10;
+
+    private static final Map<String, String> CSV_ALIASES = Map.of(
+            "users", "userName",
+            "user", "userName",
+            "desc", "description",
+            "touser", "toUserName");
+
+    private final TransactionService transactionService;
+    private final ObjectMapper objectMapper;
+    private final Path file;
+    private final int chunkLines;
+    private ClusterRouter clusterRouter;
+
+    public TransactionImporter(TransactionService transactionService, ObjectMapper objectMapper,
+                               @Value("${transaction.import.file}") String file,
+                               @Value("${transaction.import.chunk-lines:65536}") int chunkLines) {
+        if (chunkLines <= 0) {
+            throw new IllegalArgumentException("每块行数必须大于0: " + chunkLines);
+        }
+        this.transactionService = transactionService;
+        this.objectMapper = objectMapper;
+        this.file = Path.of(file);
+        this.chunkLines = chunkLines;
+    }
+
+    @Autowired(required = false)
+    public void setClusterRouter(ClusterRouter clusterRouter) {
+        this.clusterRouter = clusterRouter;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        ImportReport report = importFile(file);
+        log.info("导入 {} 完成: 成功 {} 条, 失败 {} 条, 耗时 {} ms, {} 条/秒, 堆峰值 {} MB",
+                file, report.imported(), report.failed(), report.elapsedMillis(),
+                report.recordsPerSecond(), report.peakHeapBytes() / (1024 * 1024));
+    }
+
+    public ImportReport importFile(Path path) {
+        boolean ndjson = isNdjson(path);
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long start = System.nanoTime();
+
+        AtomicLong failed = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        long imported = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            long lineNumber = 0;
+            Map<String, Integer> columns = null;
+            if (!ndjson) {
+                String header = reader.readLine();
+                if (header == null) {
+                    throw new IllegalArgumentException("导入文件为空: " + path);
+                }
+                lineNumber++;
+                columns = parseHeader(header);
+            }
+
+            List<String> chunk = new ArrayList<>(chunkLines);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line);
+                if (chunk.size() == chunkLines) {
+                    imported += importChunk(chunk, lineNumber, columns, failed, skipped);
+                    lineNumber += chunk.size();
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                imported += importChunk(chunk, lineNumber, columns, failed, skipped);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取导入文件失败: " + path, e);
+        }
+        if (skipped.get() > 0) {
+            log.info("导入 {} 跳过其他节点负责的用户的交易 {} 条", path, skipped.get());
+        }
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        long peakHeapBytes = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        return new ImportReport(imported, failed.get(), elapsedMillis,
+                imported * 1000 / elapsedMillis, peakHeapBytes);
+    }
+
+    // 并行解析一块，再整块交给服务写入；firstLine 为块中第一行之前的行号
+    private int importChunk(List<String> lines, long firstLine, Map<String, Integer> columns,
+                            AtomicLong failed, AtomicLong skipped) {
+        Transaction[] parsed = new Transaction[lines.size()];
+        IntStream.range(0, lines.size()).parallel().forEach(i -> {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                return;
+            }
+            try {
+                parsed[i] = columns == null ? parseJson(line) : parseCsv(line, columns);
+            } catch (RuntimeException | IOException e) {
+                if (failed.incrementAndGet() <= MAX_LOGGED_ERRORS) {
+                    log.warn("导入第 {} 行失败: {}", firstLine + i + 1, e.getMessage());
+                }
+            }
+        });
+
+        List<Transaction> transactions = Arrays.stream(parsed).filter(Objects::nonNull).toList();
+        if (clusterRouter != null) {
+            int parsedCount = transactions.size();
+            transactions = transactions.stream().filter(t -> clusterRouter.isLocal(t.getUserName())).toList();
+            skipped.addAndGet(parsedCount - transactions.size());
+        }
+        if (!transactions.isEmpty()) {
+            transactionService.importTransactions(transactions);
+        }
+        return transactions.size();
+    }
+
+    static boolean isNdjson(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl");
+    }
+
+    static Map<String, Integer> parseHeader(String header) {
+        String[] names = header.split(",", -1);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i].trim();
+            columns.put(CSV_ALIASES.getOrDefault(name.toLowerCase(Locale.ROOT), name), i);
+        }
+        for (String required : List.of("id", "userName", "amount", "type", "createTimestamp")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("导入文件表头缺少列: " + required);
+            }
+        }
+        return columns;
+    }
+
+    static Transaction parseCsv(String line, Map<String, Integer> columns) {
+        String[] fields = line.split(",", -1);
+        long createTimestamp = Long.parseLong(field(fields, columns, "createTimestamp"));
+        String updateTimestamp = field(fields, columns, "updateTimestamp");
+        String toUserName = field(fields, columns, "toUserName");
+        return check(Transaction.builder()
+                .id(Long.parseLong(field(fields, columns, "id")))
+                .userName(field(fields, columns, "userName"))
+                .toUserName(toUserName == null || toUserName.isEmpty() ? null : toUserName)
+                .amountCents(Money.parseCents(field(fields, columns, "amount")))
+                .type(Transaction.TransactionType.valueOf(field(fields, columns, "type")))
+                .description(field(fields, columns, "description"))
+                .createTimestamp(createTimestamp)
+                .updateTimestamp(updateTimestamp == null || updateTimestamp.isEmpty()
+                        ? createTimestamp : Long.parseLong(updateTimestamp))
+                .build());
+    }
+
+    private Transaction parseJson(String line) throws IOException {
+        Transaction transaction = objectMapper.readValue(line, Transaction.class);
+        if (transaction.getUpdateTimestamp() == 0) {
+            transaction.setUpdateTimestamp(transaction.getCreateTimestamp());
+        }
+        return check(transaction);
+    }
+
+    private static String field(String[] fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.length) {
+            return null;
+        }
+        return fields[index].trim();
+    }
+
+    // 导入不经过请求校验，只检查写入仓库所必需的字段，长度限制与新增交易一致，超长的行计为失败而不是写到仓库里才报错
+    private static Transaction check(Transaction transaction) {
+        if (transaction.getId() <= 0) {
+            throw new IllegalArgumentException("交易Id必须大于0");
+        }
+        if (transaction.getUserName() == null || transaction.getUserName().isEmpty()) {
+            throw new IllegalArgumentException("用户名不能为空");
+        }
+        if (transaction.getUserName().length() > 20) {
+            throw new IllegalArgumentException("用户名长度不能超过20个字符");
+        }
+        if (transaction.getToUserName() != null && transaction.getToUserName().length() > 20) {
+            throw new IllegalArgumentException("转账接收方用户名长度不能超过20个字符");
+        }
+        if (transaction.getDescription() != null && transaction.getDescription().length() > 20) {
+            throw new IllegalArgumentException("交易描述不能超过20个字符");
+        }
+        if (transaction.getAmountCents() <= 0 || transaction.getType() == null) {
+            throw new IllegalArgumentException("交易金额和类型不能为空");
+        }
+        return transaction;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.transaction.service.lock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 按用户名分段的读写锁：固定数量的锁，用户名哈希到其中一把。
+ * <p>
+ * 同一用户总是拿到同一把锁，保持按用户的读写互斥语义；不同用户可能共用一把锁，只会多一些不必要的等待。
+ * 锁的数量与见过多少用户无关，不需要回收，查询不存在的用户也不会创建任何对象。
+ * <p>
+ * 使用 StampedLock：读路径可以乐观读(tryOptimisticRead + validate)，不像 ReentrantReadWriteLock 那样每次都要
+ * CAS 修改共享的读者计数。StampedLock 不可重入，持有某个分段时不能再获取同一分段。
+ */
+@Component
+public class StripedUserLocks {
+    private final StampedLock[] stripes;
+    private final int mask;
+
+    public StripedUserLocks(@Value("${transaction.lock.stripes:4096}") int stripes) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("锁分段数必须是2的幂: " + stripes);
+        }
+        this.stripes = new StampedLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new StampedLock();
+        }
+        this.mask = stripes - 1;
+    }
+
+    public StampedLock get(String userName) {
+        return stripes[stripeOf(userName)];
+    }
+
+    /**
+     * 用户名所在的分段下标，需要同时持有多个用户的锁时按下标顺序加锁避免死锁
+     */
+    public int stripeOf(String userName) {
+        int h = userName.hashCode();
+        // 与 HashMap 相同的高位扰动，避免相近的用户名集中到少数分段
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public int size() {
+        return stripes.length;
+    }
+
+    /**
+     * 依次获取并立即释放每个分段的写锁：返回时，调用之前已经持有写锁的写入都已结束。
+     * 同一时刻只持有一把锁，不参与 writeLockAll 的加锁顺序
+     */
+    public void awaitWriters() {
+        for (StampedLock stripe : stripes) {
+            stripe.unlockWrite(stripe.writeLock());
+        }
+    }
+
+    /**
+     * 同时获取多个用户的写锁(转账的转出方和接收方)。按分段下标从小到大加锁，所有持有多把锁的地方都是同一顺序，
+     * 交叉的转账(A→B 与 B→A)不会互相等待成环；落在同一分段的用户只加一次锁。
+     * 只持有一把锁的写入不会再等待其他锁，不影响这个顺序。
+     */
+    public MultiLock writeLockAll(String... userNames) {
+        int[] order = new int[userNames.length];
+        int count = 0;
+        for (String userName : userNames) {
+            if (userName != null) {
+                order[count++] = stripeOf(userName);
+            }
+        }
+        order = Arrays.stream(order, 0, count).sorted().distinct().toArray();
+        long[] stamps = new long[order.length];
+        for (int i = 0; i < order.length; i++) {
+            stamps[i] = stripes[order[i]].writeLock();
+        }
+        return new MultiLock(order, stamps);
+    }
+
+    /**
+     * writeLockAll 持有的一组写锁
+     */
+    public final class MultiLock {
+        private final int[] order;
+        private final long[] stamps;
+
+        private MultiLock(int[] order, long[] stamps) {
+            this.order = order;
+            this.stamps = stamps;
+        }
+
+        public void unlock() {
+            for (int i = order.length - 1; i >= 0; i--) {
+                stripes[order[i]].unlockWrite(stamps[i]);
+            }
+        }
+    }
+}
\ No newline at end of file
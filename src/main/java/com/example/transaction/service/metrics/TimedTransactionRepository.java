@@ -0,0 +1,175 @@
+package com.example.transaction.service.metrics;
+
+import com.example.transaction.model.Transaction;
+import com.example.transaction.model.TransactionFilter;
+import com.example.transaction.model.UserSummary;
+import com.example.transaction.repository.TransactionRepository;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * 按采样记录各操作耗时的仓库包装，指标为 transaction.repository{operation=...}。
+ * 遍历、最大Id、用户列表、合计、总数等操作直接委托，不计时。
+ */
+final class TimedTransactionRepository implements TransactionRepository {
+    private final TransactionRepository delegate;
+    private final TransactionMetrics metrics;
+
+    private final Timer save;
+    private final Timer saveAll;
+    private final Timer find;
+    private final Timer delete;
+    private final Timer page;
+    private final Timer after;
+    private final Timer incoming;
+    private final Timer between;
+    private final Timer matching;
+    private final Timer last;
+
+    TimedTransactionRepository(TransactionRepository delegate, TransactionMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.save = metrics.repositoryTimer("save");
+        this.saveAll = metrics.repositoryTimer("saveAll");
+        this.find = metrics.repositoryTimer("findByUserNameAndId");
+        this.delete = metrics.repositoryTimer("deleteByUserNameAndId");
+        this.page = metrics.repositoryTimer("findAllByUserName");
+        this.after = metrics.repositoryTimer("findAllByUserNameAfter");
+        this.incoming = metrics.repositoryTimer("findIncomingTransfersAfter");
+        this.between = metrics.repositoryTimer("findAllByUserNameBetween");
+        this.matching = metrics.repositoryTimer("findAllByUserNameMatching");
+        this.last = metrics.repositoryTimer("findLastByUserName");
+    }
+
+    @Override
+    public Transaction save(Transaction transaction) {
+        long start = metrics.start();
+        try {
+            return delegate.save(transaction);
+        } finally {
+            TransactionMetrics.record(save, start);
+        }
+    }
+
+    @Override
+    public List<Transaction> saveAll(List<Transaction> transactions) {
+        long start = metrics.start();
+        try {
+            return delegate.saveAll(transactions);
+        } finally {
+            TransactionMetrics.record(saveAll, start);
+        }
+    }
+
+    @Override
+    public Optional<Transaction> findByUserNameAndId(String userName, long id) {
+        long start = metrics.start();
+        try {
+            return delegate.findByUserNameAndId(userName, id);
+        } finally {
+            TransactionMetrics.record(find, start);
+        }
+    }
+
+    @Override
+    public Optional<Transaction> deleteByUserNameAndId(String userName, long id) {
+        long start = metrics.start();
+        try {
+            return delegate.deleteByUserNameAndId(userName, id);
+        } finally {
+            TransactionMetrics.record(delete, start);
+        }
+    }
+
+    @Override
+    public Page<Transaction> findAllByUserName(String userName, Pageable pageable) {
+        long start = metrics.start();
+        try {
+            return delegate.findAllByUserName(userName, pageable);
+        } finally {
+            TransactionMetrics.record(page, start);
+        }
+    }
+
+    @Override
+    public Window<Transaction> findAllByUserNameAfter(String userName, long afterId, int size) {
+        long start = metrics.start();
+        try {
+            return delegate.findAllByUserNameAfter(userName, afterId, size);
+        } finally {
+            TransactionMetrics.record(after, start);
+        }
+    }
+
+    @Override
+    public Window<Transaction> findAllByUserNameBetween(String userName, long from, long to, long afterId, int size) {
+        long start = metrics.start();
+        try {
+            return delegate.findAllByUserNameBetween(userName, from, to, afterId, size);
+        } finally {
+            TransactionMetrics.record(between, start);
+        }
+    }
+
+    @Override
+    public Window<Transaction> findAllByUserNameMatching(String userName, TransactionFilter filter, long afterId,
+                                                         int size) {
+        long start = metrics.start();
+        try {
+            return delegate.findAllByUserNameMatching(userName, filter, afterId, size);
+        } finally {
+            TransactionMetrics.record(matching, start);
+        }
+    }
+
+    @Override
+    public Window<Transaction> findIncomingTransfersAfter(String toUserName, long afterId, int size) {
+        long start = metrics.start();
+        try {
+            return delegate.findIncomingTransfersAfter(toUserName, afterId, size);
+        } finally {
+            TransactionMetrics.record(incoming, start);
+        }
+    }
+
+    @Override
+    public Stream<Transaction> streamAllByUserName(String userName) {
+        return delegate.streamAllByUserName(userName);
+    }
+
+    @Override
+    public Optional<Transaction> findLastByUserName(String userName) {
+        long start = metrics.start();
+        try {
+            return delegate.findLastByUserName(userName);
+        } finally {
+            TransactionMetrics.record(last, start);
+        }
+    }
+
+    @Override
+    public long findMaxId() {
+        return delegate.findMaxId();
+    }
+
+    @Override
+    public List<String> findAllUserNames() {
+        return delegate.findAllUserNames();
+    }
+
+    @Override
+    public UserSummary findSummaryByUserName(String userName) {
+        return delegate.findSummaryByUserName(userName);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+}
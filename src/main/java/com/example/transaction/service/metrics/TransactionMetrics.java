@@ -0,0 +1,162 @@
+package com.example.transaction.service.metrics;
+
+import com.example.transaction.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热路径上的耗时与分布指标：用户锁等待/持有时间、仓库各操作耗时、去重检查耗时、分页 offset、用户交易数、批量涉及的用户数。
+ * <p>
+ * 耗时类指标按 sampleRate 采样，每 sampleRate 次操作随机记录一次，未采样的操作只多一次随机数判断，不调用 System.nanoTime；
+ * 因此 Timer 的 count 是采样后的次数，分位数与最大值不受影响。sampleRate 为 0 时不记录任何耗时与分布，仓库也不包装。
+ * 乐观读失败次数每次都计数。
+ */
+@Component
+public class TransactionMetrics {
+    // 耗时直方图的桶范围：微秒级的锁与仓库操作到秒级的长时间阻塞
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(500);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(5);
+
+    private final MeterRegistry registry;
+    private final int sampleRate;
+
+    private final Timer readLockWait;
+    private final Timer writeLockWait;
+    private final Timer writeLockHold;
+    private final Timer duplicateCheck;
+    private final Counter optimisticReadFailures;
+    private final DistributionSummary pageOffset;
+    private final DistributionSummary userTransactions;
+    private final DistributionSummary batchUsers;
+
+    public TransactionMetrics(MeterRegistry registry,
+                              @Value("${transaction.metrics.sample-rate:16}") int sampleRate) {
+        if (sampleRate < 0) {
+            throw new IllegalArgumentException("采样间隔不能小于0: " + sampleRate);
+        }
+        this.registry = registry;
+        this.sampleRate = sampleRate;
+        this.readLockWait = timer("transaction.lock.wait", "等待用户锁的时间", "mode", "read");
+        this.writeLockWait = timer("transaction.lock.wait", "等待用户锁的时间", "mode", "write");
+        this.writeLockHold = timer("transaction.lock.hold", "持有用户写锁的时间", "mode", "write");
+        this.duplicateCheck = timer("transaction.duplicate.check", "新增时在写锁内查找窗口内重复交易的时间");
+        this.optimisticReadFailures = Counter.builder("transaction.lock.optimistic.failures")
+                .description("乐观读时正在写入或期间有写入、退回读锁重读的次数")
+                .register(registry);
+        this.pageOffset = DistributionSummary.builder("transaction.page.offset")
+                .description("分页查询的起始位置")
+                // 桶边界必须大于 0，第一页(offset 0)计入 ≤1 的桶
+                .serviceLevelObjectives(1, 100, 1_000, 10_000, 100_000, 1_000_000)
+                .register(registry);
+        this.userTransactions = DistributionSummary.builder("transaction.user.transactions")
+                .description("分页查询时该用户的交易总数(按用户的扇出)")
+                .serviceLevelObjectives(10, 100, 1_000, 10_000, 100_000, 1_000_000)
+                .register(registry);
+        this.batchUsers = DistributionSummary.builder("transaction.batch.users")
+                .description("每批新增涉及的用户数，每个用户一次加锁")
+                .serviceLevelObjectives(1, 10, 100, 1_000)
+                .register(registry);
+    }
+
+    /**
+     * 不记录任何指标，用于测试和基准中手工构造的服务
+     */
+    public static TransactionMetrics disabled() {
+        return new TransactionMetrics(new SimpleMeterRegistry(), 0);
+    }
+
+    /**
+     * 包装仓库，按采样记录各操作耗时，并注册交易总数指标；不采样时返回原仓库
+     */
+    public TransactionRepository instrument(TransactionRepository repository) {
+        if (sampleRate == 0) {
+            return repository;
+        }
+        Gauge.builder("transaction.store.size", repository, TransactionRepository::count)
+                .description("仓库中的交易总数")
+                .register(registry);
+        return new TimedTransactionRepository(repository, this);
+    }
+
+    /**
+     * 本次操作是否计时；计时的返回开始时间，否则返回 0
+     */
+    public long start() {
+        return sampled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 写锁已拿到：记录等待时间，返回持有开始时间(未采样时为 0)
+     */
+    public long writeLockAcquired(long waitStart) {
+        if (waitStart == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        writeLockWait.record(now - waitStart, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    public void writeLockReleased(long acquiredAt) {
+        record(writeLockHold, acquiredAt);
+    }
+
+    public void readLockAcquired(long waitStart) {
+        record(readLockWait, waitStart);
+    }
+
+    public void duplicateChecked(long start) {
+        record(duplicateCheck, start);
+    }
+
+    public void optimisticReadFailed() {
+        optimisticReadFailures.increment();
+    }
+
+    public void pageRead(long offset, long userTotal) {
+        if (sampled()) {
+            pageOffset.record(offset);
+            userTransactions.record(userTotal);
+        }
+    }
+
+    public void batchGrouped(int users) {
+        if (sampleRate != 0) {
+            batchUsers.record(users);
+        }
+    }
+
+    private boolean sampled() {
+        return sampleRate == 1 || (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) == 0);
+    }
+
+    Timer repositoryTimer(String operation) {
+        return timer("transaction.repository", "仓库操作耗时", "operation", operation);
+    }
+
+    static void record(Timer timer, long start) {
+        if (start != 0) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(registry);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.transaction;
+
+import com.example.transaction.service.TransactionService;
+import com.example.transaction.service.id.IdGenerator;
+import com.example.transaction.service.id.SequentialIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest
+class TransactionServiceApplicationTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Test
+    void contextLoads() {
+        // 验证结果：按默认配置能创建全部组件
+        assertNotNull(transactionService);
+    }
+
+    @Test
+    void idGenerator_ShouldDefaultToSequential() {
+        // 验证结果：Snowflake Id 超过 JSON 数字的安全范围，需显式开启
+        assertInstanceOf(SequentialIdGenerator.class, idGenerator);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.transaction.controller;
+
+import com.example.transaction.dto.BatchItemResult;
+import com.example.transaction.dto.BatchResult;
+import com.example.transaction.dto.TransactionRequest;
+import com.example.transaction.model.Transaction;
+import com.example.transaction.service.TransactionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(BatchTransactionController.class)
+class BatchTransactionControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TransactionService transactionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void createTransactions_ShouldReturnPerItemStatus() throws Exception {
+        // 准备测试数据
+        TransactionRequest request = new TransactionRequest();
+        request.setUserName("abc");
+        request.setAmount(new BigDecimal("100.00"));
+        request.setType(Transaction.TransactionType.DEPOSIT);
+        Transaction transaction = Transaction.builder()
+                .id(7)
+                .userName("abc")
+                .amount(request.getAmount())
+                .type(request.getType())
+                .build();
+        BatchResult result = BatchResult.of(new BatchItemResult[]{
+                BatchItemResult.created(0, transaction),
+                BatchItemResult.failed(1, "交易金额必须大于0")});
+        when(transactionService.createTransactionsAsync(anyList()))
+                .thenReturn(CompletableFuture.completedFuture(result));
+
+        // 执行测试
+        MvcResult mvcResult = mockMvc.perform(post("/api/v1/transactions:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(request, request))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // 验证结果
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.items[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.items[0].transaction.id").value(7))
+                .andExpect(jsonPath("$.items[1].status").value("FAILED"))
+                .andExpect(jsonPath("$.items[1].error").value("交易金额必须大于0"));
+    }
+
+    @Test
+    void createTransactions_ShouldReturnBadRequest_WhenBatchIsEmpty() throws Exception {
+        // 准备测试数据
+        when(transactionService.createTransactionsAsync(anyList()))
+                .thenThrow(new IllegalArgumentException("批量交易不能为空"));
+
+        // 执行测试并验证结果
+        mockMvc.perform(post("/api/v1/transactions:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("批量交易不能为空"));
+    }
+}
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.example.transaction.controller;
 
+import com.example.transaction.dto.CursorPage;
 import com.example.transaction.dto.TransactionRequest;
+import com.example.transaction.exception.TransactionNotFoundException;
 import com.example.transaction.model.Transaction;
+import com.example.transaction.model.TransactionFilter;
 import com.example.transaction.service.TransactionService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -12,14 +15,18 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -55,12 +62,15 @@ class TransactionControllerTest {
                 .description(request.getDescription())
                 .build();
 
-        when(transactionService.createTransaction(any(TransactionRequest.class)))
-                .thenReturn(transaction);
+        when(transactionService.createTransactionAsync(any(TransactionRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(transaction));
 
-        mockMvc.perform(post("/api/v1/users/{userName}/transactions", request.getUserName())
+        MvcResult result = mockMvc.perform(post("/api/v1/users/{userName}/transactions", request.getUserName())
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.id").value(transaction.getId()))
                 .andExpect(jsonPath("$.amount").value(transaction.getAmount().doubleValue()))
@@ -87,12 +97,15 @@ class TransactionControllerTest {
                 .description(request.getDescription())
                 .build();
 
-        when(transactionService.updateTransaction(eq(request.getUserName()), eq(String.valueOf(id)), any(TransactionRequest.class)))
-                .thenReturn(transaction);
+        when(transactionService.updateTransactionAsync(eq(request.getUserName()), eq(String.valueOf(id)), any(TransactionRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(transaction));
 
-        mockMvc.perform(put("/api/v1/users/{userName}/transactions/{id}", request.getUserName(), id)
+        MvcResult result = mockMvc.perform(put("/api/v1/users/{userName}/transactions/{id}", request.getUserName(), id)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(transaction.getId()))
                 .andExpect(jsonPath("$.amount").value(transaction.getAmount().doubleValue()))
@@ -104,12 +117,31 @@ class TransactionControllerTest {
     void deleteTransaction_ShouldReturnNoContent() throws Exception {
         String id = "3";
         String userName = "abc";
-        doNothing().when(transactionService).deleteTransaction(userName, id);
+        when(transactionService.deleteTransactionAsync(userName, id))
+                .thenReturn(CompletableFuture.completedFuture(null));
 
-        mockMvc.perform(delete("/api/v1/users/{userName}/transactions/{id}", userName, id))
+        MvcResult result = mockMvc.perform(delete("/api/v1/users/{userName}/transactions/{id}", userName, id))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isNoContent());
     }
 
+    @Test
+    void deleteTransaction_ShouldReturnNotFound_WhenMutationFails() throws Exception {
+        String id = "4";
+        String userName = "abc";
+        when(transactionService.deleteTransactionAsync(userName, id))
+                .thenReturn(CompletableFuture.failedFuture(new TransactionNotFoundException("未找到用户 abc 的交易记录: 4")));
+
+        MvcResult result = mockMvc.perform(delete("/api/v1/users/{userName}/transactions/{id}", userName, id))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("未找到用户 abc 的交易记录: 4"));
+    }
+
     @Test
     void getTransaction_ShouldReturnTransaction() throws Exception {
         long id = 1;
@@ -158,4 +190,161 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.content[0].amount").value(transaction.getAmount().doubleValue()))
                 .andExpect(jsonPath("$.content[0].type").value(transaction.getType().toString()));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void getTransactionsAfter_ShouldReturnCursorPage() throws Exception {
+        String userName = "abc";
+        Transaction transaction = Transaction.builder()
+                .id(2)
+                .userName(userName)
+                .amount(new BigDecimal("100.00"))
+                .type(Transaction.TransactionType.DEPOSIT)
+                .description("测试交易")
+                .build();
+
+        CursorPage<Transaction> page = new CursorPage<>(Collections.singletonList(transaction), 1, "AAAAAAAAAAI");
+
+        when(transactionService.getTransactionsAfter(userName, "AAAAAAAAAAE", 1)).thenReturn(page);
+
+        mockMvc.perform(get("/api/v1/users/{userName}/transactions", userName)
+                .param("after", "AAAAAAAAAAE")
+                .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(transaction.getId()))
+                .andExpect(jsonPath("$.nextCursor").value("AAAAAAAAAAI"));
+    }
+
+    @Test
+    void getTransactionsAfter_ShouldFilterByCreateTimestamp_WhenFromGiven() throws Exception {
+        String userName = "abc";
+        Transaction transaction = Transaction.builder()
+                .id(2)
+                .userName(userName)
+                .amount(new BigDecimal("100.00"))
+                .type(Transaction.TransactionType.DEPOSIT)
+                .createTimestamp(1700000000000L)
+                .build();
+
+        CursorPage<Transaction> page = new CursorPage<>(Collections.singletonList(transaction), 20, null);
+
+        when(transactionService.getTransactionsBetween(userName, 1700000000000L, Long.MAX_VALUE, "", 20))
+                .thenReturn(page);
+
+        mockMvc.perform(get("/api/v1/users/{userName}/transactions", userName)
+                .param("after", "")
+                .param("from", "1700000000000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(transaction.getId()))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void getTransactionsAfter_ShouldFilterByTypeAndAmount_WhenTypeGiven() throws Exception {
+        String userName = "abc";
+        Transaction transaction = Transaction.builder()
+                .id(3)
+                .userName(userName)
+                .amount(new BigDecimal("6000.00"))
+                .type(Transaction.TransactionType.WITHDRAWAL)
+                .build();
+
+        CursorPage<Transaction> page = new CursorPage<>(Collections.singletonList(transaction), 20, null);
+        TransactionFilter filter = new TransactionFilter(EnumSet.of(Transaction.TransactionType.WITHDRAWAL),
+                500000, Long.MAX_VALUE);
+
+        when(transactionService.getTransactionsMatching(userName, filter, "", 20)).thenReturn(page);
+
+        mockMvc.perform(get("/api/v1/users/{userName}/transactions", userName)
+                .param("after", "")
+                .param("type", "WITHDRAWAL")
+                .param("minAmount", "5000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(transaction.getId()))
+                .andExpect(jsonPath("$.content[0].type").value("WITHDRAWAL"));
+    }
+
+    @Test
+    void getTransactionsAfter_ShouldAcceptZeroMinAmount() throws Exception {
+        String userName = "abc";
+        TransactionFilter filter = new TransactionFilter(EnumSet.noneOf(Transaction.TransactionType.class),
+                0, 10000);
+
+        when(transactionService.getTransactionsMatching(userName, filter, "", 20))
+                .thenReturn(new CursorPage<>(Collections.emptyList(), 20, null));
+
+        mockMvc.perform(get("/api/v1/users/{userName}/transactions", userName)
+                .param("after", "")
+                .param("minAmount", "0")
+                .param("maxAmount", "100"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getTransactionsAfter_ShouldReturnBadRequest_WhenFilterCombinedWithTimeRange() throws Exception {
+        mockMvc.perform(get("/api/v1/users/{userName}/transactions", "abc")
+                .param("after", "")
+                .param("type", "WITHDRAWAL")
+                .param("from", "1700000000000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getIncomingTransfers_ShouldReturnCursorPage_WhenAfterOmitted() throws Exception {
+        String userName = "abc";
+        Transaction transfer = Transaction.builder()
+                .id(4)
+                .userName("xyz")
+                .toUserName(userName)
+                .amount(new BigDecimal("30.00"))
+                .type(Transaction.TransactionType.TRANSFER)
+                .build();
+
+        CursorPage<Transaction> page = new CursorPage<>(Collections.singletonList(transfer), 20, null);
+
+        when(transactionService.getIncomingTransfersAfter(userName, "", 20)).thenReturn(page);
+
+        mockMvc.perform(get("/api/v1/users/{userName}/transactions/incoming", userName))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].userName").value("xyz"))
+                .andExpect(jsonPath("$.content[0].toUserName").value(userName))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void exportTransactions_ShouldStreamNdjson() throws Exception {
+        String userName = "abc";
+        Transaction first = Transaction.builder()
+                .id(1)
+                .userName(userName)
+                .amount(new BigDecimal("100.00"))
+                .type(Transaction.TransactionType.DEPOSIT)
+                .build();
+        Transaction second = Transaction.builder()
+                .id(2)
+                .userName(userName)
+                .amount(new BigDecimal("200.00"))
+                .type(Transaction.TransactionType.WITHDRAWAL)
+                .build();
+
+        when(transactionService.exportTransactions(userName)).thenReturn(Stream.of(first, second));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/users/{userName}/transactions/export", userName))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(containsString("\"id\":1,")))
+                .andExpect(content().string(containsString("}\n{\"id\":2,")));
+    }
+
+    @Test
+    void exportTransactions_ShouldReturnNotFound_WhenUserHasNoTransactions() throws Exception {
+        when(transactionService.exportTransactions("abc"))
+                .thenThrow(new TransactionNotFoundException("未找到用户 abc 的交易记录"));
+
+        mockMvc.perform(get("/api/v1/users/{userName}/transactions/export", "abc"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("未找到用户 abc 的交易记录"));
+    }
+}
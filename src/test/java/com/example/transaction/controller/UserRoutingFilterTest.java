@@ -0,0 +1,80 @@
+package com.example.transaction.controller;
+
+import com.example.transaction.service.cluster.ClusterRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserRoutingFilterTest {
+
+    private HttpServer owner;
+    private ClusterRouter clusterRouter;
+    private UserRoutingFilter filter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // 另一个节点：返回自定义响应头、逐跳头和 Connection 头中列出的头
+        owner = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        owner.createContext("/", exchange -> {
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("Cache-Control", "no-store");
+            exchange.getResponseHeaders().add("Content-Disposition", "attachment; filename=\"export.ndjson\"");
+            exchange.getResponseHeaders().add("X-Node-Option", "dropped");
+            exchange.getResponseHeaders().add("Connection", "X-Node-Option");
+            exchange.getResponseHeaders().add("Keep-Alive", "timeout=5");
+            // 长度为 0 时按分块传输，响应中带 Transfer-Encoding
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        owner.start();
+        String ownerUrl = "http://127.0.0.1:" + owner.getAddress().getPort();
+        clusterRouter = new ClusterRouter(new ObjectMapper(), new String[]{"http://127.0.0.1:1", ownerUrl},
+                "http://127.0.0.1:1", 256, "forward", 5000);
+        filter = new UserRoutingFilter(clusterRouter, new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        owner.stop(0);
+    }
+
+    @Test
+    void forward_ShouldCopyResponseHeadersExceptHopByHop() throws Exception {
+        // 准备测试数据：找一个属于另一个节点的用户
+        String userName = IntStream.range(0, 1000).mapToObj(i -> "user" + i)
+                .filter(name -> !clusterRouter.isLocal(name))
+                .findFirst().orElseThrow();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET",
+                "/api/v1/users/" + userName + "/transactions/export");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // 执行测试
+        filter.doFilter(request, response, new MockFilterChain());
+
+        // 验证结果
+        assertEquals(200, response.getStatus());
+        assertEquals("[]", response.getContentAsString());
+        assertEquals("application/json", response.getContentType());
+        assertEquals("no-store", response.getHeader("Cache-Control"));
+        assertEquals("attachment; filename=\"export.ndjson\"", response.getHeader("Content-Disposition"));
+        assertNull(response.getHeader("Transfer-Encoding"));
+        assertNull(response.getHeader("Connection"));
+        assertNull(response.getHeader("Keep-Alive"));
+        assertNull(response.getHeader("X-Node-Option"));
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.transaction.controller;
+
+import com.example.transaction.model.UserSummary;
+import com.example.transaction.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(UserSummaryController.class)
+class UserSummaryControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TransactionService transactionService;
+
+    @Test
+    void getSummary_ShouldReturnBalanceAndTotalsInYuan() throws Exception {
+        // 准备测试数据
+        when(transactionService.getSummary("abc")).thenReturn(new UserSummary("abc", 2, 10000, 2550, 0, 1000));
+
+        // 执行测试并验证结果
+        mockMvc.perform(get("/api/v1/users/{userName}/summary", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.balance").value(64.50))
+                .andExpect(jsonPath("$.withdrawals").value(25.50))
+                .andExpect(jsonPath("$.transfersOut").value(10.00))
+                .andExpect(jsonPath("$.depositCents").doesNotExist());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.transaction.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void toCents_ShouldConvertExactly() {
+        // 执行测试并验证结果
+        assertEquals(10000L, Money.toCents(new BigDecimal("100")));
+        assertEquals(10000L, Money.toCents(new BigDecimal("100.0")));
+        assertEquals(1L, Money.toCents(new BigDecimal("0.01")));
+        assertEquals(Money.MAX_CENTS, Money.toCents(new BigDecimal("999999999.99")));
+        assertEquals(12300L, Money.toCents(new BigDecimal("1.23E+2")));
+    }
+
+    @Test
+    void toCents_ShouldRejectInvalidAmounts() {
+        // 执行测试并验证结果
+        assertThrows(IllegalArgumentException.class, () -> Money.toCents(null));
+        assertThrows(IllegalArgumentException.class, () -> Money.toCents(BigDecimal.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> Money.toCents(new BigDecimal("-1.00")));
+        assertThrows(IllegalArgumentException.class, () -> Money.toCents(new BigDecimal("1.001")));
+        assertThrows(IllegalArgumentException.class, () -> Money.toCents(new BigDecimal("1000000000")));
+    }
+
+    @Test
+    void boundCents_ShouldAllowZeroAndNegativeBounds() {
+        // 执行测试并验证结果
+        assertEquals(0L, Money.boundCents(BigDecimal.ZERO));
+        assertEquals(-150L, Money.boundCents(new BigDecimal("-1.5")));
+        assertEquals(500000L, Money.boundCents(new BigDecimal("5000")));
+        assertEquals(Long.MAX_VALUE, Money.boundCents(new BigDecimal("1000000000")));
+        assertEquals(Long.MIN_VALUE, Money.boundCents(new BigDecimal("-1E+20")));
+        assertThrows(IllegalArgumentException.class, () -> Money.boundCents(new BigDecimal("1.001")));
+    }
+
+    @Test
+    void parseCents_ShouldMatchBigDecimalConversion() {
+        // 执行测试并验证结果
+        for (String text : new String[]{"1", "1.5", "1.05", "0.01", "007.10", "999999999.99", "000999999999"}) {
+            assertEquals(Money.toCents(new BigDecimal(text)), Money.parseCents(text), text);
+        }
+    }
+
+    @Test
+    void parseCents_ShouldRejectInvalidText() {
+        // 执行测试并验证结果
+        for (String text : new String[]{"", "0", "0.00", "-1", "1.", ".5", "1.234", "1e2", "1,000", "1000000000"}) {
+            assertThrows(IllegalArgumentException.class, () -> Money.parseCents(text), text);
+        }
+    }
+
+    @Test
+    void toBigDecimal_ShouldKeepTwoDecimals() {
+        // 执行测试并验证结果
+        assertEquals(new BigDecimal("100.00"), Money.toBigDecimal(10000L));
+        assertEquals(new BigDecimal("0.05"), Money.toBigDecimal(5L));
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.transaction.repository.impl;
+
+import com.example.transaction.exception.PageOutOfRangeException;
+import com.example.transaction.exception.TransactionTooManyException;
+import com.example.transaction.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarTransactionRepositoryTest {
+
+    private ColumnarTransactionRepository repository;
+    private static final String TEST_USER = "testUser";
+    private static final String TEST_TO_USER = "testToUser";
+
+    @BeforeEach
+    void setUp() {
+        repository = new ColumnarTransactionRepository();
+    }
+
+    @Test
+    void save_ShouldSaveTransactionSuccessfully() {
+        // 准备测试数据
+        Transaction transaction = createTestTransaction(1L);
+
+        // 执行测试
+        Transaction saved = repository.save(transaction);
+
+        // 验证结果
+        assertNotNull(saved);
+        assertEquals(transaction.getId(), saved.getId());
+        assertEquals(transaction.getUserName(), saved.getUserName());
+        assertEquals(transaction.getAmount(), saved.getAmount());
+        assertEquals(transaction.getType(), saved.getType());
+    }
+
+    @Test
+    void save_ShouldThrowException_WhenTooManyTransactions() {
+        // 准备测试数据
+        int maxSize = 100;
+        repository.setMaxSize(100);
+        for (long i = 0; i <= maxSize + 1; i++) {
+            Transaction transaction = createTestTransaction(i);
+            if (i == maxSize + 1) {
+                assertThrows(TransactionTooManyException.class, () -> repository.save(transaction));
+            } else {
+                repository.save(transaction);
+            }
+        }
+    }
+
+    @Test
+    void findByUserNameAndId_ShouldReturnTransaction_WhenExists() {
+        // 准备测试数据
+        Transaction transaction = createTestTransaction(1L);
+        repository.save(transaction);
+
+        // 执行测试
+        Optional<Transaction> found = repository.findByUserNameAndId(TEST_USER, 1L);
+
+        // 验证结果
+        assertTrue(found.isPresent());
+        assertEquals(transaction.getId(), found.get().getId());
+        assertEquals(transaction.getUserName(), found.get().getUserName());
+    }
+
+    @Test
+    void findByUserNameAndId_ShouldReturnEmpty_WhenNotExists() {
+        // 执行测试
+        Optional<Transaction> found = repository.findByUserNameAndId(TEST_USER, 1L);
+
+        // 验证结果
+        assertFalse(found.isPresent());
+    }
+
+    @Test
+    void deleteByUserNameAndId_ShouldDeleteTransaction_WhenExists() {
+        // 准备测试数据
+        Transaction transaction = createTestTransaction(1L);
+        repository.save(transaction);
+
+        // 执行测试
+        Optional<Transaction> deleted = repository.deleteByUserNameAndId(TEST_USER, 1L);
+
+        // 验证结果
+        assertTrue(deleted.isPresent());
+        assertEquals(transaction.getId(), deleted.get().getId());
+
+        // 验证交易已被删除
+        Optional<Transaction> found = repository.findByUserNameAndId(TEST_USER, 1L);
+        assertFalse(found.isPresent());
+    }
+
+    @Test
+    void deleteByUserNameAndId_ShouldReturnEmpty_WhenNotExists() {
+        // 执行测试
+        Optional<Transaction> deleted = repository.deleteByUserNameAndId(TEST_USER, 1L);
+
+        // 验证结果
+        assertFalse(deleted.isPresent());
+    }
+
+    @Test
+    void findAllByUserName_ShouldReturnPagedResults() {
+        // 准备测试数据
+        for (long i = 1; i <= 5; i++) {
+            repository.save(createTestTransaction(i));
+        }
+
+        // 执行测试
+        Pageable pageable = PageRequest.of(0, 3);
+        Page<Transaction> page = repository.findAllByUserName(TEST_USER, pageable);
+
+        // 验证结果
+        assertEquals(3, page.getContent().size());
+        assertEquals(5, page.getTotalElements());
+        assertEquals(0, page.getNumber());
+        assertEquals(3, page.getSize());
+    }
+
+    @Test
+    void findAllByUserName_ShouldReturnEmptyPage_WhenNoTransactions() {
+        // 执行测试
+        Pageable pageable = PageRequest.of(0, 3);
+        Page<Transaction> page = repository.findAllByUserName(TEST_USER, pageable);
+
+        // 验证结果
+        assertTrue(page.getContent().isEmpty());
+        assertEquals(0, page.getTotalElements());
+    }
+
+    @Test
+    void findAllByUserName_ShouldThrowException_WhenPageOutOfRange() {
+        // 准备测试数据
+        for (long i = 1; i <= 5; i++) {
+            repository.save(createTestTransaction(i));
+        }
+
+        // 执行测试和验证
+        Pageable pageable = PageRequest.of(2, 3);
+        assertThrows(PageOutOfRangeException.class, () -> repository.findAllByUserName(TEST_USER, pageable));
+    }
+
+    @Test
+    void findAllByUserNameAfter_ShouldReturnTransactionsAfterCursor() {
+        // 准备测试数据
+        for (long i = 1; i <= 5; i++) {
+            repository.save(createTestTransaction(i));
+        }
+
+        // 执行测试
+        Window<Transaction> first = repository.findAllByUserNameAfter(TEST_USER, Long.MIN_VALUE, 3);
+        Window<Transaction> second = repository.findAllByUserNameAfter(TEST_USER, 3L, 3);
+
+        // 验证结果
+        assertEquals(3, first.size());
+        assertEquals(1L, first.getContent().get(0).getId());
+        assertTrue(first.hasNext());
+        assertEquals(2, second.size());
+        assertEquals(4L, second.getContent().get(0).getId());
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    void findAllByUserNameAfter_ShouldReturnEmpty_WhenNoTransactions() {
+        // 执行测试
+        Window<Transaction> window = repository.findAllByUserNameAfter(TEST_USER, Long.MIN_VALUE, 3);
+
+        // 验证结果
+        assertTrue(window.isEmpty());
+        assertFalse(window.hasNext());
+    }
+
+    @Test
+    void streamAllByUserName_ShouldVisitEveryTransactionAcrossChunks() {
+        // 准备测试数据：条数超过一次分段读取的大小
+        for (long i = 1; i <= 600; i++) {
+            repository.save(createTestTransaction(i));
+        }
+
+        // 执行测试
+        List<Long> ids = repository.streamAllByUserName(TEST_USER).map(Transaction::getId).toList();
+
+        // 验证结果
+        assertEquals(600, ids.size());
+        assertEquals(1L, ids.get(0));
+        assertEquals(600L, ids.get(599));
+        assertEquals(0, repository.streamAllByUserName(TEST_TO_USER).count());
+    }
+
+    @Test
+    void save_ShouldRoundTripAllColumns() {
+        // 准备测试数据
+        Transaction transaction = Transaction.builder()
+                .id(7L)
+                .userName(TEST_USER)
+                .toUserName(TEST_TO_USER)
+                .amount(new BigDecimal("999999999.99"))
+                .type(Transaction.TransactionType.TRANSFER)
+                .description("转账给朋友")
+                .createTimestamp(1000L)
+                .updateTimestamp(2000L)
+                .build();
+        repository.save(transaction);
+
+        // 执行测试
+        Transaction found = repository.findByUserNameAndId(TEST_USER, 7L).orElseThrow();
+
+        // 验证结果
+        assertEquals(transaction, found);
+        assertFalse(repository.findByUserNameAndId(TEST_TO_USER, 7L).isPresent());
+    }
+
+    @Test
+    void save_ShouldOverwriteExistingTransaction() {
+        // 准备测试数据
+        repository.save(createTestTransaction(1L));
+        Transaction updated = createTestTransaction(1L);
+        updated.setAmount(new BigDecimal("1.50"));
+        updated.setDescription(null);
+
+        // 执行测试
+        repository.save(updated);
+
+        // 验证结果
+        Transaction found = repository.findByUserNameAndId(TEST_USER, 1L).orElseThrow();
+        assertEquals(new BigDecimal("1.50"), found.getAmount());
+        assertNull(found.getDescription());
+        assertEquals(1, repository.findAllByUserName(TEST_USER, PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    void save_ShouldReuseDeletedRows() {
+        // 准备测试数据
+        for (long i = 1; i <= 5; i++) {
+            repository.save(createTestTransaction(i));
+        }
+        repository.deleteByUserNameAndId(TEST_USER, 2L);
+        repository.deleteByUserNameAndId(TEST_USER, 3L);
+
+        // 执行测试
+        Transaction reused = createTestTransaction(6L);
+        reused.setDescription("新的描述");
+        repository.save(reused);
+
+        // 验证结果
+        Page<Transaction> page = repository.findAllByUserName(TEST_USER, PageRequest.of(0, 10));
+        assertEquals(4, page.getTotalElements());
+        assertEquals(List.of(1L, 4L, 5L, 6L), page.getContent().stream().map(Transaction::getId).toList());
+        assertEquals("新的描述", repository.findByUserNameAndId(TEST_USER, 6L).orElseThrow().getDescription());
+        assertEquals("测试交易", repository.findByUserNameAndId(TEST_USER, 4L).orElseThrow().getDescription());
+    }
+
+    @Test
+    void findIncomingTransfersAfter_ShouldFollowRecipientAndTypeChanges() {
+        // 准备测试数据：5 笔转给 TEST_TO_USER 的转账，再加 1 笔带接收方的存款
+        for (long i = 1; i <= 5; i++) {
+            repository.save(createTransfer(i, TEST_TO_USER));
+        }
+        repository.save(createTestTransaction(6L));
+
+        // 执行测试：2 改接收方，3 改为存款，4 删除
+        repository.save(createTransfer(2L, "otherUser"));
+        Transaction deposit = createTransfer(3L, TEST_TO_USER);
+        deposit.setType(Transaction.TransactionType.DEPOSIT);
+        repository.save(deposit);
+        repository.deleteByUserNameAndId(TEST_USER, 4L);
+
+        // 验证结果
+        Window<Transaction> first = repository.findIncomingTransfersAfter(TEST_TO_USER, Long.MIN_VALUE, 1);
+        Window<Transaction> second = repository.findIncomingTransfersAfter(TEST_TO_USER, 1L, 1);
+        assertEquals(List.of(1L), first.getContent().stream().map(Transaction::getId).toList());
+        assertTrue(first.hasNext());
+        assertEquals(List.of(5L), second.getContent().stream().map(Transaction::getId).toList());
+        assertFalse(second.hasNext());
+        assertEquals(List.of(2L), repository.findIncomingTransfersAfter("otherUser", Long.MIN_VALUE, 10)
+                .getContent().stream().map(Transaction::getId).toList());
+        assertTrue(repository.findIncomingTransfersAfter(TEST_USER, Long.MIN_VALUE, 10).isEmpty());
+    }
+
+    @Test
+    void save_ShouldMoveIdToNewOwner_WhenIdBelongedToAnotherUser() {
+        // 准备测试数据：导入的交易Id已属于另一个用户
+        repository.save(createTestTransaction(1L));
+        repository.save(createTestTransaction(2L));
+        Transaction moved = createTestTransaction(1L);
+        moved.setUserName(TEST_TO_USER);
+
+        // 执行测试
+        repository.saveAll(List.of(moved));
+
+        // 验证结果：原用户不再列出也不能删除该Id，新用户的交易不受原用户删除的影响
+        assertEquals(List.of(2L), repository.findAllByUserName(TEST_USER, PageRequest.of(0, 10)).getContent()
+                .stream().map(Transaction::getId).toList());
+        assertEquals(1, repository.findAllByUserNameAfter(TEST_USER, Long.MIN_VALUE, 10).size());
+        assertFalse(repository.deleteByUserNameAndId(TEST_USER, 1L).isPresent());
+        assertEquals(TEST_TO_USER, repository.findByUserNameAndId(TEST_TO_USER, 1L).orElseThrow().getUserName());
+        assertEquals(1, repository.findSummaryByUserName(TEST_USER).getCount());
+        assertEquals(1, repository.findSummaryByUserName(TEST_TO_USER).getCount());
+    }
+
+    @Test
+    void save_ShouldLeaveNoRow_WhenDescriptionTooLong() {
+        // 准备测试数据
+        repository.save(createTestTransaction(1L));
+        Transaction tooLong = createTestTransaction(2L);
+        tooLong.setDescription("d".repeat(300));
+
+        // 执行测试
+        assertThrows(IllegalArgumentException.class, () -> repository.save(tooLong));
+
+        // 验证结果：行与索引都没有改动，之后仍能正常写入该Id
+        assertEquals(1, repository.count());
+        assertFalse(repository.findByUserNameAndId(TEST_USER, 2L).isPresent());
+        assertEquals(1, repository.findAllByUserName(TEST_USER, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(1, repository.findAllByUserNameAfter(TEST_USER, Long.MIN_VALUE, 10).size());
+        repository.save(createTestTransaction(2L));
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    void findLastByUserName_ShouldReturnLastTransaction() {
+        // 准备测试数据
+        for (long i = 1; i <= 3; i++) {
+            repository.save(createTestTransaction(i));
+        }
+
+        // 执行测试
+        Optional<Transaction> last = repository.findLastByUserName(TEST_USER);
+
+        // 验证结果
+        assertTrue(last.isPresent());
+        assertEquals(3L, last.get().getId());
+    }
+
+    @Test
+    void findLastByUserName_ShouldReturnEmpty_WhenNoTransactions() {
+        // 执行测试
+        Optional<Transaction> last = repository.findLastByUserName(TEST_USER);
+
+        // 验证结果
+        assertFalse(last.isPresent());
+    }
+
+    private Transaction createTestTransaction(long id) {
+        return Transaction.builder()
+                .id(id)
+                .userName(TEST_USER)
+                .toUserName(TEST_TO_USER)
+                .amount(new BigDecimal("100.00"))
+                .type(Transaction.TransactionType.DEPOSIT)
+                .description("测试交易")
+                .createTimestamp(System.currentTimeMillis())
+                .updateTimestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private Transaction createTransfer(long id, String toUserName) {
+        Transaction transaction = createTestTransaction(id);
+        transaction.setType(Transaction.TransactionType.TRANSFER);
+        transaction.setToUserName(toUserName);
+        return transaction;
+    }
+}
\ No newline at end of file
@@ -3,14 +3,26 @@ package com.example.transaction.repository.impl;
 import com.example.transaction.exception.PageOutOfRangeException;
 import com.example.transaction.exception.TransactionTooManyException;
 import com.example.transaction.model.Transaction;
+import com.example.transaction.model.TransactionFilter;
+import com.example.transaction.model.UserSummary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -148,6 +160,151 @@ class InMemoryTransactionRepositoryTest {
         assertThrows(PageOutOfRangeException.class, () -> repository.findAllByUserName(TEST_USER, pageable));
     }
 
+    @Test
+    void findAllByUserNameAfter_ShouldReturnTransactionsAfterCursor() {
+        // 准备测试数据
+        for (long i = 1; i <= 5; i++) {
+            repository.save(createTestTransaction(i));
+        }
+
+        // 执行测试
+        Window<Transaction> first = repository.findAllByUserNameAfter(TEST_USER, Long.MIN_VALUE, 3);
+        Window<Transaction> second = repository.findAllByUserNameAfter(TEST_USER, 3L, 3);
+
+        // 验证结果
+        assertEquals(3, first.size());
+        assertEquals(1L, first.getContent().get(0).getId());
+        assertTrue(first.hasNext());
+        assertEquals(2, second.size());
+        assertEquals(4L, second.getContent().get(0).getId());
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    void findAllByUserNameAfter_ShouldReturnEmpty_WhenNoTransactions() {
+        // 执行测试
+        Window<Transaction> window = repository.findAllByUserNameAfter(TEST_USER, Long.MIN_VALUE, 3);
+
+        // 验证结果
+        assertTrue(window.isEmpty());
+        assertFalse(window.hasNext());
+    }
+
+    @Test
+    void findAllByUserNameBetween_ShouldReturnTransactionsCreatedInRange() {
+        // 准备测试数据：Id 为 1-200，创建时间为 1000 + Id；Id 150 改为更早的创建时间，Id 120 删除
+        for (long i = 1; i <= 200; i++) {
+            Transaction transaction = createTestTransaction(i);
+            transaction.setCreateTimestamp(1000 + i);
+            repository.save(transaction);
+        }
+        Transaction moved = createTestTransaction(150L);
+        moved.setCreateTimestamp(1105);
+        repository.save(moved);
+        repository.deleteByUserNameAndId(TEST_USER, 120L);
+
+        // 执行测试
+        Window<Transaction> first = repository.findAllByUserNameBetween(TEST_USER, 1100, 1130, Long.MIN_VALUE, 20);
+        Window<Transaction> second = repository.findAllByUserNameBetween(TEST_USER, 1100, 1130,
+                first.getContent().get(first.size() - 1).getId(), 20);
+
+        // 验证结果：100-130 中去掉 120，再加上 150
+        assertTrue(first.hasNext());
+        assertFalse(second.hasNext());
+        List<Long> ids = new ArrayList<>();
+        first.forEach(transaction -> ids.add(transaction.getId()));
+        second.forEach(transaction -> ids.add(transaction.getId()));
+        List<Long> expected = new ArrayList<>();
+        for (long i = 100; i <= 130; i++) {
+            if (i != 120) {
+                expected.add(i);
+            }
+        }
+        expected.add(150L);
+        assertEquals(expected, ids);
+        assertTrue(repository.findAllByUserNameBetween(TEST_TO_USER, 0, Long.MAX_VALUE, Long.MIN_VALUE, 20).isEmpty());
+    }
+
+    @Test
+    void findAllByUserNameMatching_ShouldFilterByTypeAndAmount_AcrossPages() {
+        // 准备测试数据：Id 为奇数的是取款，金额为 Id 元；Id 51 改为存款，Id 61 删除
+        for (long i = 1; i <= 100; i++) {
+            Transaction transaction = createTestTransaction(i);
+            transaction.setType(i % 2 == 1
+                    ? Transaction.TransactionType.WITHDRAWAL : Transaction.TransactionType.DEPOSIT);
+            transaction.setAmount(BigDecimal.valueOf(i));
+            repository.save(transaction);
+        }
+        Transaction deposit = createTestTransaction(51L);
+        deposit.setAmount(BigDecimal.valueOf(51));
+        repository.save(deposit);
+        repository.deleteByUserNameAndId(TEST_USER, 61L);
+        TransactionFilter filter = new TransactionFilter(EnumSet.of(Transaction.TransactionType.WITHDRAWAL),
+                4000, 8000);
+
+        // 执行测试
+        Window<Transaction> first = repository.findAllByUserNameMatching(TEST_USER, filter, Long.MIN_VALUE, 10);
+        Window<Transaction> second = repository.findAllByUserNameMatching(TEST_USER, filter,
+                first.getContent().get(first.size() - 1).getId(), 10);
+
+        // 验证结果：41-80 元中的取款，去掉 51 和 61
+        List<Long> ids = new ArrayList<>();
+        first.forEach(transaction -> ids.add(transaction.getId()));
+        second.forEach(transaction -> ids.add(transaction.getId()));
+        assertTrue(first.hasNext());
+        assertFalse(second.hasNext());
+        assertEquals(List.of(41L, 43L, 45L, 47L, 49L, 53L, 55L, 57L, 59L, 63L, 65L, 67L, 69L, 71L, 73L, 75L, 77L, 79L),
+                ids);
+    }
+
+    @Test
+    void findIncomingTransfersAfter_ShouldFollowRecipientAndTypeChanges() {
+        // 准备测试数据：5 笔转给 TEST_TO_USER 的转账，再加 1 笔带接收方的存款
+        for (long i = 1; i <= 5; i++) {
+            repository.save(createTransfer(i, TEST_TO_USER));
+        }
+        repository.save(createTestTransaction(6L));
+
+        // 执行测试：2 改接收方，3 改为存款，4 删除
+        repository.save(createTransfer(2L, "otherUser"));
+        Transaction deposit = createTransfer(3L, TEST_TO_USER);
+        deposit.setType(Transaction.TransactionType.DEPOSIT);
+        repository.save(deposit);
+        repository.deleteByUserNameAndId(TEST_USER, 4L);
+
+        // 验证结果
+        Window<Transaction> first = repository.findIncomingTransfersAfter(TEST_TO_USER, Long.MIN_VALUE, 1);
+        Window<Transaction> second = repository.findIncomingTransfersAfter(TEST_TO_USER, 1L, 1);
+        assertEquals(List.of(1L), first.getContent().stream().map(Transaction::getId).toList());
+        assertTrue(first.hasNext());
+        assertEquals(List.of(5L), second.getContent().stream().map(Transaction::getId).toList());
+        assertFalse(second.hasNext());
+        assertEquals(List.of(2L), repository.findIncomingTransfersAfter("otherUser", Long.MIN_VALUE, 10)
+                .getContent().stream().map(Transaction::getId).toList());
+        assertTrue(repository.findIncomingTransfersAfter(TEST_USER, Long.MIN_VALUE, 10).isEmpty());
+    }
+
+    @Test
+    void save_ShouldMoveIdToNewOwner_WhenIdBelongedToAnotherUser() {
+        // 准备测试数据：导入的交易Id已属于另一个用户
+        repository.save(createTestTransaction(1L));
+        repository.save(createTestTransaction(2L));
+        Transaction moved = createTestTransaction(1L);
+        moved.setUserName(TEST_TO_USER);
+
+        // 执行测试
+        repository.saveAll(List.of(moved));
+
+        // 验证结果：原用户不再列出也不能删除该Id，新用户的交易不受原用户删除的影响
+        assertEquals(List.of(2L), repository.findAllByUserName(TEST_USER, PageRequest.of(0, 10)).getContent()
+                .stream().map(Transaction::getId).toList());
+        assertEquals(1, repository.findAllByUserNameAfter(TEST_USER, Long.MIN_VALUE, 10).size());
+        assertFalse(repository.deleteByUserNameAndId(TEST_USER, 1L).isPresent());
+        assertEquals(TEST_TO_USER, repository.findByUserNameAndId(TEST_TO_USER, 1L).orElseThrow().getUserName());
+        assertEquals(1, repository.findSummaryByUserName(TEST_USER).getCount());
+        assertEquals(1, repository.findSummaryByUserName(TEST_TO_USER).getCount());
+    }
+
     @Test
     void findLastByUserName_ShouldReturnLastTransaction() {
         // 准备测试数据
@@ -172,6 +329,72 @@ class InMemoryTransactionRepositoryTest {
         assertFalse(last.isPresent());
     }
 
+    @Test
+    void findSummaryByUserName_ShouldMatchRecompute_UnderConcurrentMutation() throws Exception {
+        // 准备测试数据：每个线程负责自己的一组用户(同一用户的写入由服务的用户锁串行化)，
+        // 各线程的写入并发修改同一个合计表
+        int threads = 8;
+        int usersPerThread = 4;
+        Transaction.TransactionType[] types = Transaction.TransactionType.values();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // 执行测试：随机新增、覆盖(更新)、删除
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(thread);
+                    for (int i = 0; i < 20_000; i++) {
+                        // Id 决定所属用户，重复的Id即对同一用户交易的更新
+                        long id = (long) thread * 1_000_000 + random.nextInt(2_000) + 1;
+                        String userName = "user" + (thread * usersPerThread + id % usersPerThread);
+                        if (random.nextInt(4) == 0) {
+                            repository.deleteByUserNameAndId(userName, id);
+                            continue;
+                        }
+                        Transaction.TransactionType type = types[random.nextInt(types.length)];
+                        repository.save(Transaction.builder()
+                                .id(id)
+                                .userName(userName)
+                                .toUserName(type == Transaction.TransactionType.TRANSFER
+                                        || type == Transaction.TransactionType.TRANSFER_IN
+                                        ? "user" + random.nextInt(threads * usersPerThread) : null)
+                                .amountCents(random.nextInt(100_000) + 1)
+                                .type(type)
+                                .build());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // 验证结果：与遍历全部交易重新计算的结果一致
+        Map<String, long[]> expected = new HashMap<>();
+        for (String userName : repository.findAllUserNames()) {
+            repository.streamAllByUserName(userName).forEach(transaction -> {
+                long[] own = expected.computeIfAbsent(transaction.getUserName(), k -> new long[5]);
+                own[0]++;
+                switch (transaction.getType()) {
+                    case DEPOSIT -> own[1] += transaction.getAmountCents();
+                    case WITHDRAWAL -> own[2] += transaction.getAmountCents();
+                    case TRANSFER_IN -> own[3] += transaction.getAmountCents();
+                    case TRANSFER -> own[4] += transaction.getAmountCents();
+                }
+            });
+        }
+        for (int u = 0; u < threads * usersPerThread; u++) {
+            String userName = "user" + u;
+            long[] totals = expected.getOrDefault(userName, new long[5]);
+            assertEquals(new UserSummary(userName, totals[0], totals[1], totals[2], totals[3], totals[4]),
+                    repository.findSummaryByUserName(userName));
+        }
+    }
+
     private Transaction createTestTransaction(long id) {
         return Transaction.builder()
                 .id(id)
@@ -184,4 +407,11 @@ class InMemoryTransactionRepositoryTest {
                 .updateTimestamp(System.currentTimeMillis())
                 .build();
     }
+
+    private Transaction createTransfer(long id, String toUserName) {
+        Transaction transaction = createTestTransaction(id);
+        transaction.setType(Transaction.TransactionType.TRANSFER);
+        transaction.setToUserName(toUserName);
+        return transaction;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,213 @@
+package com.example.transaction.repository.impl;
+
+import com.example.transaction.exception.PageOutOfRangeException;
+import com.example.transaction.exception.TransactionTooManyException;
+import com.example.transaction.model.Transaction;
+import com.example.transaction.model.UserSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTransactionRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private MappedTransactionRepository repository;
+    private static final String TEST_USER = "testUser";
+    private static final String TEST_TO_USER = "testToUser";
+
+    @BeforeEach
+    void setUp() {
+        repository = new MappedTransactionRepository(directory, 1000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        repository.close();
+    }
+
+    @Test
+    void save_ShouldRoundTripAllFields() {
+        // 准备测试数据
+        Transaction transaction = Transaction.builder()
+                .id(7L)
+                .userName(TEST_USER)
+                .toUserName("收款人")
+                .amount(new BigDecimal("999999999.99"))
+                .type(Transaction.TransactionType.TRANSFER)
+                .description("转账给朋友")
+                .createTimestamp(1000L)
+                .updateTimestamp(2000L)
+                .build();
+        repository.save(transaction);
+
+        // 执行测试
+        Optional<Transaction> found = repository.findByUserNameAndId(TEST_USER, 7L);
+
+        // 验证结果
+        assertEquals(Optional.of(transaction), found);
+        assertFalse(repository.findByUserNameAndId(TEST_TO_USER, 7L).isPresent());
+    }
+
+    @Test
+    void save_ShouldThrowException_WhenTooManyTransactions() {
+        // 准备测试数据
+        for (long i = 0; i <= 1000; i++) {
+            repository.save(createTestTransaction(i));
+        }
+
+        // 执行测试和验证
+        assertThrows(TransactionTooManyException.class, () -> repository.save(createTestTransaction(1001L)));
+    }
+
+    @Test
+    void deleteByUserNameAndId_ShouldDeleteTransaction_WhenExists() {
+        // 准备测试数据
+        repository.save(createTestTransaction(1L));
+
+        // 执行测试
+        Optional<Transaction> deleted = repository.deleteByUserNameAndId(TEST_USER, 1L);
+
+        // 验证结果
+        assertTrue(deleted.isPresent());
+        assertFalse(repository.findByUserNameAndId(TEST_USER, 1L).isPresent());
+        assertFalse(repository.deleteByUserNameAndId(TEST_USER, 1L).isPresent());
+        assertFalse(repository.findLastByUserName(TEST_USER).isPresent());
+    }
+
+    @Test
+    void findAllByUserName_ShouldReturnPagedResults() {
+        // 准备测试数据
+        for (long i = 1; i <= 5; i++) {
+            repository.save(createTestTransaction(i));
+        }
+
+        // 执行测试
+        Page<Transaction> page = repository.findAllByUserName(TEST_USER, PageRequest.of(1, 3));
+        Window<Transaction> window = repository.findAllByUserNameAfter(TEST_USER, 2L, 2);
+
+        // 验证结果
+        assertEquals(5, page.getTotalElements());
+        assertEquals(List.of(4L, 5L), page.getContent().stream().map(Transaction::getId).toList());
+        assertEquals(List.of(3L, 4L), window.getContent().stream().map(Transaction::getId).toList());
+        assertTrue(window.hasNext());
+        assertThrows(PageOutOfRangeException.class,
+                () -> repository.findAllByUserName(TEST_USER, PageRequest.of(2, 3)));
+    }
+
+    @Test
+    void reopen_ShouldServeExistingTransactions() throws Exception {
+        // 准备测试数据：写入、更新、删除后关闭
+        Path largeDirectory = directory.resolve("large");
+        repository.close();
+        repository = new MappedTransactionRepository(largeDirectory, 1_000_000);
+        for (long i = 1; i <= 300_000; i++) {
+            repository.save(createTestTransaction(i));
+        }
+        Transaction updated = createTestTransaction(2L);
+        updated.setDescription("更新后的描述");
+        repository.save(updated);
+        repository.deleteByUserNameAndId(TEST_USER, 3L);
+        repository.close();
+
+        // 执行测试：重新映射同一目录
+        repository = new MappedTransactionRepository(largeDirectory, 1_000_000);
+
+        // 验证结果
+        assertEquals("更新后的描述", repository.findByUserNameAndId(TEST_USER, 2L).orElseThrow().getDescription());
+        assertFalse(repository.findByUserNameAndId(TEST_USER, 3L).isPresent());
+        Page<Transaction> page = repository.findAllByUserName(TEST_USER, PageRequest.of(0, 3));
+        assertEquals(299_999, page.getTotalElements());
+        assertEquals(List.of(1L, 2L, 4L), page.getContent().stream().map(Transaction::getId).toList());
+        assertEquals(300_000L, repository.findLastByUserName(TEST_USER).orElseThrow().getId());
+
+        // 删除留下的槽位可以复用
+        repository.save(createTestTransaction(300_001L));
+        assertEquals(300_000, repository.findAllByUserName(TEST_USER, PageRequest.of(0, 1)).getTotalElements());
+    }
+
+    @Test
+    void findSummaryByUserName_ShouldRebuildTotals_WhenReopened() throws Exception {
+        // 准备测试数据：存款 3 笔，其中一笔改为转账(接收方写入转入记录)，一笔删除
+        for (long i = 1; i <= 3; i++) {
+            repository.save(createTestTransaction(i));
+        }
+        Transaction transfer = createTestTransaction(2L);
+        transfer.setType(Transaction.TransactionType.TRANSFER);
+        transfer.setAmount(new BigDecimal("30.00"));
+        repository.save(transfer);
+        repository.save(Transaction.builder()
+                .id(4L)
+                .userName(TEST_TO_USER)
+                .toUserName(TEST_USER)
+                .amount(new BigDecimal("30.00"))
+                .type(Transaction.TransactionType.TRANSFER_IN)
+                .build());
+        repository.deleteByUserNameAndId(TEST_USER, 3L);
+        UserSummary before = repository.findSummaryByUserName(TEST_USER);
+        repository.close();
+
+        // 执行测试
+        repository = new MappedTransactionRepository(directory, 1000);
+
+        // 验证结果
+        assertEquals(new UserSummary(TEST_USER, 2, 10000, 0, 0, 3000), before);
+        assertEquals(before, repository.findSummaryByUserName(TEST_USER));
+        assertEquals(new BigDecimal("30.00"), repository.findSummaryByUserName(TEST_TO_USER).getBalance());
+    }
+
+    @Test
+    void findIncomingTransfersAfter_ShouldRebuildIndex_WhenReopened() throws Exception {
+        // 准备测试数据：3 笔转账，其中一笔改为存款、一笔删除，另有一笔带接收方的存款
+        for (long i = 1; i <= 3; i++) {
+            repository.save(createTransfer(i));
+        }
+        repository.save(createTestTransaction(4L));
+        repository.save(createTestTransaction(2L));
+        repository.deleteByUserNameAndId(TEST_USER, 3L);
+        List<Long> before = repository.findIncomingTransfersAfter(TEST_TO_USER, Long.MIN_VALUE, 10)
+                .getContent().stream().map(Transaction::getId).toList();
+        repository.close();
+
+        // 执行测试
+        repository = new MappedTransactionRepository(directory, 1000);
+        repository.save(createTransfer(5L));
+
+        // 验证结果
+        assertEquals(List.of(1L), before);
+        Window<Transaction> window = repository.findIncomingTransfersAfter(TEST_TO_USER, Long.MIN_VALUE, 10);
+        assertEquals(List.of(1L, 5L), window.getContent().stream().map(Transaction::getId).toList());
+        assertFalse(window.hasNext());
+    }
+
+    private Transaction createTestTransaction(long id) {
+        return Transaction.builder()
+                .id(id)
+                .userName(TEST_USER)
+                .toUserName(TEST_TO_USER)
+                .amount(new BigDecimal("100.00"))
+                .type(Transaction.TransactionType.DEPOSIT)
+                .description("测试交易")
+                .createTimestamp(System.currentTimeMillis())
+                .updateTimestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private Transaction createTransfer(long id) {
+        Transaction transaction = createTestTransaction(id);
+        transaction.setType(Transaction.TransactionType.TRANSFER);
+        return transaction;
+    }
+}
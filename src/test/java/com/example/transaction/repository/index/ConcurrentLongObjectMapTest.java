@@ -0,0 +1,95 @@
+package com.example.transaction.repository.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLongObjectMapTest {
+
+    @Test
+    void put_ShouldReplaceAndReturnPreviousValue() {
+        // 准备测试数据
+        ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+
+        // 执行测试并验证结果：0 和负数也是普通的键
+        assertNull(map.put(0L, "zero"));
+        assertNull(map.put(-1L, "minus"));
+        assertEquals("zero", map.put(0L, "zero2"));
+        assertEquals("zero2", map.get(0L));
+        assertEquals("minus", map.get(-1L));
+        assertNull(map.get(1L));
+        assertEquals(2, map.size());
+        assertThrows(NullPointerException.class, () -> map.put(1L, null));
+    }
+
+    @Test
+    void remove_ShouldKeepOtherKeysReachable() {
+        // 准备测试数据：随机写入、删除，与 HashMap 对照，覆盖扩容和后移回填
+        ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(20_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+
+        // 验证结果
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 20_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    void get_ShouldSeeStableKeys_WhenWritersResizeConcurrently() throws Exception {
+        // 准备测试数据：读线程反复读取固定的键，写线程不断新增和删除其他键，触发扩容与回填
+        ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>();
+        for (long key = 1; key <= 1000; key++) {
+            map.put(key, key);
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (long key = 1_000_000; key < 1_200_000; key++) {
+                    map.put(key, key);
+                    if (key % 2 == 0) {
+                        map.remove(key - 1);
+                    }
+                }
+                running.set(false);
+            });
+            Future<?>[] readers = new Future<?>[2];
+            for (int i = 0; i < readers.length; i++) {
+                readers[i] = executor.submit(() -> {
+                    while (running.get()) {
+                        for (long key = 1; key <= 1000; key++) {
+                            assertEquals(key, map.get(key));
+                        }
+                    }
+                });
+            }
+
+            // 验证结果
+            writer.get(60, TimeUnit.SECONDS);
+            for (Future<?> reader : readers) {
+                reader.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.transaction.repository.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankedIdIndexTest {
+
+    @Test
+    void select_ShouldReturnKthId_WhenAppended() {
+        // 准备测试数据
+        RankedIdIndex index = new RankedIdIndex();
+        for (long i = 1; i <= 1000; i++) {
+            assertTrue(index.add(i));
+        }
+
+        // 验证结果
+        assertEquals(1000, index.size());
+        assertEquals(1L, index.select(0));
+        assertEquals(301L, index.select(300));
+        assertEquals(1000L, index.select(999));
+        assertEquals(300, index.rank(301L));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.select(1000));
+    }
+
+    @Test
+    void add_ShouldReturnFalse_WhenIdExists() {
+        RankedIdIndex index = new RankedIdIndex();
+        assertTrue(index.add(5L));
+        assertFalse(index.add(5L));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void remove_ShouldSkipDeletedIds() {
+        // 准备测试数据
+        RankedIdIndex index = new RankedIdIndex();
+        for (long i = 1; i <= 10; i++) {
+            index.add(i);
+        }
+
+        // 执行测试
+        assertTrue(index.remove(1L));
+        assertTrue(index.remove(5L));
+        assertFalse(index.remove(5L));
+        assertFalse(index.remove(42L));
+
+        // 验证结果
+        assertEquals(8, index.size());
+        assertEquals(2L, index.select(0));
+        assertEquals(6L, index.select(3));
+        assertFalse(index.contains(5L));
+        assertTrue(index.contains(6L));
+    }
+
+    @Test
+    void operations_ShouldMatchTreeSet_WhenRandomized() {
+        // 乱序插入、删除、重新插入与 TreeSet 对比
+        RankedIdIndex index = new RankedIdIndex();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            long id = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), index.remove(id));
+            } else {
+                assertEquals(expected.add(id), index.add(id));
+            }
+        }
+
+        assertEquals(expected.size(), index.size());
+        List<Long> ordered = new ArrayList<>(expected);
+        for (int k = 0; k < ordered.size(); k += 7) {
+            assertEquals(ordered.get(k), index.select(k));
+            assertEquals(k, index.rank(ordered.get(k)));
+        }
+    }
+
+    @Test
+    void idsMatching_ShouldMatchFullScan_WhenAttributesChange() {
+        // 准备测试数据：乱序插入、删除(触发压缩)、修改属性，与 TreeMap 对比
+        RankedIdIndex index = new RankedIdIndex();
+        TreeMap<Long, Integer> expected = new TreeMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            long id = random.nextInt(10) == 0 ? random.nextInt(i + 1) : i;
+            if (random.nextInt(2) == 0 && expected.containsKey(id)) {
+                expected.remove(id);
+                index.remove(id);
+            } else {
+                int attributes = 1 << random.nextInt(4) | 1 << (8 + random.nextInt(12));
+                expected.put(id, attributes);
+                index.add(id, attributes);
+            }
+        }
+        int[][] conditionSets = {{}, {1 << 1}, {1 << 1, 1 << 19}, {1 << 2 | 1 << 3, 3 << 8}};
+
+        for (int[] conditions : conditionSets) {
+            // 执行测试：每页 50 个，按游标取完
+            List<Long> actual = new ArrayList<>();
+            long afterId = Long.MIN_VALUE;
+            long[] page;
+            do {
+                page = index.idsMatching(afterId, 50, conditions);
+                for (long id : page) {
+                    actual.add(id);
+                }
+                afterId = page.length == 0 ? afterId : page[page.length - 1];
+            } while (page.length == 50);
+
+            // 验证结果
+            List<Long> matched = expected.entrySet().stream()
+                    .filter(entry -> Arrays.stream(conditions)
+                            .allMatch(condition -> (entry.getValue() & condition) != 0))
+                    .map(Map.Entry::getKey).toList();
+            assertEquals(matched, actual);
+        }
+    }
+
+    @Test
+    void concurrentAddAndRemove_ShouldKeepIndexConsistent() throws Exception {
+        // 多线程并发写入与删除
+        RankedIdIndex index = new RankedIdIndex();
+        int threads = 4;
+        int perThread = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    long id = (long) i * threads + offset;
+                    index.add(id);
+                    if (i % 2 == 1) {
+                        index.remove(id);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // 每个线程保留偶数次写入的Id
+        assertEquals(threads * perThread / 2, index.size());
+        long previous = -1;
+        for (int k = 0; k < index.size(); k++) {
+            long id = index.select(k);
+            assertTrue(id > previous);
+            assertEquals(0, (id / threads) % 2);
+            previous = id;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.transaction.repository.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeFenceIndexTest {
+
+    @Test
+    void idsBetween_ShouldOnlyReadNearRange_WhenTimestampsFollowIds() {
+        // 准备测试数据：每毫秒一笔交易
+        RankedIdIndex ids = new RankedIdIndex();
+        TimeFenceIndex index = new TimeFenceIndex();
+        for (long id = 1; id <= 100_000; id++) {
+            ids.add(id);
+            index.add(id, 1_000_000 + id);
+        }
+        AtomicInteger reads = new AtomicInteger();
+
+        // 执行测试
+        long[] result = index.idsBetween(ids, 1_050_001, 1_050_100, Long.MIN_VALUE, 1000, id -> {
+            reads.incrementAndGet();
+            return id >= 50_001 && id <= 50_100;
+        });
+
+        // 验证结果：范围内 100 条，两端各多读不超过一个栅栏间隔
+        assertEquals(100, result.length);
+        assertEquals(50_001L, result[0]);
+        assertEquals(50_100L, result[99]);
+        assertTrue(reads.get() <= 100 + 2 * TimeFenceIndex.FENCE_INTERVAL, "reads=" + reads.get());
+    }
+
+    @Test
+    void idsBetween_ShouldMatchFullScan_WhenWritesOutOfOrder() {
+        // 准备测试数据：穿插乱序Id、时钟回拨、修改创建时间和删除
+        Random random = new Random(7);
+        RankedIdIndex ids = new RankedIdIndex();
+        TimeFenceIndex index = new TimeFenceIndex();
+        Map<Long, Long> timestamps = new HashMap<>();
+        long now = 1_000_000;
+        for (long id = 1; id <= 5000; id++) {
+            now += random.nextInt(3);
+            long createTimestamp = random.nextInt(50) == 0 ? now - random.nextInt(500) : now;
+            long insertedId = random.nextInt(60) == 0 ? random.nextInt((int) id) * 2 + 1 : id * 2;
+            if (timestamps.containsKey(insertedId)) {
+                index.update(insertedId, timestamps.get(insertedId), createTimestamp);
+            } else {
+                ids.add(insertedId);
+                index.add(insertedId, createTimestamp);
+            }
+            timestamps.put(insertedId, createTimestamp);
+            if (random.nextInt(10) == 0) {
+                long deletedId = id * 2 - random.nextInt(20) * 2;
+                if (timestamps.remove(deletedId) != null) {
+                    ids.remove(deletedId);
+                    index.remove(deletedId);
+                }
+            }
+        }
+
+        // 执行测试：按游标逐页取出多个时间范围
+        for (int i = 0; i < 50; i++) {
+            long from = 1_000_000 + random.nextInt((int) (now - 1_000_000));
+            long to = from + random.nextInt(500);
+            List<Long> expected = timestamps.entrySet().stream()
+                    .filter(entry -> entry.getValue() >= from && entry.getValue() <= to)
+                    .map(Map.Entry::getKey).sorted().toList();
+
+            List<Long> actual = new ArrayList<>();
+            long afterId = Long.MIN_VALUE;
+            while (true) {
+                long[] page = index.idsBetween(ids, from, to, afterId, 8, id -> {
+                    Long createTimestamp = timestamps.get(id);
+                    return createTimestamp != null && createTimestamp >= from && createTimestamp <= to;
+                });
+                for (long id : page) {
+                    actual.add(id);
+                }
+                if (page.length < 8) {
+                    break;
+                }
+                afterId = page[page.length - 1];
+            }
+
+            // 验证结果
+            assertEquals(expected, actual, "from=" + from + ", to=" + to);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.transaction.repository.index;
+
+import com.example.transaction.model.Transaction;
+import com.example.transaction.model.UserSummary;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserAggregatesTest {
+
+    @Test
+    void add_ShouldCountEachSideOfTransferForItsOwnUser() {
+        // 准备测试数据
+        UserAggregates aggregates = new UserAggregates();
+
+        // 执行测试
+        aggregates.add(transaction(1, "abc", null, "100.00", Transaction.TransactionType.DEPOSIT));
+        aggregates.add(transaction(2, "abc", null, "30.00", Transaction.TransactionType.WITHDRAWAL));
+        aggregates.add(transaction(4, "abc", "xyz", "20.50", Transaction.TransactionType.TRANSFER));
+        aggregates.add(transaction(5, "xyz", "abc", "20.50", Transaction.TransactionType.TRANSFER_IN));
+
+        // 验证结果
+        UserSummary sender = aggregates.summary("abc");
+        assertEquals(3, sender.getCount());
+        assertEquals(new BigDecimal("49.50"), sender.getBalance());
+        assertEquals(2050, sender.getTransferOutCents());
+        assertEquals(0, sender.getTransferInCents());
+        UserSummary recipient = aggregates.summary("xyz");
+        assertEquals(1, recipient.getCount());
+        assertEquals(new BigDecimal("20.50"), recipient.getTransfersIn());
+        assertEquals(new BigDecimal("20.50"), recipient.getBalance());
+    }
+
+    @Test
+    void replaceAndSubtract_ShouldRemoveOldContribution_WhenUpdatedOrDeleted() {
+        // 准备测试数据
+        UserAggregates aggregates = new UserAggregates();
+        Transaction original = transaction(1, "abc", "xyz", "20.00", Transaction.TransactionType.TRANSFER);
+        aggregates.add(original);
+
+        // 执行测试：更新为存款，再删除
+        Transaction updated = transaction(1, "abc", null, "50.00", Transaction.TransactionType.DEPOSIT);
+        aggregates.replace(original, updated);
+        UserSummary afterUpdate = aggregates.summary("abc");
+        aggregates.subtract(updated);
+
+        // 验证结果
+        assertEquals(1, afterUpdate.getCount());
+        assertEquals(5000, afterUpdate.getBalanceCents());
+        assertEquals(0, aggregates.summary("xyz").getTransferInCents());
+        assertEquals(new UserSummary("abc", 0, 0, 0, 0, 0), aggregates.summary("abc"));
+    }
+
+    @Test
+    void replace_ShouldNeverExposePartialTotals_WhenReadConcurrently() throws Exception {
+        // 准备测试数据：一条交易在两个金额之间反复覆盖
+        UserAggregates aggregates = new UserAggregates();
+        Transaction small = transaction(1, "abc", null, "10.00", Transaction.TransactionType.DEPOSIT);
+        Transaction large = transaction(1, "abc", null, "20.00", Transaction.TransactionType.DEPOSIT);
+        aggregates.add(small);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 100_000; i++) {
+                aggregates.replace(i % 2 == 0 ? small : large, i % 2 == 0 ? large : small);
+            }
+        });
+
+        // 执行测试
+        writer.start();
+        boolean partial = false;
+        while (writer.isAlive()) {
+            UserSummary summary = aggregates.summary("abc");
+            long balance = summary.getBalanceCents();
+            partial |= summary.getCount() != 1 || (balance != 1000 && balance != 2000);
+        }
+        writer.join();
+
+        // 验证结果
+        assertFalse(partial);
+        assertEquals(1000, aggregates.summary("abc").getBalanceCents());
+    }
+
+    private static Transaction transaction(long id, String userName, String toUserName, String amount,
+                                           Transaction.TransactionType type) {
+        return Transaction.builder()
+                .id(id)
+                .userName(userName)
+                .toUserName(toUserName)
+                .amount(new BigDecimal(amount))
+                .type(type)
+                .build();
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.transaction.repository.journal;
+
+import com.example.transaction.model.Transaction;
+import com.example.transaction.repository.impl.InMemoryTransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileTransactionJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private FileTransactionJournal journal;
+    private static final String TEST_USER = "testUser";
+
+    @AfterEach
+    void tearDown() throws IOException {
+        journal.close();
+    }
+
+    @Test
+    void recover_ShouldReplaySavesAndDeletes() throws IOException {
+        // 准备测试数据
+        journal = open(1024 * 1024);
+        journal.recover(new InMemoryTransactionRepository());
+        for (long i = 1; i <= 5; i++) {
+            journal.logSave(createTestTransaction(i, "交易" + i));
+        }
+        journal.logSave(createTestTransaction(2L, "更新后的描述"));
+        journal.logDelete(TEST_USER, 5L);
+        journal.close();
+
+        // 执行测试
+        InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+        journal = open(1024 * 1024);
+        long maxId = journal.recover(repository);
+
+        // 验证结果
+        assertEquals(5L, maxId);
+        assertEquals(4, repository.findAllByUserName(TEST_USER, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals("更新后的描述", repository.findByUserNameAndId(TEST_USER, 2L).orElseThrow().getDescription());
+        assertFalse(repository.findByUserNameAndId(TEST_USER, 5L).isPresent());
+    }
+
+    @Test
+    void recover_ShouldTruncateTornTailAndKeepAppending() throws IOException {
+        // 准备测试数据：最后一条记录只写了一半
+        journal = open(1024 * 1024);
+        journal.recover(new InMemoryTransactionRepository());
+        journal.logSave(createTestTransaction(1L, "完整"));
+        journal.logSave(createTestTransaction(2L, "不完整"));
+        journal.close();
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        // 执行测试
+        InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+        journal = open(1024 * 1024);
+        long maxId = journal.recover(repository);
+        journal.logSave(createTestTransaction(3L, "截断后追加"));
+        journal.close();
+        InMemoryTransactionRepository reopened = new InMemoryTransactionRepository();
+        journal = open(1024 * 1024);
+        journal.recover(reopened);
+
+        // 验证结果
+        assertEquals(1L, maxId);
+        assertTrue(repository.findByUserNameAndId(TEST_USER, 1L).isPresent());
+        assertFalse(repository.findByUserNameAndId(TEST_USER, 2L).isPresent());
+        assertTrue(reopened.findByUserNameAndId(TEST_USER, 3L).isPresent());
+    }
+
+    @Test
+    void logSave_ShouldGroupConcurrentWritersAcrossSegments() throws Exception {
+        // 准备测试数据：段大小很小，迫使日志滚动
+        journal = open(16 * 1024);
+        journal.recover(new InMemoryTransactionRepository());
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // 执行测试
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long base = (long) t * perThread;
+            futures.add(executor.submit(() -> {
+                for (long i = 1; i <= perThread; i++) {
+                    journal.logSave(createTestTransaction(base + i, "并发写入"));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        journal.close();
+
+        // 验证结果
+        InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+        journal = open(16 * 1024);
+        assertEquals((long) threads * perThread, journal.recover(repository));
+        assertEquals(threads * perThread,
+                repository.findAllByUserName(TEST_USER, PageRequest.of(0, 1)).getTotalElements());
+        assertTrue(segments().size() > 1);
+    }
+
+    @Test
+    void checkpoint_ShouldCompactLogAndRecoverFromSnapshot() throws IOException {
+        // 准备测试数据：快照覆盖多个块，之后还有更新和删除
+        InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+        journal = open(1024 * 1024);
+        journal.recover(repository);
+        for (long i = 1; i <= 150_000; i++) {
+            Transaction transaction = createTestTransaction(i, "交易" + i);
+            transaction.setUserName("user" + (i % 3));
+            journal.logSave(transaction);
+            repository.save(transaction);
+        }
+        int segmentsBefore = segments().size();
+        journal.checkpoint(action -> repository.findAllUserNames().stream().sorted().forEach(userName ->
+                repository.findAllByUserName(userName, PageRequest.of(0, 100_000)).forEach(action)));
+        Transaction updated = createTestTransaction(3L, "快照后更新");
+        updated.setUserName("user0");
+        journal.logSave(updated);
+        journal.logDelete("user1", 1L);
+        journal.logSave(createTestTransaction(150_001L, "快照后新增"));
+        journal.logDelete(TEST_USER, 150_001L);
+        journal.close();
+
+        // 执行测试
+        InMemoryTransactionRepository recovered = new InMemoryTransactionRepository();
+        journal = open(1024 * 1024);
+        long maxId = journal.recover(recovered);
+
+        // 验证结果
+        assertTrue(segmentsBefore > 1);
+        assertEquals(1, segments().stream().filter(path -> path.toString().endsWith(".log")).count());
+        assertEquals(150_001L, maxId);
+        assertEquals(49_999, recovered.findAllByUserName("user1", PageRequest.of(0, 1)).getTotalElements());
+        assertEquals(50_000, recovered.findAllByUserName("user0", PageRequest.of(0, 1)).getTotalElements());
+        assertEquals("快照后更新", recovered.findByUserNameAndId("user0", 3L).orElseThrow().getDescription());
+        assertEquals("交易149999", recovered.findByUserNameAndId("user2", 149_999L).orElseThrow().getDescription());
+        assertFalse(recovered.findByUserNameAndId("user1", 1L).isPresent());
+    }
+
+    @Test
+    void logSaveAll_ShouldPersistBatchLargerThanQueue() throws IOException {
+        // 准备测试数据：一批的条数超过刷盘队列容量
+        journal = open(64 * 1024);
+        journal.recover(new InMemoryTransactionRepository());
+        List<Transaction> batch = new ArrayList<>();
+        for (long i = 1; i <= 2000; i++) {
+            batch.add(createTestTransaction(i, "交易" + i));
+        }
+
+        // 执行测试
+        journal.logSaveAll(batch);
+        journal.close();
+        InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+        journal = open(64 * 1024);
+        long maxId = journal.recover(repository);
+
+        // 验证结果
+        assertEquals(2000L, maxId);
+        assertEquals(2000, repository.findAllByUserName(TEST_USER, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals("交易1234", repository.findByUserNameAndId(TEST_USER, 1234L).orElseThrow().getDescription());
+    }
+
+    @Test
+    void logGroup_ShouldReplayWholeGroup_AndDropTornGroupEntirely() throws IOException {
+        // 准备测试数据：一笔转账的两条记录，再把接收方改为另一个用户，最后一组只写了一半
+        journal = open(1024 * 1024);
+        journal.recover(new InMemoryTransactionRepository());
+        Transaction debit = createTransfer(2L, TEST_USER, "otherUser", Transaction.TransactionType.TRANSFER);
+        Transaction credit = createTransfer(3L, "otherUser", TEST_USER, Transaction.TransactionType.TRANSFER_IN);
+        journal.logGroup(List.of(debit, credit), List.of());
+        journal.logGroup(
+                List.of(createTransfer(2L, TEST_USER, "thirdUser", Transaction.TransactionType.TRANSFER),
+                        createTransfer(3L, "thirdUser", TEST_USER, Transaction.TransactionType.TRANSFER_IN)),
+                List.of(credit));
+        journal.close();
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        // 执行测试
+        InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+        journal = open(1024 * 1024);
+        long maxId = journal.recover(repository);
+
+        // 验证结果：第一组完整生效，第二组的删除和保存都没有执行
+        assertEquals(3L, maxId);
+        assertEquals("otherUser", repository.findByUserNameAndId(TEST_USER, 2L).orElseThrow().getToUserName());
+        assertTrue(repository.findByUserNameAndId("otherUser", 3L).isPresent());
+        assertFalse(repository.findByUserNameAndId("thirdUser", 3L).isPresent());
+    }
+
+    private FileTransactionJournal open(long segmentBytes) {
+        return new FileTransactionJournal(directory, segmentBytes, 64, 0, false);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private Transaction createTransfer(long id, String userName, String toUserName,
+                                       Transaction.TransactionType type) {
+        return Transaction.builder()
+                .id(id)
+                .userName(userName)
+                .toUserName(toUserName)
+                .amount(new BigDecimal("30.00"))
+                .type(type)
+                .createTimestamp(1000L)
+                .updateTimestamp(1000L)
+                .build();
+    }
+
+    private Transaction createTestTransaction(long id, String description) {
+        return Transaction.builder()
+                .id(id)
+                .userName(TEST_USER)
+                .amount(new BigDecimal("100.00"))
+                .type(Transaction.TransactionType.DEPOSIT)
+                .description(description)
+                .createTimestamp(1000L)
+                .updateTimestamp(2000L)
+                .build();
+    }
+}
\ No newline at end of file
@@ -1,29 +1,53 @@
 package com.example.transaction.service;
 
+import com.example.transaction.dto.BatchItemResult;
+import com.example.transaction.dto.BatchResult;
+import com.example.transaction.dto.CursorPage;
 import com.example.transaction.dto.TransactionRequest;
 import com.example.transaction.exception.DuplicateTransactionException;
 import com.example.transaction.exception.PageOutOfRangeException;
 import com.example.transaction.exception.TransactionNotFoundException;
 import com.example.transaction.exception.TransactionTooManyException;
 import com.example.transaction.model.Transaction;
+import com.example.transaction.model.UserSummary;
 import com.example.transaction.repository.TransactionRepository;
+import com.example.transaction.repository.impl.InMemoryTransactionRepository;
+import com.example.transaction.service.id.IdGenerator;
+import com.example.transaction.service.id.SequentialIdGenerator;
+import com.example.transaction.service.idempotency.IdempotencyRegistry;
 import com.example.transaction.service.impl.TransactionServiceImpl;
+import com.example.transaction.service.lock.StripedUserLocks;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.StampedLock;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,7 +63,7 @@ class TransactionServiceTest {
 
     @BeforeEach
     void setUp() {
-        transactionService = new TransactionServiceImpl(transactionRepository);
+        transactionService = TransactionServiceImpl.builder().transactionRepository(transactionRepository).build();
         sampleRequest = new TransactionRequest();
         sampleRequest.setUserName(TEST_USER);
         sampleRequest.setAmount(new BigDecimal("100.00"));
@@ -66,6 +90,21 @@ class TransactionServiceTest {
         verify(transactionRepository).save(any(Transaction.class));
     }
 
+    @Test
+    void recover_ShouldContinueIdsAfterHighestExistingId() {
+        // 准备测试数据
+        when(transactionRepository.findMaxId()).thenReturn(41L);
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // 执行测试
+        ((TransactionServiceImpl) transactionService).recover();
+        Transaction transaction = transactionService.createTransaction(sampleRequest);
+
+        // 验证结果
+        assertEquals(42L, transaction.getId());
+    }
+
     @Test
     void createTransferTransaction_ShouldCreateSuccessfully() {
         // 准备转账请求
@@ -78,12 +117,118 @@ class TransactionServiceTest {
         // 执行测试
         Transaction transaction = transactionService.createTransaction(sampleRequest);
 
-        // 验证结果
+        // 验证结果：转出方和接收方各一条记录，转入记录的Id紧接转出记录
         assertNotNull(transaction);
         assertEquals(TEST_USER, transaction.getUserName());
         assertEquals(TEST_TO_USER, transaction.getToUserName());
         assertEquals(Transaction.TransactionType.TRANSFER, transaction.getType());
-        verify(transactionRepository).save(any(Transaction.class));
+        assertEquals(0, transaction.getId() % 2);
+        ArgumentCaptor<Transaction> saved = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionRepository, times(2)).save(saved.capture());
+        Transaction credit = saved.getAllValues().get(1);
+        assertEquals(transaction.getId() + 1, credit.getId());
+        assertEquals(TEST_TO_USER, credit.getUserName());
+        assertEquals(TEST_USER, credit.getToUserName());
+        assertEquals(Transaction.TransactionType.TRANSFER_IN, credit.getType());
+        assertEquals(transaction.getAmountCents(), credit.getAmountCents());
+    }
+
+    @Test
+    void createTransaction_ShouldNotDeadlock_WhenTransfersCross() throws Exception {
+        // 准备测试数据：真实仓库，分段很少，多个线程在少数用户之间双向转账
+        InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+        TransactionService service = TransactionServiceImpl.builder()
+                .transactionRepository(repository)
+                .userLocks(new StripedUserLocks(4))
+                .build();
+        String[] users = {"alice", "bob", "carol", "dave", "erin"};
+        int threads = 8;
+        int perThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // 执行测试
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(thread);
+                    for (int i = 0; i < perThread; i++) {
+                        int from = random.nextInt(users.length);
+                        int to = (from + 1 + random.nextInt(users.length - 1)) % users.length;
+                        TransactionRequest request = new TransactionRequest();
+                        request.setUserName(users[from]);
+                        request.setToUserName(users[to]);
+                        request.setAmount(new BigDecimal(random.nextInt(10_000) + 1).movePointLeft(2));
+                        request.setType(Transaction.TransactionType.TRANSFER);
+                        request.setDescription(thread + "-" + i);
+                        service.createTransaction(request);
+                    }
+                }));
+            }
+            assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 验证结果：每笔转账两条记录，全部余额相加为零，每个用户的转入等于接收方记录之和
+        assertEquals(2L * threads * perThread, repository.count());
+        long totalBalance = 0;
+        for (String user : users) {
+            UserSummary summary = service.getSummary(user);
+            totalBalance += summary.getBalanceCents();
+            long credited = repository.streamAllByUserName(user)
+                    .filter(transaction -> transaction.getType() == Transaction.TransactionType.TRANSFER_IN)
+                    .mapToLong(Transaction::getAmountCents)
+                    .sum();
+            assertEquals(credited, summary.getTransferInCents());
+        }
+        assertEquals(0, totalBalance);
+    }
+
+    @Test
+    void updateAndDeleteTransaction_ShouldMoveAndRemoveRecipientSide_WhenTransfer() {
+        // 准备测试数据
+        InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+        TransactionService service = TransactionServiceImpl.builder().transactionRepository(repository).build();
+        sampleRequest.setType(Transaction.TransactionType.TRANSFER);
+        sampleRequest.setToUserName(TEST_TO_USER);
+        Transaction transfer = service.createTransaction(sampleRequest);
+        String id = String.valueOf(transfer.getId());
+        String creditId = String.valueOf(transfer.getId() + 1);
+
+        // 执行测试：不能单独修改或删除转入记录；把接收方改为另一个用户，再删除转账
+        TransactionRequest creditUpdate = new TransactionRequest();
+        creditUpdate.setUserName(TEST_TO_USER);
+        creditUpdate.setAmount(new BigDecimal("1.00"));
+        creditUpdate.setType(Transaction.TransactionType.DEPOSIT);
+        assertThrows(IllegalArgumentException.class,
+                () -> service.updateTransaction(TEST_TO_USER, creditId, creditUpdate));
+        assertThrows(IllegalArgumentException.class, () -> service.deleteTransaction(TEST_TO_USER, creditId));
+        TransactionRequest update = new TransactionRequest();
+        update.setUserName(TEST_USER);
+        update.setToUserName("thirdUser");
+        update.setAmount(new BigDecimal("50.00"));
+        update.setType(Transaction.TransactionType.TRANSFER);
+        service.updateTransaction(TEST_USER, id, update);
+        UserSummary movedFrom = service.getSummary(TEST_TO_USER);
+        UserSummary movedTo = service.getSummary("thirdUser");
+        Transaction movedCredit = service.getTransaction("thirdUser", creditId);
+        service.deleteTransaction(TEST_USER, id);
+
+        // 验证结果
+        assertEquals(0, movedFrom.getTransferInCents());
+        assertEquals(5000, movedTo.getTransferInCents());
+        assertEquals(TEST_USER, movedCredit.getToUserName());
+        assertEquals(Transaction.TransactionType.TRANSFER_IN, movedCredit.getType());
+        assertThrows(TransactionNotFoundException.class, () -> service.getTransaction(TEST_TO_USER, creditId));
+        assertEquals(0, repository.count());
+        assertEquals(0, service.getSummary(TEST_USER).getTransferOutCents());
+        assertEquals(0, service.getSummary("thirdUser").getTransferInCents());
     }
 
     @Test
@@ -133,6 +278,8 @@ class TransactionServiceTest {
                 .userName(TEST_USER)
                 .build();
 
+        when(transactionRepository.findByUserNameAndId(TEST_USER, transactionId))
+                .thenReturn(Optional.of(existingTransaction));
         when(transactionRepository.deleteByUserNameAndId(TEST_USER, transactionId))
                 .thenReturn(Optional.of(existingTransaction));
 
@@ -147,7 +294,7 @@ class TransactionServiceTest {
     void deleteTransaction_ShouldThrowException_WhenNotFound() {
         // 准备测试数据
         long transactionId = 2;
-        when(transactionRepository.deleteByUserNameAndId(TEST_USER, transactionId))
+        when(transactionRepository.findByUserNameAndId(TEST_USER, transactionId))
                 .thenReturn(Optional.empty());
 
         // 执行测试和验证
@@ -215,6 +362,39 @@ class TransactionServiceTest {
         assertEquals(3, result.getSize());
     }
 
+    @Test
+    void getTransactionsAfter_ShouldFollowNextCursor() {
+        // 准备测试数据
+        List<Transaction> firstContent = Arrays.asList(
+                Transaction.builder().id(1).userName(TEST_USER).build(),
+                Transaction.builder().id(2).userName(TEST_USER).build());
+        List<Transaction> secondContent = List.of(
+                Transaction.builder().id(3).userName(TEST_USER).build());
+
+        when(transactionRepository.findAllByUserNameAfter(TEST_USER, Long.MIN_VALUE, 2))
+                .thenReturn(Window.from(firstContent, ScrollPosition::offset, true));
+        when(transactionRepository.findAllByUserNameAfter(TEST_USER, 2L, 2))
+                .thenReturn(Window.from(secondContent, ScrollPosition::offset, false));
+
+        // 执行测试
+        CursorPage<Transaction> first = transactionService.getTransactionsAfter(TEST_USER, "", 2);
+        CursorPage<Transaction> second = transactionService.getTransactionsAfter(TEST_USER, first.getNextCursor(), 2);
+
+        // 验证结果
+        assertEquals(2, first.getContent().size());
+        assertNotNull(first.getNextCursor());
+        assertEquals(1, second.getContent().size());
+        assertEquals(3L, second.getContent().get(0).getId());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void getTransactionsAfter_ShouldThrowException_WhenCursorInvalid() {
+        // 执行测试和验证
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.getTransactionsAfter(TEST_USER, "not-a-cursor", 2));
+    }
+
     @Test
     void createTransaction_ShouldThrowException_WhenInvalidAmount() {
         // 准备无效金额的请求
@@ -237,22 +417,313 @@ class TransactionServiceTest {
 
     @Test
     void createTransaction_ShouldThrowException_WhenDuplicateTransaction() {
+        // 准备测试数据：第一次创建成功后，仓库中能按Id取到这笔交易
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        Transaction first = transactionService.createTransaction(sampleRequest);
+        when(transactionRepository.findByUserNameAndId(TEST_USER, first.getId()))
+                .thenReturn(Optional.of(first));
+
+        // 执行测试和验证
+        assertThrows(DuplicateTransactionException.class,
+                () -> transactionService.createTransaction(sampleRequest));
+        verify(transactionRepository, never()).findLastByUserName(any());
+    }
+
+    @Test
+    void createTransaction_ShouldAllowSameContent_WhenPreviousWasDeleted() {
+        // 准备测试数据：指纹命中但原交易已被删除
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        Transaction first = transactionService.createTransaction(sampleRequest);
+
+        // 执行测试
+        Transaction second = transactionService.createTransaction(sampleRequest);
+
+        // 验证结果
+        assertNotEquals(first.getId(), second.getId());
+        verify(transactionRepository).findByUserNameAndId(TEST_USER, first.getId());
+    }
+
+    @Test
+    void createTransaction_ShouldReturnOriginal_WhenIdempotencyKeyIsRetried() {
         // 准备测试数据
-        Transaction existingTransaction = Transaction.builder()
-                .id(1L)
+        when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        sampleRequest.setIdempotencyKey("retry-1");
+        Transaction first = transactionService.createTransaction(sampleRequest);
+        when(transactionRepository.findByUserNameAndId(TEST_USER, first.getId()))
+                .thenReturn(Optional.of(first));
+
+        // 执行测试
+        Transaction retried = transactionService.createTransaction(sampleRequest);
+        sampleRequest.setIdempotencyKey("retry-2");
+        Transaction another = transactionService.createTransaction(sampleRequest);
+        sampleRequest.setIdempotencyKey("retry-1");
+        sampleRequest.setAmount(new BigDecimal("1.00"));
+
+        // 验证结果：同一个 key 返回原交易，不同 key 的相同内容正常创建，同一个 key 换内容被拒绝
+        assertSame(first, retried);
+        assertNotEquals(first.getId(), another.getId());
+        verify(transactionRepository, times(2)).save(any(Transaction.class));
+        assertThrows(IllegalArgumentException.class, () -> transactionService.createTransaction(sampleRequest));
+    }
+
+    @Test
+    void createTransactionsAsync_ShouldAssignIdsPerUserGroupAndReportEachItem() {
+        // 准备测试数据：两个用户，其中一条金额不合法
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        TransactionRequest invalid = batchRequest(TEST_USER, "0");
+        List<TransactionRequest> requests = List.of(
+                batchRequest(TEST_USER, "100.00"), invalid, batchRequest(TEST_TO_USER, "200.00"),
+                batchRequest(TEST_USER, "300.00"));
+
+        // 执行测试
+        BatchResult result = transactionService.createTransactionsAsync(requests).join();
+
+        // 验证结果
+        assertEquals(3, result.getSucceeded());
+        assertEquals(1, result.getFailed());
+        assertEquals(BatchItemResult.Status.FAILED, result.getItems().get(1).getStatus());
+        assertEquals("交易金额必须大于0", result.getItems().get(1).getError());
+        // Id 按用户分组依次分配，组内保持请求顺序
+        long firstId = result.getItems().get(0).getTransaction().getId();
+        assertEquals(firstId + 1, result.getItems().get(3).getTransaction().getId());
+        assertEquals(firstId + 2, result.getItems().get(2).getTransaction().getId());
+        // 每个用户只写入一次
+        verify(transactionRepository, times(2)).saveAll(anyList());
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void createTransactionsAsync_ShouldAssignIdsUnderUserWriteLock() {
+        // 准备测试数据：Id生成器记录分配时该用户(转账还有接收方)的写锁是否被持有
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        StripedUserLocks userLocks = new StripedUserLocks(4096);
+        List<Boolean> locked = new ArrayList<>();
+        SequentialIdGenerator sequential = new SequentialIdGenerator();
+        IdGenerator idGenerator = new IdGenerator() {
+            @Override
+            public long nextId(String userName) {
+                locked.add(userLocks.get(userName).isWriteLocked());
+                return sequential.nextId(userName);
+            }
+
+            @Override
+            public long nextTransferId(String userName, String toUserName) {
+                locked.add(userLocks.get(userName).isWriteLocked() && userLocks.get(TEST_TO_USER).isWriteLocked());
+                return sequential.nextTransferId(userName, toUserName);
+            }
+
+            @Override
+            public void advancePast(long id) {
+                sequential.advancePast(id);
+            }
+        };
+        TransactionServiceImpl service = TransactionServiceImpl.builder()
+                .transactionRepository(transactionRepository)
+                .userLocks(userLocks)
+                .idempotencyRegistry(new IdempotencyRegistry(userLocks, 10000, 1024))
+                .idGenerator(idGenerator)
+                .build();
+        TransactionRequest transfer = batchRequest(TEST_USER, "50.00");
+        transfer.setType(Transaction.TransactionType.TRANSFER);
+        transfer.setToUserName(TEST_TO_USER);
+
+        // 执行测试
+        BatchResult result = service.createTransactionsAsync(List.of(
+                batchRequest(TEST_USER, "100.00"), transfer, batchRequest(TEST_USER, "200.00"))).join();
+
+        // 验证结果
+        assertEquals(3, result.getSucceeded());
+        assertEquals(List.of(true, true, true), locked);
+    }
+
+    @Test
+    void createTransactionsAsync_ShouldFailOnlyTheRejectedUserGroup() {
+        // 准备测试数据：testUser 的一组超过容量
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            if (transactions.get(0).getUserName().equals(TEST_USER)) {
+                throw new TransactionTooManyException("交易总数不能超过最大值:1");
+            }
+            return transactions;
+        });
+        List<TransactionRequest> requests = List.of(
+                batchRequest(TEST_USER, "100.00"), batchRequest(TEST_TO_USER, "200.00"));
+
+        // 执行测试
+        BatchResult result = transactionService.createTransactionsAsync(requests).join();
+
+        // 验证结果
+        assertEquals(1, result.getSucceeded());
+        assertEquals(BatchItemResult.Status.FAILED, result.getItems().get(0).getStatus());
+        assertEquals("交易总数不能超过最大值:1", result.getItems().get(0).getError());
+        assertEquals(BatchItemResult.Status.CREATED, result.getItems().get(1).getStatus());
+        verify(transactionRepository).deleteByUserNameAndId(eq(TEST_USER), anyLong());
+    }
+
+    @Test
+    void createTransactionsAsync_ShouldRejectRepeatedItemsAndRetriedBatch() {
+        // 准备测试数据：同一批中有两条内容相同的存款和一笔转账
+        InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+        TransactionService service = TransactionServiceImpl.builder().transactionRepository(repository).build();
+        TransactionRequest transfer = batchRequest(TEST_USER, "50.00");
+        transfer.setType(Transaction.TransactionType.TRANSFER);
+        transfer.setToUserName(TEST_TO_USER);
+        List<TransactionRequest> requests = List.of(
+                batchRequest(TEST_USER, "100.00"), batchRequest(TEST_USER, "100.00"), transfer);
+
+        // 执行测试：同一批重发一次
+        BatchResult first = service.createTransactionsAsync(requests).join();
+        BatchResult retried = service.createTransactionsAsync(requests).join();
+
+        // 验证结果：与单条新增一样，窗口内内容相同的条目视为重复，重发的整批不会再写入
+        assertEquals(List.of(BatchItemResult.Status.CREATED, BatchItemResult.Status.FAILED,
+                BatchItemResult.Status.CREATED), first.getItems().stream().map(BatchItemResult::getStatus).toList());
+        assertTrue(first.getItems().get(1).getError().startsWith("检测到重复交易"));
+        assertEquals(0, retried.getSucceeded());
+        assertEquals(3, retried.getFailed());
+        assertEquals(2, repository.findAllByUserName(TEST_USER, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(1, repository.findAllByUserName(TEST_TO_USER, PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    void createTransactionsAsync_ShouldReturnOriginalTransaction_WhenIdempotencyKeyRetried() {
+        // 准备测试数据
+        InMemoryTransactionRepository repository = new InMemoryTransactionRepository();
+        TransactionService service = TransactionServiceImpl.builder().transactionRepository(repository).build();
+        TransactionRequest keyed = batchRequest(TEST_USER, "100.00");
+        keyed.setIdempotencyKey("k1");
+        Transaction original = service.createTransaction(keyed);
+        TransactionRequest conflicting = batchRequest(TEST_USER, "200.00");
+        conflicting.setIdempotencyKey("k1");
+
+        // 执行测试
+        BatchResult result = service.createTransactionsAsync(List.of(keyed, conflicting)).join();
+
+        // 验证结果：同一个 key 返回原交易，换了内容的被拒绝
+        assertEquals(original.getId(), result.getItems().get(0).getTransaction().getId());
+        assertEquals(BatchItemResult.Status.FAILED, result.getItems().get(1).getStatus());
+        assertEquals("Idempotency-Key 已用于另一笔内容不同的交易", result.getItems().get(1).getError());
+        assertEquals(1, repository.findAllByUserName(TEST_USER, PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    void createTransactionsAsync_ShouldRejectOversizedBatch() {
+        // 准备测试数据
+        ((TransactionServiceImpl) transactionService).setMaxBatchSize(2);
+        List<TransactionRequest> requests = List.of(sampleRequest, sampleRequest, sampleRequest);
+
+        // 执行测试并验证结果
+        assertThrows(IllegalArgumentException.class, () -> transactionService.createTransactionsAsync(requests));
+        verifyNoInteractions(transactionRepository);
+    }
+
+    private TransactionRequest batchRequest(String userName, String amount) {
+        TransactionRequest request = new TransactionRequest();
+        request.setUserName(userName);
+        request.setAmount(new BigDecimal(amount));
+        request.setType(Transaction.TransactionType.DEPOSIT);
+        request.setDescription("批量交易");
+        return request;
+    }
+
+    @Test
+    void getTransaction_ShouldServeRepeatedReadsFromCacheUntilUpdated() {
+        // 准备测试数据
+        TransactionService cachedService = cachedService();
+        Transaction existing = Transaction.builder()
+                .id(1)
                 .userName(TEST_USER)
-                .amount(sampleRequest.getAmount())
-                .type(sampleRequest.getType())
-                .description(sampleRequest.getDescription())
-                .toUserName(sampleRequest.getToUserName())
-                .createTimestamp(System.currentTimeMillis())
+                .amount(new BigDecimal("100.00"))
+                .type(Transaction.TransactionType.DEPOSIT)
                 .build();
+        when(transactionRepository.findByUserNameAndId(TEST_USER, 1L)).thenReturn(Optional.of(existing));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        when(transactionRepository.findLastByUserName(TEST_USER))
-                .thenReturn(Optional.of(existingTransaction));
+        // 执行测试
+        cachedService.getTransaction(TEST_USER, "1");
+        cachedService.getTransaction(TEST_USER, "1");
+        Transaction updated = cachedService.updateTransaction(TEST_USER, "1", sampleRequest);
+        doReturn(Optional.of(updated)).when(transactionRepository).findByUserNameAndId(TEST_USER, 1L);
+        Transaction afterUpdate = cachedService.getTransaction(TEST_USER, "1");
+
+        // 验证结果：更新前只读仓库一次，更新失效缓存后重新读取
+        assertSame(updated, afterUpdate);
+        verify(transactionRepository, times(2)).findByUserNameAndId(TEST_USER, 1L);
+    }
 
-        // 执行测试和验证
-        assertThrows(DuplicateTransactionException.class,
-                () -> transactionService.createTransaction(sampleRequest));
+    @Test
+    void getTransaction_ShouldLoadMissWithoutReadLock_AndNotCacheWhenWrittenMeanwhile() {
+        // 准备测试数据：第一次加载期间同一用户的分段被写入，第二次加载时没有写入
+        StripedUserLocks userLocks = new StripedUserLocks(4096);
+        TransactionService cachedService = TransactionServiceImpl.builder()
+                .transactionRepository(transactionRepository)
+                .userLocks(userLocks)
+                .cacheManager(new CaffeineCacheManager(TransactionServiceImpl.POINT_CACHE,
+                        TransactionServiceImpl.FIRST_PAGE_CACHE))
+                .build();
+        Transaction existing = Transaction.builder()
+                .id(1)
+                .userName(TEST_USER)
+                .amount(new BigDecimal("100.00"))
+                .type(Transaction.TransactionType.DEPOSIT)
+                .build();
+        StampedLock lock = userLocks.get(TEST_USER);
+        List<Boolean> readLocked = new ArrayList<>();
+        when(transactionRepository.findByUserNameAndId(TEST_USER, 1L)).thenAnswer(invocation -> {
+            readLocked.add(lock.isReadLocked());
+            if (readLocked.size() == 1) {
+                lock.unlockWrite(lock.writeLock());
+            }
+            return Optional.of(existing);
+        });
+
+        // 执行测试
+        cachedService.getTransaction(TEST_USER, "1");
+        cachedService.getTransaction(TEST_USER, "1");
+        cachedService.getTransaction(TEST_USER, "1");
+        cachedService.getTransaction(TEST_USER, "1");
+
+        // 验证结果：乐观读失败后在读锁内重读，但不放入缓存；之后乐观读加载一次并缓存
+        assertEquals(List.of(false, true, false), readLocked);
+    }
+
+    @Test
+    void getAllTransactions_ShouldCacheFirstPageUntilCreate() {
+        // 准备测试数据
+        TransactionService cachedService = cachedService();
+        Page<Transaction> firstPage = new PageImpl<>(
+                Arrays.asList(
+                        Transaction.builder().id(1).userName(TEST_USER).build(),
+                        Transaction.builder().id(2).userName(TEST_USER).build(),
+                        Transaction.builder().id(3).userName(TEST_USER).build()),
+                PageRequest.of(0, 100),
+                3);
+        when(transactionRepository.findAllByUserName(TEST_USER, PageRequest.of(0, 100))).thenReturn(firstPage);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // 执行测试
+        Page<Transaction> three = cachedService.getAllTransactions(TEST_USER, PageRequest.of(0, 3));
+        Page<Transaction> two = cachedService.getAllTransactions(TEST_USER, PageRequest.of(0, 2));
+        cachedService.createTransaction(sampleRequest);
+        cachedService.getAllTransactions(TEST_USER, PageRequest.of(0, 2));
+
+        // 验证结果：不同每页大小共用同一份第一页缓存，新增后重新读取
+        assertEquals(3, three.getContent().size());
+        assertEquals(2, two.getContent().size());
+        assertEquals(3, two.getTotalElements());
+        assertEquals(2, two.getSize());
+        verify(transactionRepository, times(2)).findAllByUserName(TEST_USER, PageRequest.of(0, 100));
+    }
+
+    private TransactionService cachedService() {
+        return TransactionServiceImpl.builder()
+                .transactionRepository(transactionRepository)
+                .cacheManager(new CaffeineCacheManager(TransactionServiceImpl.POINT_CACHE,
+                        TransactionServiceImpl.FIRST_PAGE_CACHE))
+                .build();
     }
-} 
\ No newline at end of file
+}
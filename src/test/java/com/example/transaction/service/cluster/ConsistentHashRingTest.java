@@ -0,0 +1,72 @@
+package com.example.transaction.service.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+    private static final List<String> NODES =
+            List.of("http://localhost:8081", "http://localhost:8082", "http://localhost:8083");
+
+    @Test
+    void ownerOf_ShouldNotDependOnNodeOrder() {
+        // 准备测试数据
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 256);
+        ConsistentHashRing reversed = new ConsistentHashRing(
+                List.of(NODES.get(2), NODES.get(1), NODES.get(0)), 256);
+
+        // 执行测试并验证结果
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(ring.ownerOf("user" + i), reversed.ownerOf("user" + i));
+        }
+    }
+
+    @Test
+    void ownerOf_ShouldSpreadUsersEvenly() {
+        // 准备测试数据
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 256);
+        Map<String, Integer> counts = new HashMap<>();
+
+        // 执行测试
+        for (int i = 0; i < 100000; i++) {
+            counts.merge(ring.ownerOf("user" + i), 1, Integer::sum);
+        }
+
+        // 验证结果：每个节点约三分之一
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 28000 && count < 39000, "count=" + count));
+    }
+
+    @Test
+    void ownerOf_ShouldOnlyMoveUsersToNewNode_WhenNodeAdded() {
+        // 准备测试数据
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 256);
+        String added = "http://localhost:8084";
+        ConsistentHashRing grown = new ConsistentHashRing(
+                List.of(NODES.get(0), NODES.get(1), NODES.get(2), added), 256);
+
+        // 执行测试
+        int moved = 0;
+        for (int i = 0; i < 100000; i++) {
+            String before = ring.ownerOf("user" + i);
+            String after = grown.ownerOf("user" + i);
+            if (!before.equals(after)) {
+                assertEquals(added, after);
+                moved++;
+            }
+        }
+
+        // 验证结果：约四分之一的用户移到新节点
+        assertTrue(moved > 18000 && moved < 32000, "moved=" + moved);
+    }
+
+    @Test
+    void constructor_ShouldRejectDuplicateNodes() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ConsistentHashRing(List.of("http://a:8080", "http://a:8080"), 16));
+    }
+}
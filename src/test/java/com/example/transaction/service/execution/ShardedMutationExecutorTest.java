@@ -0,0 +1,141 @@
+package com.example.transaction.service.execution;
+
+import com.example.transaction.exception.ShardQueueFullException;
+import com.example.transaction.exception.TransactionNotFoundException;
+import com.example.transaction.service.lock.StripedUserLocks;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedMutationExecutorTest {
+
+    private ShardedMutationExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ShardedMutationExecutor(new StripedUserLocks(64), 4, 16);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.close();
+    }
+
+    @Test
+    void submit_ShouldRunEachUserOnOneThreadInOrder() throws Exception {
+        // 准备测试数据：计数器不加锁，只有单线程执行时结果才正确
+        int users = 20;
+        int perUser = 2_000;
+        Map<String, long[]> counters = new HashMap<>();
+        Map<String, String> threads = new HashMap<>();
+        for (int u = 0; u < users; u++) {
+            counters.put("user" + u, new long[1]);
+        }
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+
+        // 执行测试：每个调用线程负责若干用户，按顺序提交递增的期望值
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        List<java.util.concurrent.Future<?>> submitted = new ArrayList<>();
+        for (int u = 0; u < users; u++) {
+            String userName = "user" + u;
+            submitted.add(callers.submit(() -> {
+                for (int i = 0; i < perUser; i++) {
+                    long expected = i;
+                    CompletableFuture<Boolean> result;
+                    do {
+                        result = executor.submit(userName, () -> {
+                            threads.putIfAbsent(userName, Thread.currentThread().getName());
+                            boolean inOrder = counters.get(userName)[0] == expected
+                                    && threads.get(userName).equals(Thread.currentThread().getName());
+                            counters.get(userName)[0]++;
+                            return inOrder;
+                        });
+                    } while (isQueueFull(result));
+                    synchronized (results) {
+                        results.add(result);
+                    }
+                }
+            }));
+        }
+        for (java.util.concurrent.Future<?> future : submitted) {
+            future.get();
+        }
+        callers.shutdown();
+
+        // 验证结果
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        }
+        counters.values().forEach(counter -> assertEquals(perUser, counter[0]));
+    }
+
+    @Test
+    void submit_ShouldCompleteExceptionallyWithOriginalException() {
+        // 执行测试
+        CompletableFuture<Object> result = executor.submit("testUser", () -> {
+            throw new TransactionNotFoundException("未找到");
+        });
+
+        // 验证结果
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(TransactionNotFoundException.class, e.getCause());
+    }
+
+    @Test
+    void submit_ShouldRejectWhenShardQueueIsFull() throws Exception {
+        // 准备测试数据：阻塞分片线程
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit("testUser", () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+
+        // 执行测试：同一分片的队列容量为16
+        List<CompletableFuture<Integer>> queued = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            int value = i;
+            queued.add(executor.submit("testUser", () -> value));
+        }
+        CompletableFuture<Integer> rejected = executor.submit("testUser", () -> -1);
+        release.countDown();
+
+        // 验证结果
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(ShardQueueFullException.class, e.getCause());
+        for (int i = 0; i < 16; i++) {
+            assertEquals(i, queued.get(i).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private static boolean isQueueFull(CompletableFuture<?> result) {
+        if (!result.isCompletedExceptionally()) {
+            return false;
+        }
+        try {
+            result.join();
+            return false;
+        } catch (RuntimeException e) {
+            return e.getCause() instanceof ShardQueueFullException;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.example.transaction.service.id;
+
+import com.example.transaction.service.lock.StripedUserLocks;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdGeneratorTest {
+    private static final long NOW = SnowflakeIdGenerator.EPOCH + 1_000_000;
+
+    private final StripedUserLocks userLocks = new StripedUserLocks(4096);
+
+    @Test
+    void nextId_ShouldIncreaseForSameUser_WhenSequenceExhaustedOrClockMovesBack() {
+        // 准备测试数据：16 个槽位，每毫秒每个槽位 256 个序号
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(userLocks, 3, 16, clock::get);
+
+        // 执行测试：同一毫秒内生成超过序号上限，再把时钟回拨
+        long previous = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (i == 600) {
+                clock.set(NOW - 5000);
+            }
+            long id = generator.nextId("abc");
+            // 验证结果
+            assertTrue(id > previous, "id=" + id + ", previous=" + previous);
+            previous = id;
+        }
+        assertTrue(SnowflakeIdGenerator.timestampOf(previous) > NOW);
+    }
+
+    @Test
+    void nextId_ShouldNotCollide_AcrossNodesAndThreads() {
+        // 准备测试数据：两个节点，同一时刻
+        SnowflakeIdGenerator first = new SnowflakeIdGenerator(userLocks, 0, 16, () -> NOW);
+        SnowflakeIdGenerator second = new SnowflakeIdGenerator(userLocks, 1, 16, () -> NOW);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        // 执行测试
+        IntStream.range(0, 100_000).parallel().forEach(i -> {
+            ids.add(first.nextId("user" + (i % 1000)));
+            ids.add(second.nextId("user" + (i % 1000)));
+        });
+
+        // 验证结果
+        assertEquals(200_000, ids.size());
+    }
+
+    @Test
+    void nextTransferId_ShouldReserveEvenIdAndNext_WhenMixedWithSingleIds() {
+        // 准备测试数据：同一毫秒内交替生成单个Id和转账Id，跨过序号上限
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(userLocks, 0, 16, () -> NOW);
+        Set<Long> ids = new HashSet<>();
+
+        // 执行测试
+        for (int i = 0; i < 1000; i++) {
+            long single = generator.nextId("abc");
+            long transfer = generator.nextTransferId("abc", "abc");
+
+            // 验证结果：转账Id为偶数，Id + 1 与其他Id都不重复
+            assertEquals(0, transfer % 2);
+            assertTrue(transfer > single);
+            assertTrue(ids.add(single));
+            assertTrue(ids.add(transfer));
+            assertTrue(ids.add(transfer + 1));
+        }
+        assertTrue(generator.nextId("abc") > Collections.max(ids));
+    }
+
+    @Test
+    void nextTransferId_ShouldKeepIdsIncreasingForBothUsers_WhenSlotsDiffer() {
+        // 准备测试数据：转出方和接收方在不同槽位，两个方向都试；转出方先在同一毫秒内借用到之后的毫秒
+        for (boolean senderOnHigherSlot : new boolean[]{false, true}) {
+            SnowflakeIdGenerator generator = new SnowflakeIdGenerator(userLocks, 0, 16, () -> NOW);
+            String low = userOnSlot(2);
+            String high = userOnSlot(9);
+            String sender = senderOnHigherSlot ? high : low;
+            String recipient = senderOnHigherSlot ? low : high;
+            long recipientLast = 0;
+            for (int i = 0; i < 10; i++) {
+                recipientLast = generator.nextId(recipient);
+            }
+            long senderLast = 0;
+            for (int i = 0; i < 1000; i++) {
+                senderLast = generator.nextId(sender);
+            }
+
+            // 执行测试
+            long transfer = generator.nextTransferId(sender, recipient);
+            long senderNext = generator.nextId(sender);
+            long recipientNext = generator.nextId(recipient);
+
+            // 验证结果：转出记录和转入记录分别在两方的Id序列中递增
+            assertTrue(transfer > senderLast && senderNext > transfer + 1, "sender");
+            assertTrue(transfer + 1 > recipientLast && recipientNext > transfer + 1, "recipient");
+        }
+    }
+
+    private String userOnSlot(int slot) {
+        for (int i = 0; ; i++) {
+            String userName = "user" + i;
+            if ((userLocks.stripeOf(userName) & 15) == slot) {
+                return userName;
+            }
+        }
+    }
+
+    @Test
+    void advancePast_ShouldStartAfterRecoveredId() {
+        // 准备测试数据：恢复出的最大Id来自时钟更快的上一次运行
+        SnowflakeIdGenerator before = new SnowflakeIdGenerator(userLocks, 0, 16, () -> NOW + 60_000);
+        long recovered = before.nextId("abc");
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(userLocks, 0, 16, () -> NOW);
+
+        // 执行测试
+        generator.advancePast(recovered);
+
+        // 验证结果
+        assertTrue(generator.nextId("abc") > recovered);
+        assertTrue(generator.nextId("xyz") > recovered);
+    }
+
+    @Test
+    void constructor_ShouldRejectInvalidNodeIdAndSlots() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SnowflakeIdGenerator(userLocks, SnowflakeIdGenerator.MAX_NODE_ID + 1, 16));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(userLocks, 0, 12));
+    }
+}
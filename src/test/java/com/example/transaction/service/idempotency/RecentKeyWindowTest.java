@@ -0,0 +1,67 @@
+package com.example.transaction.service.idempotency;
+
+import com.example.transaction.model.Money;
+import com.example.transaction.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecentKeyWindowTest {
+
+    @Test
+    void find_ShouldKeepEntriesForAtLeastOneWindow() {
+        // 准备测试数据
+        RecentKeyWindow window = new RecentKeyWindow(10_000, 1024, 0);
+        window.put(42L, null, 7L, 5_000);
+
+        // 执行测试并验证结果：写入后一个窗口内可见，超过两个窗口后被清除
+        assertEquals(7L, window.find(42L, null, 5_000));
+        assertEquals(7L, window.find(42L, null, 14_999));
+        assertEquals(7L, window.find(42L, null, 19_999));
+        assertEquals(RecentKeyWindow.NONE, window.find(42L, null, 30_000));
+    }
+
+    @Test
+    void find_ShouldMatchTagExactly() {
+        // 准备测试数据
+        RecentKeyWindow window = new RecentKeyWindow(10_000, 1024, 0);
+        window.put(1L, "key-a", 3L, 0);
+        window.put(1L, null, 4L, 0);
+
+        // 执行测试并验证结果：哈希相同但原始键不同时不命中
+        assertEquals(3L, window.find(1L, "key-a", 1));
+        assertEquals(4L, window.find(1L, null, 1));
+        assertEquals(RecentKeyWindow.NONE, window.find(1L, "key-b", 1));
+    }
+
+    @Test
+    void put_ShouldBoundEntriesByRollingGenerations() {
+        // 准备测试数据：每代最多 100 条
+        RecentKeyWindow window = new RecentKeyWindow(10_000, 100, 0);
+        for (long i = 1; i <= 1000; i++) {
+            window.put(i, null, i, 0);
+        }
+
+        // 执行测试并验证结果：最近两代仍可见，更早的已被淘汰
+        assertEquals(1000L, window.find(1000L, null, 0));
+        assertEquals(901L, window.find(901L, null, 0));
+        assertEquals(RecentKeyWindow.NONE, window.find(1L, null, 0));
+    }
+
+    @Test
+    void fingerprint_ShouldIgnoreAmountScaleAndDistinguishFields() {
+        // 执行测试并验证结果：金额先换算成分，100.0 与 100.00 相同
+        long base = IdempotencyRegistry.fingerprint("abc", Money.toCents(new BigDecimal("100.00")),
+                Transaction.TransactionType.DEPOSIT, null, "工资");
+        assertEquals(base, IdempotencyRegistry.fingerprint("abc", Money.toCents(new BigDecimal("100.0")),
+                Transaction.TransactionType.DEPOSIT, null, "工资"));
+        assertNotEquals(base, IdempotencyRegistry.fingerprint("abc", 10001L,
+                Transaction.TransactionType.DEPOSIT, null, "工资"));
+        assertNotEquals(base, IdempotencyRegistry.fingerprint("abc", 10000L,
+                Transaction.TransactionType.DEPOSIT, "", "工资"));
+        assertNotEquals(base, IdempotencyRegistry.fingerprint("abd", 10000L,
+                Transaction.TransactionType.DEPOSIT, null, "工资"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.transaction.service.importer;
+
+import com.example.transaction.dto.TransactionRequest;
+import com.example.transaction.model.Transaction;
+import com.example.transaction.repository.impl.InMemoryTransactionRepository;
+import com.example.transaction.service.impl.TransactionServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionImporterTest {
+
+    @TempDir
+    Path directory;
+
+    private InMemoryTransactionRepository repository;
+    private TransactionServiceImpl transactionService;
+    private TransactionImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryTransactionRepository();
+        transactionService = TransactionServiceImpl.builder().transactionRepository(repository).build();
+        importer = new TransactionImporter(transactionService, new ObjectMapper(), "unused.csv", 3);
+    }
+
+    @Test
+    void importFile_ShouldImportCsvAcrossChunksAndSkipBadLines() throws IOException {
+        // 准备测试数据：表头列名与 jmeter/create-params.csv 一致，7 行数据分成 3 块，其中一行类型非法
+        List<String> lines = new ArrayList<>();
+        lines.add("id,users,amount,type,desc,toUserName,createTimestamp");
+        for (int i = 1; i <= 6; i++) {
+            lines.add((i * 10) + ",Test" + (i % 2) + ",100.00,DEPOSIT,test deposit,," + (1000 + i));
+        }
+        lines.add("70,Test1,100.00,UNKNOWN,bad type,,1007");
+        Path file = Files.write(directory.resolve("history.csv"), lines);
+
+        // 执行测试
+        ImportReport report = importer.importFile(file);
+
+        // 验证结果
+        assertEquals(6, report.imported());
+        assertEquals(1, report.failed());
+        assertTrue(report.peakHeapBytes() > 0);
+        assertEquals(3, repository.findAllByUserName("Test0", PageRequest.of(0, 10)).getTotalElements());
+        Transaction transaction = repository.findByUserNameAndId("Test1", 30L).orElseThrow();
+        assertEquals(1003L, transaction.getCreateTimestamp());
+        assertEquals(1003L, transaction.getUpdateTimestamp());
+        assertNull(transaction.getToUserName());
+        assertFalse(repository.findByUserNameAndId("Test1", 70L).isPresent());
+    }
+
+    @Test
+    void importFile_ShouldImportNdjsonAndContinueIdsAfterImported() throws IOException {
+        // 准备测试数据
+        Path file = Files.write(directory.resolve("history.ndjson"), List.of(
+                "{\"id\":5,\"userName\":\"abc\",\"amount\":1.50,\"type\":\"DEPOSIT\",\"createTimestamp\":42}",
+                "",
+                "{\"id\":9,\"userName\":\"abc\",\"toUserName\":\"def\",\"amount\":2,\"type\":\"TRANSFER\","
+                        + "\"createTimestamp\":43,\"updateTimestamp\":44}"));
+
+        // 执行测试
+        ImportReport report = importer.importFile(file);
+        TransactionRequest request = new TransactionRequest();
+        request.setUserName("abc");
+        request.setAmount(new BigDecimal("3.00"));
+        request.setType(Transaction.TransactionType.DEPOSIT);
+        Transaction created = transactionService.createTransaction(request);
+
+        // 验证结果
+        assertEquals(2, report.imported());
+        assertEquals(0, report.failed());
+        assertEquals(44L, repository.findByUserNameAndId("abc", 9L).orElseThrow().getUpdateTimestamp());
+        assertEquals(42L, repository.findByUserNameAndId("abc", 5L).orElseThrow().getUpdateTimestamp());
+        assertEquals(10L, created.getId());
+    }
+
+    @Test
+    void importFile_ShouldCountLineAsFailed_WhenDescriptionTooLong() throws IOException {
+        // 准备测试数据：描述超过新增交易允许的 20 个字符
+        Path file = Files.write(directory.resolve("long.csv"), List.of(
+                "id,users,amount,type,desc,toUserName,createTimestamp",
+                "1,Test1,100.00,DEPOSIT,ok,,1001",
+                "2,Test1,100.00,DEPOSIT," + "d".repeat(300) + ",,1002"));
+
+        // 执行测试
+        ImportReport report = importer.importFile(file);
+
+        // 验证结果
+        assertEquals(1, report.imported());
+        assertEquals(1, report.failed());
+        assertFalse(repository.findByUserNameAndId("Test1", 2L).isPresent());
+    }
+
+    @Test
+    void importFile_ShouldKeepTransferLegsAsImported() throws IOException {
+        // 准备测试数据：Id 1、2 是带转入记录的转账，Id 5 是只有转出一方的旧转账
+        Path file = Files.write(directory.resolve("transfers.csv"), List.of(
+                "id,users,amount,type,desc,toUserName,createTimestamp",
+                "1,abc,10.00,TRANSFER,rent,def,1001",
+                "2,def,10.00,TRANSFER_IN,rent,abc,1001",
+                "5,abc,20.00,TRANSFER,legacy,def,1005"));
+
+        // 执行测试
+        ImportReport report = importer.importFile(file);
+
+        // 验证结果：不补生成转入记录，删除转出时一并删除导入的转入记录
+        assertEquals(3, report.imported());
+        assertEquals(List.of(2L), repository.findAllByUserName("def", PageRequest.of(0, 10)).getContent()
+                .stream().map(Transaction::getId).toList());
+        assertFalse(repository.findByUserNameAndId("def", 6L).isPresent());
+        transactionService.deleteTransaction("abc", "1");
+        assertFalse(repository.findByUserNameAndId("def", 2L).isPresent());
+        transactionService.deleteTransaction("abc", "5");
+        assertEquals(0, repository.findAllByUserName("abc", PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    void importFile_ShouldRejectCsvWithoutRequiredColumns() throws IOException {
+        // 准备测试数据
+        Path file = Files.write(directory.resolve("params.csv"), List.of(
+                "users,amount,type,desc",
+                "Test1,100.00,DEPOSIT,test deposit"));
+
+        // 执行测试并验证结果
+        assertThrows(IllegalArgumentException.class, () -> importer.importFile(file));
+    }
+}
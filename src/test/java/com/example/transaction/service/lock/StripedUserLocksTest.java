@@ -0,0 +1,100 @@
+package com.example.transaction.service.lock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.locks.StampedLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedUserLocksTest {
+
+    @Test
+    void get_ShouldReturnSameLockForSameUser() {
+        // 准备测试数据
+        StripedUserLocks locks = new StripedUserLocks(64);
+
+        // 执行测试和验证
+        assertSame(locks.get("testUser"), locks.get(new String("testUser")));
+        assertEquals(64, locks.size());
+    }
+
+    @Test
+    void constructor_ShouldRejectNonPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new StripedUserLocks(1000));
+        assertThrows(IllegalArgumentException.class, () -> new StripedUserLocks(0));
+    }
+
+    @Test
+    void stripeOf_ShouldSpreadSequentialUserNames() {
+        // 准备测试数据
+        StripedUserLocks locks = new StripedUserLocks(256);
+        int[] counts = new int[locks.size()];
+
+        // 执行测试
+        for (int i = 0; i < 256 * 100; i++) {
+            counts[locks.stripeOf("user" + i)]++;
+        }
+
+        // 验证结果：每个分段都被用到，且没有明显倾斜
+        for (int count : counts) {
+            assertTrue(count > 50 && count < 200, "分段计数: " + count);
+        }
+    }
+
+    @Test
+    void writeLockAll_ShouldLockSharedStripeOnce_AndReleaseAll() {
+        // 准备测试数据：只有 2 个分段，三个用户中至少两个落在同一分段
+        StripedUserLocks locks = new StripedUserLocks(2);
+
+        // 执行测试
+        StripedUserLocks.MultiLock held = locks.writeLockAll("a", "b", "c", null);
+        boolean allLocked = locks.get("a").isWriteLocked() && locks.get("b").isWriteLocked()
+                && locks.get("c").isWriteLocked();
+        held.unlock();
+
+        // 验证结果
+        assertTrue(allLocked);
+        assertFalse(locks.get("a").isWriteLocked());
+        assertFalse(locks.get("b").isWriteLocked());
+        assertFalse(locks.get("c").isWriteLocked());
+    }
+
+    @Test
+    void awaitWriters_ShouldWaitForHeldWriteLocks() throws Exception {
+        // 准备测试数据：另一个线程持有某个用户的写锁
+        StripedUserLocks locks = new StripedUserLocks(16);
+        StampedLock lock = locks.get("testUser");
+        long stamp = lock.writeLock();
+        Thread waiter = new Thread(locks::awaitWriters);
+
+        // 执行测试
+        waiter.start();
+        waiter.join(200);
+        boolean waitedWhileHeld = waiter.isAlive();
+        lock.unlockWrite(stamp);
+        waiter.join(5000);
+
+        // 验证结果
+        assertTrue(waitedWhileHeld);
+        assertFalse(waiter.isAlive());
+        assertFalse(lock.isWriteLocked());
+    }
+
+    @Test
+    void optimisticRead_ShouldBeInvalidatedByWriterOfSameUser() {
+        // 准备测试数据
+        StripedUserLocks locks = new StripedUserLocks(16);
+        StampedLock lock = locks.get("testUser");
+
+        // 执行测试
+        long readStamp = lock.tryOptimisticRead();
+        boolean validWithoutWriter = lock.validate(readStamp);
+        long writeStamp = locks.get("testUser").writeLock();
+        boolean validAfterWriter = lock.validate(readStamp);
+        lock.unlockWrite(writeStamp);
+
+        // 验证结果
+        assertTrue(validWithoutWriter);
+        assertFalse(validAfterWriter);
+    }
+}
\ No newline at end of file
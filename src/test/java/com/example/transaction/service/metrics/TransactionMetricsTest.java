@@ -0,0 +1,73 @@
+package com.example.transaction.service.metrics;
+
+import com.example.transaction.dto.TransactionRequest;
+import com.example.transaction.model.Transaction;
+import com.example.transaction.repository.impl.InMemoryTransactionRepository;
+import com.example.transaction.service.idempotency.IdempotencyRegistry;
+import com.example.transaction.service.impl.TransactionServiceImpl;
+import com.example.transaction.service.lock.StripedUserLocks;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionMetricsTest {
+
+    @Test
+    void service_ShouldRecordLockRepositoryAndPageMetrics_WhenEveryOperationSampled() {
+        // 准备测试数据：采样间隔为 1，每次操作都计时
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TransactionServiceImpl transactionService = service(registry, 1);
+
+        // 执行测试
+        transactionService.createTransaction(request("100.00"));
+        transactionService.createTransaction(request("200.00"));
+        transactionService.getAllTransactions("abc", PageRequest.of(1, 1));
+
+        // 验证结果
+        assertEquals(2, registry.get("transaction.lock.wait").tag("mode", "write").timer().count());
+        assertEquals(2, registry.get("transaction.lock.hold").timer().count());
+        assertEquals(2, registry.get("transaction.duplicate.check").timer().count());
+        assertEquals(2, registry.get("transaction.repository").tag("operation", "save").timer().count());
+        assertEquals(1, registry.get("transaction.repository").tag("operation", "findAllByUserName").timer().count());
+        assertEquals(2.0, registry.get("transaction.store.size").gauge().value());
+        assertEquals(1.0, registry.get("transaction.page.offset").summary().totalAmount());
+        assertEquals(2.0, registry.get("transaction.user.transactions").summary().max());
+    }
+
+    @Test
+    void service_ShouldNotRecordTimings_WhenSamplingDisabled() {
+        // 准备测试数据
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TransactionServiceImpl transactionService = service(registry, 0);
+
+        // 执行测试
+        transactionService.createTransaction(request("100.00"));
+
+        // 验证结果：仓库不包装，锁耗时不计
+        assertEquals(0, registry.get("transaction.lock.hold").timer().count());
+        assertNull(registry.find("transaction.repository").timer());
+        assertNull(registry.find("transaction.store.size").gauge());
+    }
+
+    private static TransactionServiceImpl service(SimpleMeterRegistry registry, int sampleRate) {
+        StripedUserLocks userLocks = new StripedUserLocks(16);
+        return TransactionServiceImpl.builder()
+                .transactionRepository(new InMemoryTransactionRepository())
+                .userLocks(userLocks)
+                .idempotencyRegistry(new IdempotencyRegistry(userLocks, 10000, 1024))
+                .metrics(new TransactionMetrics(registry, sampleRate))
+                .build();
+    }
+
+    private static TransactionRequest request(String amount) {
+        TransactionRequest request = new TransactionRequest();
+        request.setUserName("abc");
+        request.setAmount(new BigDecimal(amount));
+        request.setType(Transaction.TransactionType.DEPOSIT);
+        return request;
+    }
+}